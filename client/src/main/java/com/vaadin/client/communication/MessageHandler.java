@@ -1143,6 +1143,17 @@ public class MessageHandler {
                     }
                 }
 
+                // The hierarchy of these connectors has not changed even though
+                // they have state updates
+                if (json.containsKey(
+                        ApplicationConstants.UNCHANGED_HIERARCHY)) {
+                    JsArrayString unchangedIds = json.getJSStringArray(
+                            ApplicationConstants.UNCHANGED_HIERARCHY);
+                    for (int i = 0; i < unchangedIds.length(); i++) {
+                        hasHierarchy.add(unchangedIds.get(i));
+                    }
+                }
+
                 // Assume empty hierarchy for connectors with state updates but
                 // no hierarchy data
                 if (json.containsKey("state")) {
@@ -1256,9 +1267,9 @@ public class MessageHandler {
                     Profiler.leave(
                             "updateConnectorHierarchy find new connectors");
 
-                    // TODO This check should be done on the server side in
-                    // the future so the hierarchy update is only sent when
-                    // something actually has changed
+                    // The server only sends hierarchy that has changed since
+                    // it was last sent, but the same children are still
+                    // received e.g. when a child is removed and added back
                     List<ServerConnector> oldChildren = parentConnector
                             .getChildren();
                     boolean actuallyChanged = !Util
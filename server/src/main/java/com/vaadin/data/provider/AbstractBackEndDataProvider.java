@@ -16,6 +16,7 @@
 package com.vaadin.data.provider;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.Objects;
 import java.util.Set;
@@ -66,6 +67,11 @@ public abstract class AbstractBackEndDataProvider<T, F> extends
         return sizeInBackEnd(mixInSortOrders(query));
     }
 
+    @Override
+    public FetchResult<T> fetchWithSize(Query<T, F> query) {
+        return fetchWithSizeFromBackEnd(mixInSortOrders(query));
+    }
+
     /**
      * Fetches data from the back end using the given query.
      *
@@ -86,6 +92,28 @@ public abstract class AbstractBackEndDataProvider<T, F> extends
      */
     protected abstract int sizeInBackEnd(Query<T, F> query);
 
+    /**
+     * Fetches data from the back end together with the number of items
+     * available in the back end. Override this to get both with one back end
+     * query, or to return an estimated or unknown size.
+     * <p>
+     * The default implementation uses {@link #sizeInBackEnd(Query)} with a
+     * query that only has the filter of the given query, and
+     * {@link #fetchFromBackEnd(Query)}, skipping the fetch if the limit of the
+     * query is zero.
+     *
+     * @param query
+     *            the query that defines sorting, filtering and paging for
+     *            fetching the data
+     * @return the items matching the query and the number of available items
+     */
+    protected FetchResult<T> fetchWithSizeFromBackEnd(Query<T, F> query) {
+        int size = sizeInBackEnd(new Query<>(query.getFilter().orElse(null)));
+        List<T> items = query.getLimit() == 0 ? Collections.emptyList()
+                : fetchFromBackEnd(query).collect(Collectors.toList());
+        return FetchResult.withSize(items, size);
+    }
+
     @Override
     public void setSortOrders(List<QuerySortOrder> sortOrders) {
         this.sortOrders = Objects.requireNonNull(sortOrders,
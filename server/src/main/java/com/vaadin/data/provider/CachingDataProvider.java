@@ -0,0 +1,441 @@
+/*
+ * Copyright 2000-2016 Vaadin Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.vaadin.data.provider;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import com.vaadin.data.provider.DataChangeEvent.DataRefreshEvent;
+import com.vaadin.shared.Registration;
+
+/**
+ * A data provider wrapper that caches the results of queries to the wrapped
+ * data provider. Results are cached by the filter, sort orders, offset and
+ * limit of the query, so the filter type should implement
+ * {@link Object#equals(Object)} and {@link Object#hashCode()}.
+ * <p>
+ * The number of cached results is bounded, the least recently used results
+ * being evicted first, and results can also be evicted after a time to live.
+ * Concurrent identical queries are only sent to the wrapped data provider
+ * once. The cache is cleared when the wrapped data provider fires a
+ * {@link DataChangeEvent}, and results containing an item are removed when
+ * the item is refreshed.
+ * <p>
+ * This wrapper only listens to the wrapped data provider while listeners
+ * have been added to this wrapper, e.g. while the wrapper is used by a
+ * component, so that a wrapper that is no longer used can be garbage
+ * collected even if the wrapped data provider is still in use. Events fired
+ * while there are no listeners are not noticed, so the cache is cleared when
+ * the first listener is added. Call {@link #refreshAll()} on this wrapper to
+ * clear the cache when it is used without listeners.
+ * <p>
+ * A {@link QueryCache} can be shared by the wrappers of many data providers,
+ * e.g. one for each session, if the wrapped data providers return the same
+ * immutable data for the same query. The cache is not serialized; a
+ * deserialized wrapper uses a new private cache with the same limits.
+ *
+ * @author Vaadin Ltd
+ * @since 8.0
+ *
+ * @param <T>
+ *            data provider data type
+ * @param <F>
+ *            data provider filter type
+ */
+public class CachingDataProvider<T, F> extends DataProviderWrapper<T, F, F> {
+
+    /**
+     * A thread safe cache of query results with least recently used and time
+     * based eviction. The cache can be shared by several
+     * {@link CachingDataProvider} instances.
+     */
+    public static class QueryCache {
+
+        private static class Entry {
+            private final CompletableFuture<Object> value = new CompletableFuture<>();
+            private final long created;
+
+            private Entry(long created) {
+                this.created = created;
+            }
+        }
+
+        private final int maxEntries;
+        private final long timeToLive;
+
+        // Guarded by itself
+        private final LinkedHashMap<List<Object>, Entry> entries;
+
+        private final AtomicLong hits = new AtomicLong();
+        private final AtomicLong misses = new AtomicLong();
+
+        /**
+         * Creates a new cache.
+         *
+         * @param maxEntries
+         *            the maximum number of query results to keep, must be
+         *            positive
+         * @param timeToLive
+         *            the time in milliseconds after which a query result is
+         *            evicted, or <code>0</code> to keep results until they
+         *            are evicted by newer results or invalidated
+         */
+        public QueryCache(int maxEntries, long timeToLive) {
+            if (maxEntries <= 0) {
+                throw new IllegalArgumentException(
+                        "The maximum number of entries must be positive, was "
+                                + maxEntries);
+            }
+            if (timeToLive < 0) {
+                throw new IllegalArgumentException(
+                        "The time to live cannot be negative, was "
+                                + timeToLive);
+            }
+            this.maxEntries = maxEntries;
+            this.timeToLive = timeToLive;
+            entries = new LinkedHashMap<List<Object>, Entry>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(
+                        Map.Entry<List<Object>, Entry> eldest) {
+                    return size() > QueryCache.this.maxEntries;
+                }
+            };
+        }
+
+        /**
+         * Gets a cached value, or loads it if there is no valid cached value.
+         * If another thread is already loading the value, waits for it instead
+         * of loading it again.
+         */
+        private Object get(List<Object> key, Supplier<Object> loader) {
+            Entry entry;
+            boolean load = false;
+            synchronized (entries) {
+                entry = entries.get(key);
+                long now = currentTimeMillis();
+                if (entry == null || timeToLive > 0
+                        && now - entry.created >= timeToLive) {
+                    entry = new Entry(now);
+                    entries.put(key, entry);
+                    load = true;
+                }
+            }
+
+            if (load) {
+                misses.incrementAndGet();
+                try {
+                    entry.value.complete(loader.get());
+                } catch (Throwable e) {
+                    // Errors must also release the threads waiting for this
+                    // entry, or identical queries would wait forever
+                    remove(key, entry);
+                    entry.value.completeExceptionally(e);
+                    throw e;
+                }
+            } else {
+                hits.incrementAndGet();
+            }
+
+            try {
+                return entry.value.join();
+            } catch (CompletionException e) {
+                // Loading failed in another thread, so try again
+                remove(key, entry);
+                return get(key, loader);
+            }
+        }
+
+        private void remove(List<Object> key, Entry entry) {
+            synchronized (entries) {
+                entries.remove(key, entry);
+            }
+        }
+
+        /**
+         * Removes the cached results that contain an item with the given
+         * identifier, and results that are still being loaded.
+         */
+        private void removeItem(Object id,
+                DataProvider<?, ?> dataProvider) {
+            synchronized (entries) {
+                Iterator<Entry> iterator = entries.values().iterator();
+                while (iterator.hasNext()) {
+                    Entry entry = iterator.next();
+                    if (!entry.value.isDone()) {
+                        iterator.remove();
+                        continue;
+                    }
+                    Object value = entry.value.getNow(null);
+                    if (value instanceof FetchResult) {
+                        value = ((FetchResult<?>) value).getItems();
+                    }
+                    if (value instanceof List && containsId((List<?>) value,
+                            id, dataProvider)) {
+                        iterator.remove();
+                    }
+                }
+            }
+        }
+
+        @SuppressWarnings({ "rawtypes", "unchecked" })
+        private static boolean containsId(List<?> items, Object id,
+                DataProvider dataProvider) {
+            for (Object item : items) {
+                if (id.equals(dataProvider.getId(item))) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        /**
+         * Removes all cached results.
+         */
+        public void clear() {
+            synchronized (entries) {
+                entries.clear();
+            }
+        }
+
+        /**
+         * Gets the number of cached query results, including results that are
+         * being loaded or have expired.
+         *
+         * @return the number of cached results
+         */
+        public int getEntryCount() {
+            synchronized (entries) {
+                return entries.size();
+            }
+        }
+
+        /**
+         * Gets the number of queries that were answered from this cache,
+         * including queries that waited for an identical query to complete.
+         *
+         * @return the number of cache hits
+         */
+        public long getHitCount() {
+            return hits.get();
+        }
+
+        /**
+         * Gets the number of queries that were sent to the wrapped data
+         * provider.
+         *
+         * @return the number of cache misses
+         */
+        public long getMissCount() {
+            return misses.get();
+        }
+
+        /**
+         * Gets the maximum number of query results to keep.
+         *
+         * @return the maximum number of entries
+         */
+        public int getMaxEntries() {
+            return maxEntries;
+        }
+
+        /**
+         * Gets the time after which query results are evicted.
+         *
+         * @return the time to live in milliseconds, or <code>0</code> if
+         *         results are not evicted based on time
+         */
+        public long getTimeToLive() {
+            return timeToLive;
+        }
+
+        /**
+         * Gets the current time used for time based eviction.
+         *
+         * @return the current time in milliseconds
+         */
+        protected long currentTimeMillis() {
+            return System.currentTimeMillis();
+        }
+    }
+
+    private enum QueryType {
+        SIZE, FETCH, FETCH_WITH_SIZE;
+    }
+
+    private final int maxEntries;
+    private final long timeToLive;
+    private transient QueryCache cache;
+
+    private int listenerCount;
+    private Registration wrappedRegistration;
+
+    /**
+     * Creates a new caching wrapper with a private cache.
+     *
+     * @param dataProvider
+     *            the data provider to cache query results of, not
+     *            <code>null</code>
+     * @param maxEntries
+     *            the maximum number of query results to keep, must be positive
+     * @param timeToLive
+     *            the time in milliseconds after which a query result is
+     *            evicted, or <code>0</code> to keep results until they are
+     *            evicted by newer results or invalidated
+     */
+    public CachingDataProvider(DataProvider<T, F> dataProvider,
+            int maxEntries, long timeToLive) {
+        this(dataProvider, new QueryCache(maxEntries, timeToLive));
+    }
+
+    /**
+     * Creates a new caching wrapper using the given cache, which may be shared
+     * with other wrappers of data providers that return the same immutable
+     * data for the same query.
+     *
+     * @param dataProvider
+     *            the data provider to cache query results of, not
+     *            <code>null</code>
+     * @param cache
+     *            the cache to use, not <code>null</code>
+     */
+    public CachingDataProvider(DataProvider<T, F> dataProvider,
+            QueryCache cache) {
+        super(dataProvider);
+        this.cache = Objects.requireNonNull(cache, "Cache cannot be null");
+        maxEntries = cache.getMaxEntries();
+        timeToLive = cache.getTimeToLive();
+    }
+
+    /**
+     * Gets the cache used by this wrapper.
+     *
+     * @return the cache, not <code>null</code>
+     */
+    public QueryCache getCache() {
+        if (cache == null) {
+            cache = new QueryCache(maxEntries, timeToLive);
+        }
+        return cache;
+    }
+
+    @Override
+    public synchronized Registration addDataProviderListener(
+            DataProviderListener<T> listener) {
+        if (listenerCount++ == 0) {
+            // Changes may have been missed while nobody was listening
+            getCache().clear();
+            // Added before the listener so that the cache is cleared first
+            wrappedRegistration = dataProvider
+                    .addDataProviderListener(this::onDataChange);
+        }
+        Registration registration = super.addDataProviderListener(listener);
+        AtomicBoolean removed = new AtomicBoolean();
+        return () -> {
+            if (removed.compareAndSet(false, true)) {
+                registration.remove();
+                listenerRemoved();
+            }
+        };
+    }
+
+    private synchronized void listenerRemoved() {
+        if (--listenerCount == 0) {
+            wrappedRegistration.remove();
+            wrappedRegistration = null;
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private void onDataChange(DataChangeEvent<T> event) {
+        if (event instanceof DataRefreshEvent) {
+            removeItem(((DataRefreshEvent<T>) event).getItem());
+        } else {
+            getCache().clear();
+        }
+    }
+
+    @Override
+    protected F getFilter(Query<T, F> query) {
+        return query.getFilter().orElse(null);
+    }
+
+    @Override
+    public int size(Query<T, F> query) {
+        return (Integer) getCache().get(createKey(QueryType.SIZE, query),
+                () -> super.size(query));
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public Stream<T> fetch(Query<T, F> query) {
+        return ((List<T>) getCache().get(createKey(QueryType.FETCH, query),
+                () -> Collections.unmodifiableList(super.fetch(query)
+                        .collect(Collectors.toList())))).stream();
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public FetchResult<T> fetchWithSize(Query<T, F> query) {
+        return (FetchResult<T>) getCache().get(
+                createKey(QueryType.FETCH_WITH_SIZE, query),
+                () -> super.fetchWithSize(query));
+    }
+
+    @Override
+    public void refreshAll() {
+        getCache().clear();
+        super.refreshAll();
+    }
+
+    @Override
+    public void refreshItem(T item) {
+        removeItem(item);
+        super.refreshItem(item);
+    }
+
+    private void removeItem(T item) {
+        getCache().removeItem(getId(item), dataProvider);
+    }
+
+    private List<Object> createKey(QueryType type, Query<T, F> query) {
+        Object filter = query.getFilter().orElse(null);
+        if (type == QueryType.SIZE) {
+            return Arrays.asList(type, filter);
+        }
+        List<String> sortOrders = new ArrayList<>();
+        for (QuerySortOrder order : query.getSortOrders()) {
+            sortOrders.add(order.getSorted() + " " + order.getDirection());
+        }
+        // Back end data providers ignore the in-memory sorting
+        Object inMemorySorting = isInMemory() ? query.getInMemorySorting()
+                : null;
+        return Arrays.asList(type, filter, sortOrders, inMemorySorting,
+                query.getOffset(), query.getLimit());
+    }
+}
@@ -16,6 +16,7 @@
 package com.vaadin.data.provider;
 
 import java.io.Serializable;
+import java.util.Collections;
 import java.util.Objects;
 import java.util.stream.Stream;
 
@@ -87,8 +88,37 @@ public class CallbackDataProvider<T, F>
         public int count(Query<T, F> query);
     }
 
+    /**
+     * Callback interface for fetching a page of items from a backend together
+     * with the number of items matching the filter of the query, e.g. with a
+     * single SQL query that uses a window function for the count.
+     *
+     * @param <T>
+     *            the type of the items to fetch
+     * @param <F>
+     *            the type of the optional filter in the query,
+     *            <code>Void</code> if filtering is not supported
+     */
+    @FunctionalInterface
+    public interface PageCallback<T, F> extends Serializable {
+        /**
+         * Fetches a page of items based on a query, together with the exact,
+         * estimated or unknown number of items matching the filter of the
+         * query. The query defines the paging, sorting and filtering in the
+         * same way as for {@link FetchCallback#fetch(Query)}. A query with a
+         * limit of zero is used when only the number of items is needed.
+         *
+         * @param query
+         *            the query that defines which items to fetch
+         * @return the fetched items and their total number, not
+         *         <code>null</code>
+         */
+        public FetchResult<T> fetchWithSize(Query<T, F> query);
+    }
+
     private final FetchCallback<T, F> fetchCallback;
     private final CountCallback<T, F> countCallback;
+    private final PageCallback<T, F> pageCallback;
     private final ValueProvider<T, Object> idGetter;
 
     /**
@@ -129,9 +159,49 @@ public class CallbackDataProvider<T, F>
                 "Identifier getter function can't be null");
         this.fetchCallback = fetchCallBack;
         this.countCallback = countCallback;
+        pageCallback = null;
         this.idGetter = identifierGetter;
     }
 
+    /**
+     * Constructs a new DataProvider to request data using a callback that
+     * fetches a page of items and the number of items in the back end with one
+     * call.
+     * <p>
+     * If the callback only returns an estimated or unknown size, listing
+     * components grow their scroll range as more items are fetched.
+     * {@link #size(Query)} returns the exact or estimated size from the
+     * callback. If the size is unknown, {@link #size(Query)} throws an
+     * {@link UnsupportedOperationException} instead of counting the items by
+     * fetching all of them. Callers that need the size, such as
+     * {@link CachingDataProvider} or {@link com.vaadin.ui.Grid#scrollTo(int)},
+     * can only be used if the callback returns an exact or estimated size.
+     *
+     * @param pageCallback
+     *            function that returns the items for a query and the number
+     *            of items in the back end for the filter of the query
+     */
+    public CallbackDataProvider(PageCallback<T, F> pageCallback) {
+        Objects.requireNonNull(pageCallback, "Page callback can't be null");
+        this.pageCallback = pageCallback;
+        fetchCallback = query -> pageCallback.fetchWithSize(query).getItems()
+                .stream();
+        countCallback = query -> countFromPage(pageCallback, query);
+        idGetter = t -> t;
+    }
+
+    private static <T, F> int countFromPage(PageCallback<T, F> pageCallback,
+            Query<T, F> query) {
+        FetchResult<T> result = pageCallback.fetchWithSize(new Query<>(0, 0,
+                Collections.emptyList(), null, query.getFilter().orElse(null)));
+        if (!result.isSizeKnown()) {
+            throw new UnsupportedOperationException(
+                    "The size is unknown, the page callback must return an "
+                            + "exact or estimated size for counting items");
+        }
+        return result.getSize();
+    }
+
     @Override
     public Stream<T> fetchFromBackEnd(Query<T, F> query) {
         return fetchCallback.fetch(query);
@@ -142,6 +212,14 @@ public class CallbackDataProvider<T, F>
         return countCallback.count(query);
     }
 
+    @Override
+    protected FetchResult<T> fetchWithSizeFromBackEnd(Query<T, F> query) {
+        if (pageCallback != null) {
+            return pageCallback.fetchWithSize(query);
+        }
+        return super.fetchWithSizeFromBackEnd(query);
+    }
+
     @Override
     public Object getId(T item) {
         Object itemId = idGetter.apply(item);
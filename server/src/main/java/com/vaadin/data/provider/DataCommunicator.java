@@ -19,24 +19,34 @@ import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Comparator;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
+import java.util.concurrent.Executor;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
 import com.vaadin.data.provider.DataChangeEvent.DataRefreshEvent;
 import com.vaadin.server.AbstractExtension;
-import com.vaadin.server.KeyMapper;
+import com.vaadin.server.Constants;
 import com.vaadin.server.SerializableConsumer;
+import com.vaadin.server.VaadinRequest;
+import com.vaadin.server.VaadinResponse;
+import com.vaadin.server.VaadinService;
+import com.vaadin.server.VaadinSession;
 import com.vaadin.shared.Range;
 import com.vaadin.shared.Registration;
 import com.vaadin.shared.data.DataCommunicatorClientRpc;
 import com.vaadin.shared.data.DataCommunicatorConstants;
 import com.vaadin.shared.data.DataRequestRpc;
 import com.vaadin.shared.extension.datacommunicator.DataCommunicatorState;
+import com.vaadin.ui.UI;
+import com.vaadin.util.CurrentInstance;
 
 import elemental.json.Json;
 import elemental.json.JsonArray;
@@ -202,6 +212,15 @@ public class DataCommunicator<T> extends AbstractExtension {
     private final List<QuerySortOrder> backEndSorting = new ArrayList<>();
     private final DataCommunicatorClientRpc rpc;
 
+    /*
+     * Whether the size last sent to the client is exact. If not, the size is
+     * an estimate that is updated as rows are fetched.
+     */
+    private boolean sizeExact = true;
+    private int clientSize;
+
+    private transient ReadAheadCache<T> readAheadCache;
+
     public DataCommunicator() {
         addDataGenerator(handler);
         rpc = getRpcProxy(DataCommunicatorClientRpc.class);
@@ -316,25 +335,54 @@ public class DataCommunicator<T> extends AbstractExtension {
             return;
         }
 
-        if (initial || reset) {
-            @SuppressWarnings({ "rawtypes", "unchecked" })
-            int dataProviderSize = getDataProvider().size(new Query(filter));
-            rpc.reset(dataProviderSize);
-        }
-
         Range requestedRows = getPushRows();
         boolean triggerReset = false;
-        if (!requestedRows.isEmpty()) {
+        if (initial || reset) {
+            if (readAheadCache != null) {
+                readAheadCache.clear();
+            }
+
+            // The size and any requested rows are fetched with one call
+            FetchResult<T> result = fetchWithSize(requestedRows);
+            sizeExact = result.isSizeExact();
+            clientSize = sizeExact ? result.getSize()
+                    : estimateSize(requestedRows, result, 0);
+            rpc.reset(clientSize);
+
+            if (!requestedRows.isEmpty()) {
+                pushData(requestedRows.getStart(), result.getItems());
+            }
+        } else if (!requestedRows.isEmpty()) {
             int offset = requestedRows.getStart();
             int limit = requestedRows.length();
 
-            @SuppressWarnings({ "rawtypes", "unchecked" })
-            List<T> rowsToPush = (List<T>) getDataProvider()
-                    .fetch(new Query(offset, limit, backEndSorting,
-                            inMemorySorting, filter))
-                    .collect(Collectors.toList());
+            List<T> rowsToPush;
+            if (sizeExact) {
+                Executor executor = getDataProvider().isInMemory() ? null
+                        : getReadAheadExecutor();
+                rowsToPush = executor == null ? null
+                        : getReadAheadCache().get(requestedRows);
+                if (rowsToPush == null) {
+                    @SuppressWarnings({ "rawtypes", "unchecked" })
+                    List<T> fetched = (List<T>) getDataProvider()
+                            .fetch(new Query(offset, limit, backEndSorting,
+                                    inMemorySorting, filter))
+                            .collect(Collectors.toList());
+                    rowsToPush = fetched;
+                }
+                if (executor != null) {
+                    getReadAheadCache().readAhead(requestedRows, clientSize,
+                            createReadAheadFetcher(), executor);
+                }
+            } else {
+                FetchResult<T> result = fetchWithSize(requestedRows);
+                rowsToPush = result.getItems();
+                if (!rowsToPush.isEmpty()) {
+                    updateEstimatedSize(requestedRows, result);
+                }
+            }
 
-            if (!initial && !reset && rowsToPush.size() == 0) {
+            if (rowsToPush.size() == 0) {
                 triggerReset = true;
             }
 
@@ -355,6 +403,154 @@ public class DataCommunicator<T> extends AbstractExtension {
         updatedData.clear();
     }
 
+    /**
+     * Creates a function that fetches rows using the current data provider,
+     * sorting and filter, for calling in a background thread. The current
+     * instances, apart from the request and the response, are set while
+     * fetching the rows.
+     */
+    @SuppressWarnings({ "rawtypes", "unchecked" })
+    private Function<Range, List<T>> createReadAheadFetcher() {
+        DataProvider dataProvider = getDataProvider();
+        List<QuerySortOrder> sortOrders = new ArrayList<>(backEndSorting);
+        Comparator<T> comparator = inMemorySorting;
+        Object currentFilter = filter;
+        Map<Class<?>, CurrentInstance> instances = new HashMap<>(
+                CurrentInstance.getInstances());
+        // The request may already have been recycled when the rows are fetched
+        instances.remove(VaadinRequest.class);
+        instances.remove(VaadinResponse.class);
+        return rows -> {
+            Map<Class<?>, CurrentInstance> oldInstances = CurrentInstance
+                    .getInstances();
+            CurrentInstance.clearAll();
+            CurrentInstance.restoreInstances(instances);
+            try {
+                return (List<T>) dataProvider
+                        .fetch(new Query(rows.getStart(), rows.length(),
+                                sortOrders, comparator, currentFilter))
+                        .collect(Collectors.toList());
+            } finally {
+                CurrentInstance.clearAll();
+                CurrentInstance.restoreInstances(oldInstances);
+            }
+        };
+    }
+
+    private ReadAheadCache<T> getReadAheadCache() {
+        if (readAheadCache == null) {
+            readAheadCache = new ReadAheadCache<>();
+        }
+        return readAheadCache;
+    }
+
+    /**
+     * Gets the executor used for fetching rows ahead of the rows requested by
+     * the client. Rows are only read ahead for data providers that are not in
+     * memory.
+     * <p>
+     * The default implementation uses the executor of the
+     * {@link VaadinService}, which is configured with
+     * {@link Constants#SERVLET_PARAMETER_DATA_READ_AHEAD_THREADS}.
+     * <p>
+     * Rows are read ahead without holding the session lock, with
+     * {@link UI#getCurrent()}, {@link VaadinSession#getCurrent()} and
+     * {@link VaadinService#getCurrent()} set as when the rows were requested,
+     * but without a current request or response.
+     *
+     * @return the executor to use, or <code>null</code> to only fetch the rows
+     *         requested by the client
+     * @since 8.0
+     */
+    protected Executor getReadAheadExecutor() {
+        UI ui = getUI();
+        if (ui == null || ui.getSession() == null
+                || ui.getSession().getService() == null) {
+            return null;
+        }
+        return ui.getSession().getService().getReadAheadExecutor();
+    }
+
+    /**
+     * Gets the number of row requests that were served from rows read ahead.
+     *
+     * @return the number of read-ahead hits
+     * @since 8.0
+     */
+    public long getReadAheadHitCount() {
+        return readAheadCache == null ? 0 : readAheadCache.getHitCount();
+    }
+
+    /**
+     * Gets the number of row requests that had to be fetched when requested
+     * although rows are read ahead.
+     *
+     * @return the number of read-ahead misses
+     * @since 8.0
+     */
+    public long getReadAheadMissCount() {
+        return readAheadCache == null ? 0 : readAheadCache.getMissCount();
+    }
+
+    /**
+     * Gets the share of row requests that were served from rows read ahead.
+     *
+     * @return the hit ratio between 0 and 1, or 0 if rows have not been read
+     *         ahead
+     * @since 8.0
+     */
+    public double getReadAheadHitRatio() {
+        long hits = getReadAheadHitCount();
+        long total = hits + getReadAheadMissCount();
+        return total == 0 ? 0 : hits / (double) total;
+    }
+
+    @SuppressWarnings({ "rawtypes", "unchecked" })
+    private FetchResult<T> fetchWithSize(Range rows) {
+        return getDataProvider().fetchWithSize(new Query(rows.getStart(),
+                rows.length(), backEndSorting, inMemorySorting, filter));
+    }
+
+    /**
+     * Grows or shrinks the scroll range of the client when the data provider
+     * only gives an estimated or unknown size.
+     */
+    private void updateEstimatedSize(Range requestedRows,
+            FetchResult<T> result) {
+        int newSize;
+        if (result.isSizeExact()) {
+            newSize = result.getSize();
+            sizeExact = true;
+        } else {
+            newSize = estimateSize(requestedRows, result, clientSize);
+        }
+
+        if (newSize > clientSize) {
+            rpc.insertRows(clientSize, newSize - clientSize);
+        } else if (newSize < clientSize) {
+            rpc.removeRows(newSize, clientSize - newSize);
+        }
+        clientSize = newSize;
+    }
+
+    /**
+     * Estimates the size from a result without an exact size. A page shorter
+     * than requested marks the end of the items. Otherwise the estimate is kept
+     * at least one push ahead of the fetched rows so that the client keeps
+     * requesting more rows when scrolled to the end.
+     */
+    private int estimateSize(Range requestedRows, FetchResult<T> result,
+            int currentSize) {
+        int end = requestedRows.getStart() + result.getItems().size();
+        if (!requestedRows.isEmpty()
+                && result.getItems().size() < requestedRows.length()) {
+            sizeExact = true;
+            return end;
+        }
+        return Math.max(Math.max(result.getSize(), currentSize),
+                end + minPushSize);
+    }
+
     /**
      * Adds a data generator to this data communicator. Data generators can be
      * used to insert custom data to the rows sent to the client. If the data
@@ -489,6 +685,12 @@ public class DataCommunicator<T> extends AbstractExtension {
      *            updated data object
      */
     public void refresh(T data) {
+        if (readAheadCache != null) {
+            // Rows read ahead but not sent yet may contain a stale instance
+            // of the item
+            readAheadCache.clear();
+        }
+
         if (!handler.getActiveData().contains(data)) {
             // Item is not currently available at the client-side
             return;
@@ -557,12 +759,14 @@ public class DataCommunicator<T> extends AbstractExtension {
     /**
      * Creates a {@link DataKeyMapper} to use with this DataCommunicator.
      * <p>
-     * This method is called from the constructor.
+     * This method is called from the constructor. The default implementation
+     * creates an {@link IdentifierKeyMapper} that maps data objects by the
+     * identifiers given by the current data provider.
      *
      * @return key mapper
      */
     protected DataKeyMapper<T> createKeyMapper() {
-        return new KeyMapper<>();
+        return new IdentifierKeyMapper<>(item -> getDataProvider().getId(item));
     }
 
     /**
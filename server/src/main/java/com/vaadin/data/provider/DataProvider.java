@@ -18,6 +18,8 @@ package com.vaadin.data.provider;
 import java.io.Serializable;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
 import java.util.Objects;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
@@ -89,6 +91,29 @@ public interface DataProvider<T, F> extends Serializable {
      */
     Stream<T> fetch(Query<T, F> query);
 
+    /**
+     * Fetches a page of data from this DataProvider together with the total
+     * number of items matching the filter of the given {@code query}. Back end
+     * data providers can override this to get both with a single query, and to
+     * return an estimated or unknown size when counting the items is too
+     * expensive.
+     * <p>
+     * The default implementation calls {@link #size(Query)} with a query that
+     * only has the filter of the given query, and {@link #fetch(Query)},
+     * skipping the fetch if the limit of the query is zero.
+     *
+     * @param query
+     *            given query to request data
+     * @return the fetched items and their total number, not {@code null}
+     * @since 8.0
+     */
+    public default FetchResult<T> fetchWithSize(Query<T, F> query) {
+        int size = size(new Query<>(query.getFilter().orElse(null)));
+        List<T> items = query.getLimit() == 0 ? Collections.emptyList()
+                : fetch(query).collect(Collectors.toList());
+        return FetchResult.withSize(items, size);
+    }
+
     /**
      * Refreshes the given item. This method should be used to inform all
      * {@link DataProviderListener DataProviderListeners} that an item has been
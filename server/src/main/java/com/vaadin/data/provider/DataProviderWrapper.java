@@ -92,6 +92,13 @@ public abstract class DataProviderWrapper<T, F, M>
                 t.getSortOrders(), t.getInMemorySorting(), getFilter(t)));
     }
 
+    @Override
+    public FetchResult<T> fetchWithSize(Query<T, F> t) {
+        return dataProvider.fetchWithSize(new Query<>(t.getOffset(),
+                t.getLimit(), t.getSortOrders(), t.getInMemorySorting(),
+                getFilter(t)));
+    }
+
     /**
      * Gets the filter that should be used in the modified Query.
      *
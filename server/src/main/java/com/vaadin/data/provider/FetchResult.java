@@ -0,0 +1,139 @@
+/*
+ * Copyright 2000-2016 Vaadin Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.vaadin.data.provider;
+
+import java.io.Serializable;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * A page of items fetched from a data provider together with the total number
+ * of items matching the query. The total is either exact, an estimate or
+ * unknown; an estimated or unknown total is only used as a hint for how far the
+ * user can scroll, and the scroll range is grown as more pages are fetched.
+ *
+ * @see DataProvider#fetchWithSize(Query)
+ *
+ * @author Vaadin Ltd
+ * @since 8.0
+ *
+ * @param <T>
+ *            the type of the items
+ */
+public class FetchResult<T> implements Serializable {
+
+    private final List<T> items;
+    private final int size;
+    private final boolean sizeExact;
+    private final boolean sizeKnown;
+
+    private FetchResult(List<T> items, int size, boolean sizeExact,
+            boolean sizeKnown) {
+        Objects.requireNonNull(items, "Items cannot be null");
+        if (size < 0) {
+            throw new IllegalArgumentException(
+                    "Size cannot be negative: " + size);
+        }
+        this.items = Collections.unmodifiableList(items);
+        this.size = size;
+        this.sizeExact = sizeExact;
+        this.sizeKnown = sizeKnown;
+    }
+
+    /**
+     * Creates a result with the exact number of items matching the query.
+     *
+     * @param items
+     *            the fetched items, not <code>null</code>
+     * @param size
+     *            the total number of items matching the query
+     * @return the result
+     */
+    public static <T> FetchResult<T> withSize(List<T> items, int size) {
+        return new FetchResult<>(items, size, true, true);
+    }
+
+    /**
+     * Creates a result with an estimate of the number of items matching the
+     * query, e.g. from the query planner of a database.
+     *
+     * @param items
+     *            the fetched items, not <code>null</code>
+     * @param estimatedSize
+     *            the estimated total number of items matching the query
+     * @return the result
+     */
+    public static <T> FetchResult<T> withEstimatedSize(List<T> items,
+            int estimatedSize) {
+        return new FetchResult<>(items, estimatedSize, false, true);
+    }
+
+    /**
+     * Creates a result without any information about the number of items
+     * matching the query. The end of the items is detected when a page shorter
+     * than the limit of the query is fetched.
+     *
+     * @param items
+     *            the fetched items, not <code>null</code>
+     * @return the result
+     */
+    public static <T> FetchResult<T> withUnknownSize(List<T> items) {
+        return new FetchResult<>(items, 0, false, false);
+    }
+
+    /**
+     * Gets the fetched items.
+     *
+     * @return an unmodifiable list of the fetched items
+     */
+    public List<T> getItems() {
+        return items;
+    }
+
+    /**
+     * Gets the total number of items matching the query. If the size is not
+     * exact, this is an estimate, or <code>0</code> if the size is unknown.
+     *
+     * @see #isSizeKnown()
+     * @return the total number of items
+     */
+    public int getSize() {
+        return size;
+    }
+
+    /**
+     * Gets whether the total number of items is exact.
+     *
+     * @return <code>true</code> if the size is exact, <code>false</code> if it
+     *         is an estimate or unknown
+     */
+    public boolean isSizeExact() {
+        return sizeExact;
+    }
+
+    /**
+     * Gets whether the result contains any information about the total number
+     * of items. An estimated size of <code>0</code> is known, whereas a result
+     * created using {@link #withUnknownSize(List)} is not.
+     *
+     * @return <code>true</code> if the size is exact or estimated,
+     *         <code>false</code> if it is unknown
+     */
+    public boolean isSizeKnown() {
+        return sizeKnown;
+    }
+}
@@ -0,0 +1,228 @@
+/*
+ * Copyright 2000-2016 Vaadin Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.vaadin.data.provider;
+
+import java.io.Serializable;
+import java.util.HashMap;
+import java.util.Objects;
+
+import com.vaadin.data.ValueProvider;
+import com.vaadin.server.KeyMapper;
+
+/**
+ * A {@link DataKeyMapper} that maps data objects by their identifiers, as
+ * given by {@link DataProvider#getId(Object)}, instead of by the equality of
+ * the objects themselves. This makes {@link #refresh(Object, ValueProvider)} a
+ * constant time operation instead of a scan through all mapped objects.
+ * <p>
+ * Keys are stored as <code>int</code> values in an open addressing hash table
+ * and only formatted as strings when requested, so no key strings are kept in
+ * memory.
+ * <p>
+ * Unlike {@link KeyMapper}, two different data objects with the same
+ * identifier are mapped to the same key. The identifier getter given to
+ * {@link #refresh(Object, ValueProvider)} should return the same identifiers
+ * as the identifier getter of this mapper.
+ *
+ * @author Vaadin Ltd
+ * @since 8.0
+ *
+ * @param <T>
+ *            the type of the data objects
+ */
+public class IdentifierKeyMapper<T> implements DataKeyMapper<T> {
+
+    private static final class Mapping<T> implements Serializable {
+        private final int key;
+        private final Object id;
+        private T object;
+
+        private Mapping(int key, Object id, T object) {
+            this.key = key;
+            this.id = id;
+            this.object = object;
+        }
+    }
+
+    private static final int INITIAL_CAPACITY = 16;
+
+    private final ValueProvider<T, Object> identifierGetter;
+
+    private int lastKey = 0;
+
+    private final HashMap<Object, Mapping<T>> idMap = new HashMap<>();
+
+    /*
+     * Open addressing hash table with linear probing, indexed by key. The
+     * length is a power of two and at most half of the slots are used.
+     */
+    private Mapping<T>[] keyTable = newTable(INITIAL_CAPACITY);
+
+    /**
+     * Creates a new key mapper using the given identifier getter.
+     *
+     * @param identifierGetter
+     *            the function to get an identifier from a data object, not
+     *            <code>null</code>
+     */
+    public IdentifierKeyMapper(ValueProvider<T, Object> identifierGetter) {
+        this.identifierGetter = Objects.requireNonNull(identifierGetter,
+                "Identifier getter cannot be null");
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> Mapping<T>[] newTable(int capacity) {
+        return new Mapping[capacity];
+    }
+
+    @Override
+    public String key(T dataObject) {
+        if (dataObject == null) {
+            return "null";
+        }
+
+        Object id = identifierGetter.apply(dataObject);
+        Mapping<T> mapping = idMap.get(id);
+        if (mapping == null) {
+            mapping = new Mapping<>(++lastKey, id, dataObject);
+            idMap.put(id, mapping);
+            insert(mapping);
+        }
+        return String.valueOf(mapping.key);
+    }
+
+    @Override
+    public T get(String key) {
+        int intKey;
+        try {
+            intKey = Integer.parseInt(key);
+        } catch (NumberFormatException e) {
+            return null;
+        }
+        Mapping<T> mapping = find(intKey);
+        return mapping == null ? null : mapping.object;
+    }
+
+    @Override
+    public void remove(T dataObject) {
+        if (dataObject == null) {
+            return;
+        }
+        Mapping<T> mapping = idMap
+                .remove(identifierGetter.apply(dataObject));
+        if (mapping != null) {
+            delete(mapping.key);
+        }
+    }
+
+    @Override
+    public void removeAll() {
+        idMap.clear();
+        keyTable = newTable(INITIAL_CAPACITY);
+    }
+
+    /**
+     * Checks if the given key is mapped to a data object.
+     *
+     * @param key
+     *            the key to check
+     * @return <code>true</code> if the key is currently mapped,
+     *         <code>false</code> otherwise
+     */
+    public boolean containsKey(String key) {
+        return get(key) != null;
+    }
+
+    /**
+     * Gets the number of mapped data objects.
+     *
+     * @return the number of mapped data objects
+     */
+    public int size() {
+        return idMap.size();
+    }
+
+    @Override
+    public void refresh(T dataObject,
+            ValueProvider<T, Object> identifierGetter) {
+        Mapping<T> mapping = idMap.get(identifierGetter.apply(dataObject));
+        if (mapping != null) {
+            mapping.object = dataObject;
+        }
+    }
+
+    private static int slot(int key, int mask) {
+        // Keys are sequential, so spread them over the table
+        int hash = key * 0x9E3779B9;
+        return (hash ^ hash >>> 16) & mask;
+    }
+
+    private Mapping<T> find(int key) {
+        int mask = keyTable.length - 1;
+        for (int i = slot(key, mask);; i = i + 1 & mask) {
+            Mapping<T> mapping = keyTable[i];
+            if (mapping == null || mapping.key == key) {
+                return mapping;
+            }
+        }
+    }
+
+    private void insert(Mapping<T> mapping) {
+        if (idMap.size() * 2 > keyTable.length) {
+            Mapping<T>[] oldTable = keyTable;
+            keyTable = newTable(oldTable.length * 2);
+            for (Mapping<T> old : oldTable) {
+                if (old != null) {
+                    place(old);
+                }
+            }
+        }
+        place(mapping);
+    }
+
+    private void place(Mapping<T> mapping) {
+        int mask = keyTable.length - 1;
+        int i = slot(mapping.key, mask);
+        while (keyTable[i] != null) {
+            i = i + 1 & mask;
+        }
+        keyTable[i] = mapping;
+    }
+
+    private void delete(int key) {
+        int mask = keyTable.length - 1;
+        int i = slot(key, mask);
+        while (keyTable[i] != null && keyTable[i].key != key) {
+            i = i + 1 & mask;
+        }
+        if (keyTable[i] == null) {
+            return;
+        }
+        keyTable[i] = null;
+
+        // Move back the following mappings that can no longer be reached
+        for (int j = i + 1 & mask; keyTable[j] != null; j = j + 1 & mask) {
+            int home = slot(keyTable[j].key, mask);
+            boolean reachable = i <= j ? i < home && home <= j
+                    : i < home || home <= j;
+            if (!reachable) {
+                keyTable[i] = keyTable[j];
+                keyTable[j] = null;
+                i = j;
+            }
+        }
+    }
+}
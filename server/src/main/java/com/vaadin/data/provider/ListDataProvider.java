@@ -15,11 +15,11 @@
  */
 package com.vaadin.data.provider;
 
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Comparator;
 import java.util.Locale;
 import java.util.Objects;
-import java.util.Optional;
 import java.util.stream.Stream;
 
 import com.vaadin.data.ValueProvider;
@@ -41,6 +41,12 @@ public class ListDataProvider<T>
         extends AbstractDataProvider<T, SerializablePredicate<T>> implements
         ConfigurableFilterDataProvider<T, SerializablePredicate<T>, SerializablePredicate<T>> {
 
+    /**
+     * The minimum number of items for sorting in parallel when
+     * {@link #setParallelSorting(boolean) parallel sorting} is enabled.
+     */
+    private static final int PARALLEL_SORT_THRESHOLD = 1 << 13;
+
     private static final SerializableSupplier<Locale> CURRENT_LOCALE_SUPPLIER = () -> {
         UI currentUi = UI.getCurrent();
         if (currentUi != null) {
@@ -56,11 +62,23 @@ public class ListDataProvider<T>
 
     private final Collection<T> backend;
 
+    private boolean parallelSorting = false;
+
+    private boolean itemCaching = false;
+
+    /*
+     * The filtered and sorted items of the latest query if item caching is
+     * enabled. Cleared by refreshAll(), which is also called when the filter or
+     * the default sorting of this data provider changes.
+     */
+    private transient volatile View<T> view;
+
     /**
      * Constructs a new ListDataProvider.
      * <p>
      * No protective copy is made of the list, and changes in the provided
-     * backing Collection will be visible via this data provider. The caller
+     * backing Collection will be visible via this data provider, unless
+     * {@link #setItemCaching(boolean) item caching} is enabled. The caller
      * should copy the list if necessary.
      *
      * @param items
@@ -83,18 +101,16 @@ public class ListDataProvider<T>
 
     @Override
     public Stream<T> fetch(Query<T, SerializablePredicate<T>> query) {
-        Stream<T> stream = getFilteredStream(query);
-
-        Optional<Comparator<T>> comparing = Stream
-                .of(query.getInMemorySorting(), sortOrder)
-                .filter(c -> c != null)
-                .reduce((c1, c2) -> c1.thenComparing(c2));
-
-        if (comparing.isPresent()) {
-            stream = stream.sorted(comparing.get());
+        if (!itemCaching) {
+            return fetchFromBackend(query);
         }
 
-        return stream.skip(query.getOffset()).limit(query.getLimit());
+        View<T> view = getView(query, true);
+
+        int from = Math.min(query.getOffset(), view.items.length);
+        int to = (int) Math.min((long) from + query.getLimit(),
+                view.items.length);
+        return Arrays.stream(view.items, from, to);
     }
 
     @Override
@@ -104,7 +120,119 @@ public class ListDataProvider<T>
 
     @Override
     public int size(Query<T, SerializablePredicate<T>> query) {
-        return (int) getFilteredStream(query).count();
+        if (!itemCaching) {
+            return (int) getFilteredStream(query).count();
+        }
+        return getView(query, false).items.length;
+    }
+
+    @Override
+    public void refreshAll() {
+        view = null;
+        super.refreshAll();
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * If {@link #setItemCaching(boolean) item caching} is enabled, the cached
+     * filtered and sorted items are updated for the refreshed item without
+     * filtering and sorting all items again.
+     */
+    @Override
+    public void refreshItem(T item) {
+        View<T> current = view;
+        if (current != null) {
+            view = current.refresh(item, this);
+        }
+        super.refreshItem(item);
+    }
+
+    /**
+     * Sets whether to cache the filtered and sorted items of the latest query,
+     * so that fetching consecutive pages with the same filter and sorting does
+     * not filter and sort all items again for each page.
+     * <p>
+     * With item caching enabled, changes to the backing collection and to the
+     * items in it are only guaranteed to be visible after calling
+     * {@link #refreshAll()}, or {@link #refreshItem(Object)} for a changed
+     * item. A change in the size of the backing collection is detected
+     * automatically, but e.g. replacing an item, or removing one item and
+     * adding another one, is not. Item caching is disabled by default.
+     *
+     * @param itemCaching
+     *            <code>true</code> to cache the filtered and sorted items,
+     *            <code>false</code> to filter and sort the items for each
+     *            query
+     */
+    public void setItemCaching(boolean itemCaching) {
+        this.itemCaching = itemCaching;
+        view = null;
+    }
+
+    /**
+     * Gets whether the filtered and sorted items of the latest query are
+     * cached.
+     *
+     * @see #setItemCaching(boolean)
+     *
+     * @return <code>true</code> if the items are cached, otherwise
+     *         <code>false</code>
+     */
+    public boolean isItemCaching() {
+        return itemCaching;
+    }
+
+    /**
+     * Sets whether to sort large collections using
+     * {@link Arrays#parallelSort(Object[], Comparator)} instead of sorting
+     * them in the current thread. Parallel sorting runs the sort comparators
+     * in the common fork join pool, so it should only be used with comparators
+     * that do not depend on thread local state such as {@link UI#getCurrent()}.
+     * Parallel sorting is disabled by default.
+     *
+     * @param parallelSorting
+     *            <code>true</code> to sort large collections in parallel,
+     *            <code>false</code> to always sort in the current thread
+     */
+    public void setParallelSorting(boolean parallelSorting) {
+        this.parallelSorting = parallelSorting;
+    }
+
+    /**
+     * Gets whether large collections are sorted in parallel.
+     *
+     * @see #setParallelSorting(boolean)
+     *
+     * @return <code>true</code> if large collections are sorted in parallel,
+     *         otherwise <code>false</code>
+     */
+    public boolean isParallelSorting() {
+        return parallelSorting;
+    }
+
+    /**
+     * Fetches the items for the given query directly from the backing
+     * collection without caching them.
+     */
+    private Stream<T> fetchFromBackend(
+            Query<T, SerializablePredicate<T>> query) {
+        Comparator<T> comparator = getComparator(query.getInMemorySorting());
+
+        Stream<T> stream;
+        if (comparator != null && parallelSorting) {
+            // Sorting buffers all items anyway, so sort them as an array
+            T[] items = filter(query.getFilter().orElse(null));
+            sort(items, comparator, true);
+            stream = Arrays.stream(items);
+        } else {
+            stream = getFilteredStream(query);
+            if (comparator != null) {
+                stream = stream.sorted(comparator);
+            }
+        }
+
+        return stream.skip(query.getOffset()).limit(query.getLimit());
     }
 
     private Stream<T> getFilteredStream(
@@ -122,6 +250,169 @@ public class ListDataProvider<T>
         return stream;
     }
 
+    private static <T> void sort(T[] items, Comparator<T> comparator,
+            boolean parallel) {
+        if (parallel && items.length >= PARALLEL_SORT_THRESHOLD) {
+            Arrays.parallelSort(items, comparator);
+        } else {
+            Arrays.sort(items, comparator);
+        }
+    }
+
+    /**
+     * Gets the cached items for the given query when item caching is enabled.
+     * The items are filtered and sorted again only if the cached items are for
+     * a different query filter or sorting.
+     */
+    private View<T> getView(Query<T, SerializablePredicate<T>> query,
+            boolean sorted) {
+        SerializablePredicate<T> queryFilter = query.getFilter().orElse(null);
+        Comparator<T> inMemorySorting = query.getInMemorySorting();
+        Comparator<T> comparator = getComparator(inMemorySorting);
+
+        View<T> current = view;
+        if (current == null || current.queryFilter != queryFilter
+                || current.backendSize != backend.size()
+                || sorted && current.comparator != null
+                        && (comparator == null
+                                || current.inMemorySorting != inMemorySorting)) {
+            // Always sort unsorted items to keep the order of equal items
+            current = new View<>(filter(queryFilter), queryFilter,
+                    backend.size());
+        }
+        if (sorted && comparator != null && current.comparator == null) {
+            current = current.sort(inMemorySorting, comparator,
+                    parallelSorting);
+        }
+        view = current;
+        return current;
+    }
+
+    private Comparator<T> getComparator(Comparator<T> inMemorySorting) {
+        if (inMemorySorting == null) {
+            return sortOrder;
+        } else if (sortOrder == null) {
+            return inMemorySorting;
+        } else {
+            return inMemorySorting.thenComparing(sortOrder);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private T[] filter(SerializablePredicate<T> queryFilter) {
+        return (T[]) backend.stream().filter(item -> test(item, queryFilter))
+                .toArray();
+    }
+
+    private boolean test(T item, SerializablePredicate<T> queryFilter) {
+        // Apply our own filters first so that query filters never see the items
+        // that would already have been filtered out
+        return (filter == null || filter.test(item))
+                && (queryFilter == null || queryFilter.test(item));
+    }
+
+    /**
+     * The filtered and possibly sorted items for one query filter and sorting.
+     * Instances are not modified after they have been created, so that a data
+     * provider shared between sessions can be used concurrently.
+     */
+    private static final class View<T> {
+        private final T[] items;
+        private final SerializablePredicate<T> queryFilter;
+        private final int backendSize;
+        private final Comparator<T> inMemorySorting;
+        // The comparator used for sorting or null if not sorted
+        private final Comparator<T> comparator;
+
+        private View(T[] items, SerializablePredicate<T> queryFilter,
+                int backendSize) {
+            this(items, queryFilter, backendSize, null, null);
+        }
+
+        private View(T[] items, SerializablePredicate<T> queryFilter,
+                int backendSize, Comparator<T> inMemorySorting,
+                Comparator<T> comparator) {
+            this.items = items;
+            this.queryFilter = queryFilter;
+            this.backendSize = backendSize;
+            this.inMemorySorting = inMemorySorting;
+            this.comparator = comparator;
+        }
+
+        private View<T> sort(Comparator<T> inMemorySorting,
+                Comparator<T> comparator, boolean parallel) {
+            T[] sorted = items.clone();
+            ListDataProvider.sort(sorted, comparator, parallel);
+            return new View<>(sorted, queryFilter, backendSize,
+                    inMemorySorting, comparator);
+        }
+
+        /**
+         * Returns a view with the given item moved to where it belongs based
+         * on its current values, or null if the position cannot be determined
+         * without filtering all items again.
+         */
+        private View<T> refresh(T item, ListDataProvider<T> provider) {
+            Object id = provider.getId(item);
+            int oldIndex = -1;
+            for (int i = 0; i < items.length; i++) {
+                if (Objects.equals(id, provider.getId(items[i]))) {
+                    oldIndex = i;
+                    break;
+                }
+            }
+            boolean included = provider.test(item, queryFilter);
+            if (comparator == null) {
+                if (oldIndex == -1) {
+                    // Position in the backend collection is not known
+                    return included ? null : this;
+                }
+                T[] refreshed;
+                if (included) {
+                    refreshed = items.clone();
+                    refreshed[oldIndex] = item;
+                } else {
+                    refreshed = remove(items, oldIndex);
+                }
+                return new View<>(refreshed, queryFilter, backendSize);
+            }
+
+            T[] refreshed = oldIndex == -1 ? items : remove(items, oldIndex);
+            if (included) {
+                refreshed = insert(refreshed, item);
+            } else if (refreshed == items) {
+                return this;
+            }
+            return new View<>(refreshed, queryFilter, backendSize,
+                    inMemorySorting, comparator);
+        }
+
+        private static <T> T[] remove(T[] items, int index) {
+            T[] result = Arrays.copyOf(items, items.length - 1);
+            System.arraycopy(items, index + 1, result, index,
+                    items.length - index - 1);
+            return result;
+        }
+
+        private T[] insert(T[] items, T item) {
+            // Insert after any equal items
+            int low = 0;
+            int high = items.length;
+            while (low < high) {
+                int middle = (low + high) >>> 1;
+                if (comparator.compare(items[middle], item) <= 0) {
+                    low = middle + 1;
+                } else {
+                    high = middle;
+                }
+            }
+            T[] result = Arrays.copyOf(items, items.length + 1);
+            System.arraycopy(items, low, result, low + 1, items.length - low);
+            result[low] = item;
+            return result;
+        }
+    }
+
     /**
      * Sets the comparator to use as the default sorting for this data provider.
      * This overrides the sorting set by any other method that manipulates the
@@ -0,0 +1,269 @@
+/*
+ * Copyright 2000-2016 Vaadin Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.vaadin.data.provider;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import com.vaadin.shared.Range;
+
+/**
+ * A bounded cache of pages of items fetched ahead of the rows requested by
+ * the client of a {@link DataCommunicator}. The direction and speed of
+ * scrolling are tracked from the row requests, and the next window in the
+ * scrolling direction is fetched in the background. Row requests that are
+ * fully covered by fetched pages are then served from memory.
+ * <p>
+ * The pages are only accessed while holding the session lock. The background
+ * fetches only complete the futures of their pages, so a cleared page that is
+ * still being fetched is simply discarded when done. A page whose fetch is
+ * still waiting for a free thread of the executor is not waited for, since
+ * the executor may be busy reading ahead for other sessions; the requested
+ * rows are then fetched right away instead.
+ *
+ * @author Vaadin Ltd
+ * @since 8.0
+ *
+ * @param <T>
+ *            the type of the items
+ */
+class ReadAheadCache<T> {
+
+    /**
+     * The maximum number of pages to keep, including pages being fetched.
+     */
+    static final int MAX_PAGES = 8;
+
+    /**
+     * The maximum number of rows to fetch ahead at a time.
+     */
+    static final int MAX_READ_AHEAD_ROWS = 1000;
+
+    /**
+     * Rows are fetched ahead for this many milliseconds of scrolling at the
+     * current speed.
+     */
+    private static final double READ_AHEAD_MILLIS = 1000;
+
+    private static class Page<T> {
+        private final Range range;
+        private CompletableFuture<List<T>> items;
+        private volatile boolean started;
+
+        private Page(Range range) {
+            this.range = range;
+        }
+    }
+
+    /**
+     * The pages in the order they were fetched, oldest first.
+     */
+    private final LinkedList<Page<T>> pages = new LinkedList<>();
+
+    private int lastStart = -1;
+    private long lastRequestTime;
+    private boolean forward = true;
+    private double rowsPerMilli;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong readAheads = new AtomicLong();
+
+    /**
+     * Gets the items of the given rows if all of them have been fetched ahead.
+     * Waits for a page that is still being fetched, but not for a page whose
+     * fetch has not started yet.
+     *
+     * @param rows
+     *            the requested rows, not empty
+     * @return the items of the rows, or <code>null</code> if not all of them
+     *         are in the cache
+     */
+    List<T> get(Range rows) {
+        List<T> items = new ArrayList<>(rows.length());
+        int index = rows.getStart();
+        while (index < rows.getEnd()) {
+            Page<T> page = findPage(index);
+            List<T> pageItems = page == null ? null : getItems(page);
+            if (pageItems == null) {
+                misses.incrementAndGet();
+                return null;
+            }
+            int pageStart = page.range.getStart();
+            int end = Math.min(rows.getEnd(),
+                    pageStart + pageItems.size());
+            if (end <= index) {
+                // The page ended before the requested row
+                misses.incrementAndGet();
+                return null;
+            }
+            items.addAll(pageItems.subList(index - pageStart, end - pageStart));
+            index = end;
+        }
+        hits.incrementAndGet();
+        return items;
+    }
+
+    private Page<T> findPage(int index) {
+        for (Page<T> page : pages) {
+            if (page.range.contains(index)) {
+                return page;
+            }
+        }
+        return null;
+    }
+
+    private List<T> getItems(Page<T> page) {
+        if (!page.items.isDone() && !page.started) {
+            // Still queued, so fetching the rows now is faster. The queued
+            // fetch is skipped when its turn comes.
+            page.items.cancel(false);
+            pages.remove(page);
+            return null;
+        }
+        try {
+            return page.items.join();
+        } catch (RuntimeException e) {
+            pages.remove(page);
+            getLogger().log(Level.FINE, "Reading rows ahead failed", e);
+            return null;
+        }
+    }
+
+    /**
+     * Records a row request and starts fetching the next window in the
+     * scrolling direction unless it is already cached or being fetched.
+     *
+     * @param requested
+     *            the rows requested by the client
+     * @param size
+     *            the number of rows in the client
+     * @param fetcher
+     *            function that fetches the items of a range of rows, called
+     *            in a background thread
+     * @param executor
+     *            the executor to fetch the items with
+     */
+    void readAhead(Range requested, int size,
+            Function<Range, List<T>> fetcher, Executor executor) {
+        long now = System.currentTimeMillis();
+        if (lastStart >= 0 && requested.getStart() != lastStart) {
+            forward = requested.getStart() > lastStart;
+            double speed = Math.abs(requested.getStart() - lastStart)
+                    / (double) Math.max(1, now - lastRequestTime);
+            rowsPerMilli = (rowsPerMilli + speed) / 2;
+        }
+        lastStart = requested.getStart();
+        lastRequestTime = now;
+
+        Range window = nextWindow(requested, size);
+        if (window.isEmpty()) {
+            return;
+        }
+        for (Page<T> page : pages) {
+            if (!page.items.isDone()) {
+                // Only one window is fetched at a time
+                return;
+            }
+        }
+
+        Page<T> page = new Page<>(window);
+        try {
+            page.items = CompletableFuture.supplyAsync(() -> {
+                page.started = true;
+                return fetcher.apply(window);
+            }, executor);
+        } catch (RejectedExecutionException e) {
+            getLogger().log(Level.FINE, "Could not read rows ahead", e);
+            return;
+        }
+        pages.add(page);
+        readAheads.incrementAndGet();
+        while (pages.size() > MAX_PAGES) {
+            pages.removeFirst();
+        }
+    }
+
+    private Range nextWindow(Range requested, int size) {
+        int length = (int) Math.min(MAX_READ_AHEAD_ROWS, Math.max(
+                requested.length(), rowsPerMilli * READ_AHEAD_MILLIS));
+        if (forward) {
+            int start = requested.getEnd();
+            Page<T> page;
+            while ((page = findPage(start)) != null) {
+                start = page.range.getEnd();
+            }
+            return Range.between(Math.min(start, size),
+                    Math.min(start + length, size));
+        } else {
+            int end = requested.getStart();
+            Page<T> page;
+            while (end > 0 && (page = findPage(end - 1)) != null) {
+                end = page.range.getStart();
+            }
+            return Range.between(Math.max(0, end - length), end);
+        }
+    }
+
+    /**
+     * Removes all pages, e.g. when the data, the filter or the sorting has
+     * changed.
+     */
+    void clear() {
+        pages.clear();
+    }
+
+    /**
+     * Gets the number of row requests served from the cache.
+     *
+     * @return the number of hits
+     */
+    long getHitCount() {
+        return hits.get();
+    }
+
+    /**
+     * Gets the number of row requests that had to be fetched when they were
+     * requested.
+     *
+     * @return the number of misses
+     */
+    long getMissCount() {
+        return misses.get();
+    }
+
+    /**
+     * Gets the number of windows fetched ahead.
+     *
+     * @return the number of read-aheads
+     */
+    long getReadAheadCount() {
+        return readAheads.get();
+    }
+
+    private static Logger getLogger() {
+        return Logger.getLogger(ReadAheadCache.class.getName());
+    }
+}
@@ -0,0 +1,44 @@
+/*
+ * Copyright 2000-2016 Vaadin Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.vaadin.server;
+
+import java.io.IOException;
+
+/**
+ * Thrown by a request handler that has abandoned a response after part of it
+ * has already been sent to the client. {@link VaadinService} does not write an
+ * error response in this case, since it would be appended to the partial
+ * response. The exception is instead propagated to the container, which
+ * closes the connection so that the client sees a failed request.
+ *
+ * @author Vaadin Ltd
+ * @since 8.0
+ */
+@SuppressWarnings("serial")
+public class AbortedResponseException extends IOException {
+
+    /**
+     * Creates a new exception with the given message and cause.
+     *
+     * @param message
+     *            the detail message
+     * @param cause
+     *            the exception that caused the response to be abandoned
+     */
+    public AbortedResponseException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
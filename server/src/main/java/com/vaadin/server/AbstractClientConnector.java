@@ -42,6 +42,7 @@ import com.vaadin.shared.communication.SharedState;
 import com.vaadin.shared.ui.ComponentStateUtil;
 import com.vaadin.ui.Component;
 import com.vaadin.ui.Component.Event;
+import com.vaadin.ui.ConnectorTracker;
 import com.vaadin.ui.HasComponents;
 import com.vaadin.ui.LegacyComponent;
 import com.vaadin.ui.UI;
@@ -263,14 +264,51 @@ public abstract class AbstractClientConnector
         }
         if (markAsDirty) {
             UI ui = getUI();
-            if (ui != null && !ui.getConnectorTracker().isDirty(this)
-                    && !ui.getConnectorTracker().isWritingResponse()) {
-                ui.getConnectorTracker().markDirty(this);
+            if (ui != null) {
+                ConnectorTracker connectorTracker = ui.getConnectorTracker();
+                // Connectors with only some dirty state fields are marked
+                // fully dirty
+                if ((!connectorTracker.isDirty(this) || connectorTracker
+                        .getDirtyStateFields(this) != null)
+                        && !connectorTracker.isWritingResponse()) {
+                    connectorTracker.markDirty(this);
+                }
             }
         }
         return sharedState;
     }
 
+    /**
+     * Marks a single property of the shared state of this connector as
+     * changed. Changing the state through {@code getState(false)} and then
+     * calling this method allows the framework to encode and send only the
+     * changed property instead of comparing the whole state to what was
+     * previously sent to the client:
+     *
+     * <pre>
+     * getState(false).caption = caption;
+     * markStateFieldDirty("caption");
+     * </pre>
+     *
+     * If the connector is also marked dirty in some other way, e.g. by calling
+     * {@link #getState()} or {@link #markAsDirty()}, the whole state is
+     * encoded.
+     *
+     * @since 8.0
+     * @param propertyName
+     *            the name of the changed property of the shared state, not
+     *            <code>null</code>
+     */
+    protected void markStateFieldDirty(String propertyName) {
+        assert getSession() == null
+                || getSession().hasLock() : buildLockAssertMessage(
+                        "markStateFieldDirty()");
+        UI uI = getUI();
+        if (uI != null) {
+            uI.getConnectorTracker().markStateFieldDirty(this, propertyName);
+        }
+    }
+
     @Override
     public JsonObject encodeState() {
         return LegacyCommunicationManager.encodeState(this, getState(false));
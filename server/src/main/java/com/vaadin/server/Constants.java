@@ -126,6 +126,136 @@ public interface Constants {
      */
     static final String SERVLET_PARAMETER_LEGACY_DESIGN_PREFIX = "legacyDesignPrefix";
 
+    /**
+     * Name of system or context property to keep the shared state last sent to
+     * the client as {@link TypedDiffState typed Java values} instead of JSON
+     * objects. The default value is <code>false</code>.
+     *
+     * @since 8.0
+     */
+    static final String SERVLET_PARAMETER_TYPED_DIFF_STATE = "typedDiffState";
+
+    /**
+     * Name of system or context property to gzip compress UIDL responses to
+     * clients that accept gzip encoding. The default value is
+     * <code>false</code>.
+     *
+     * @since 8.0
+     */
+    static final String SERVLET_PARAMETER_COMPRESS_UIDL_RESPONSES = "compressUidlResponses";
+
+    /**
+     * Name of system or context property for the minimum number of characters
+     * in a UIDL response for compressing it when
+     * {@link #SERVLET_PARAMETER_COMPRESS_UIDL_RESPONSES} is enabled. The
+     * default value is {@value #DEFAULT_COMPRESSION_THRESHOLD}.
+     *
+     * @since 8.0
+     */
+    static final String SERVLET_PARAMETER_COMPRESSION_THRESHOLD = "compressionThreshold";
+
+    /**
+     * The default minimum number of characters in a compressed UIDL response.
+     *
+     * @since 8.0
+     */
+    static final int DEFAULT_COMPRESSION_THRESHOLD = 2048;
+
+    /**
+     * Name of system or context property for the minimum time in milliseconds
+     * between two pushes to the same UI using automatic push mode. Changes
+     * made during that time are coalesced into one push. The default value is
+     * <code>0</code>, which pushes changes every time the session is unlocked.
+     *
+     * @see PushScheduler
+     * @since 8.0
+     */
+    static final String SERVLET_PARAMETER_PUSH_COALESCING_WINDOW = "pushCoalescingWindow";
+
+    /**
+     * Name of system or context property for the number of threads used for
+     * sending pushes deferred to the end of a
+     * {@link #SERVLET_PARAMETER_PUSH_COALESCING_WINDOW coalescing window}. The
+     * default value is {@value #DEFAULT_PUSH_COALESCING_THREADS}.
+     *
+     * @see PushScheduler
+     * @since 8.0
+     */
+    static final String SERVLET_PARAMETER_PUSH_COALESCING_THREADS = "pushCoalescingThreads";
+
+    /**
+     * The default number of threads sending deferred pushes.
+     *
+     * @since 8.0
+     */
+    static final int DEFAULT_PUSH_COALESCING_THREADS = 4;
+
+    /**
+     * Name of system or context property for the maximum number of pushed
+     * messages per UI that can wait to be sent to the client before the
+     * {@link #SERVLET_PARAMETER_PUSH_BACKPRESSURE_POLICY backpressure policy}
+     * is applied. The default value is
+     * {@value #DEFAULT_PUSH_OUTGOING_QUEUE_SIZE}.
+     *
+     * @since 8.0
+     */
+    static final String SERVLET_PARAMETER_PUSH_OUTGOING_QUEUE_SIZE = "pushOutgoingQueueSize";
+
+    /**
+     * The default maximum number of pushed messages waiting to be sent.
+     *
+     * @since 8.0
+     */
+    static final int DEFAULT_PUSH_OUTGOING_QUEUE_SIZE = 16;
+
+    /**
+     * Name of system or context property for what to do when a client does not
+     * receive pushed messages fast enough. The value is either
+     * <code>resync</code> (default) or <code>block</code>. Both close the push
+     * connection if the client does not catch up, since messages already
+     * queued for sending cannot be discarded otherwise.
+     *
+     * @see com.vaadin.server.communication.AtmospherePushConnection.BackpressurePolicy
+     * @since 8.0
+     */
+    static final String SERVLET_PARAMETER_PUSH_BACKPRESSURE_POLICY = "pushBackpressurePolicy";
+
+    /**
+     * Name of system or context property for whether UIDL requests for a
+     * session that is locked by another request should be put in asynchronous
+     * mode until the session is unlocked, instead of blocking a request thread
+     * while waiting for the lock. Requires the servlet to support asynchronous
+     * requests. The default value is <code>false</code>.
+     *
+     * @since 8.0
+     */
+    static final String SERVLET_PARAMETER_ASYNC_UIDL_REQUESTS = "asyncUidlRequests";
+
+    /**
+     * Name of system or context property for whether inactive UIs should be
+     * closed by a background {@link UIReaper} as soon as their heartbeat
+     * timeout expires, instead of at the end of the next request to their
+     * session. The default value is <code>false</code>.
+     *
+     * @since 8.0
+     */
+    static final String SERVLET_PARAMETER_UI_REAPER = "uiReaper";
+
+    /**
+     * Name of system or context property for the number of background threads
+     * used by data communicators for reading rows ahead of the rows requested
+     * by the client. The default value is <code>0</code>, which disables
+     * reading ahead.
+     * <p>
+     * Rows are read ahead without holding the session lock, and with only the
+     * current UI, session and service set, not the current request or
+     * response.
+     *
+     * @see VaadinService#getReadAheadExecutor()
+     * @since 8.0
+     */
+    static final String SERVLET_PARAMETER_DATA_READ_AHEAD_THREADS = "dataReadAheadThreads";
+
     // Configurable parameter names
     static final String PARAMETER_VAADIN_RESOURCES = "Resources";
 
@@ -21,6 +21,7 @@ import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import java.util.regex.Matcher;
@@ -57,7 +58,11 @@ public class GlobalResourceHandler implements RequestHandler {
     private final Map<ClientConnector, Set<Resource>> usedResources = new HashMap<>();
 
     private final Map<ConnectorResource, String> legacyResourceKeys = new HashMap<>();
-    private final Map<String, ConnectorResource> legacyResources = new HashMap<>();
+    /*
+     * Concurrent so that resources can be looked up without locking the
+     * session
+     */
+    private final Map<String, ConnectorResource> legacyResources = new ConcurrentHashMap<>();
     private int nextLegacyId = 0;
 
     // APP/global/[uiid]/[type]/[id]
@@ -86,28 +91,30 @@ public class GlobalResourceHandler implements RequestHandler {
             return error(request, response,
                     pathInfo + " is not a valid global resource path");
         }
+        // Find the resource without locking the session, so that requests for
+        // missing resources are not delayed by other requests
+        UI ui = session.getUIById(Integer.parseInt(uiid));
+        if (ui == null) {
+            return error(request, response, "No UI found for id  " + uiid);
+        }
+        ConnectorResource resource;
+        if (LEGACY_TYPE.equals(type)) {
+            resource = legacyResources.get(key);
+        } else {
+            return error(request, response, "Unknown global resource type "
+                    + type + " in requested path " + pathInfo);
+        }
+
+        if (resource == null) {
+            return error(request, response,
+                    "Global resource " + key + " not found");
+        }
+
         session.lock();
         Map<Class<?>, CurrentInstance> oldInstances = null;
         DownloadStream stream = null;
         try {
-            UI ui = session.getUIById(Integer.parseInt(uiid));
-            if (ui == null) {
-                return error(request, response, "No UI found for id  " + uiid);
-            }
             oldInstances = CurrentInstance.setCurrent(ui);
-            ConnectorResource resource;
-            if (LEGACY_TYPE.equals(type)) {
-                resource = legacyResources.get(key);
-            } else {
-                return error(request, response, "Unknown global resource type "
-                        + type + " in requested path " + pathInfo);
-            }
-
-            if (resource == null) {
-                return error(request, response,
-                        "Global resource " + key + " not found");
-            }
-
             stream = resource.getStream();
             if (stream == null) {
                 return error(request, response,
@@ -20,6 +20,9 @@ import java.beans.IntrospectionException;
 import java.beans.Introspector;
 import java.beans.PropertyDescriptor;
 import java.io.Serializable;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
 import java.lang.reflect.Array;
 import java.lang.reflect.Field;
 import java.lang.reflect.GenericArrayType;
@@ -35,6 +38,7 @@ import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.Objects;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
@@ -56,6 +60,7 @@ import elemental.json.JsonString;
 import elemental.json.JsonType;
 import elemental.json.JsonValue;
 import elemental.json.impl.JreJsonArray;
+import elemental.json.impl.JsonUtil;
 
 /**
  * Decoder for converting RPC parameters and other values from JSON in transfer
@@ -206,6 +211,12 @@ public class JsonCodec implements Serializable {
      */
     private static final ConcurrentMap<Class<?>, Collection<BeanProperty>> typePropertyCache = new ConcurrentHashMap<>();
 
+    /**
+     * Cache of the encoders used for bean types. Used from any thread in the
+     * same way as {@link #typePropertyCache}.
+     */
+    private static final ConcurrentMap<Class<?>, ObjectEncoder> objectEncoderCache = new ConcurrentHashMap<>();
+
     private static final Map<Class<?>, String> typeToTransportType = new HashMap<>();
 
     /**
@@ -292,6 +303,53 @@ public class JsonCodec implements Serializable {
         }
     }
 
+    /**
+     * Decodes JSON values to one target type.
+     */
+    @FunctionalInterface
+    interface Decoder {
+        Object decode(JsonValue value, ConnectorTracker connectorTracker);
+    }
+
+    /**
+     * Gets a decoder that decodes values in the same way as
+     * {@link #decodeInternalOrCustomType(Type, JsonValue, ConnectorTracker)},
+     * but with the type inspection done only once. Strings, booleans and
+     * numbers are decoded directly.
+     *
+     * @param targetType
+     *            the type to decode values to
+     * @return a decoder for the type
+     */
+    static Decoder getDecoder(Type targetType) {
+        String transportType = getInternalTransportType(targetType);
+        if (JsonConstants.VTYPE_STRING.equals(transportType)) {
+            return (value, tracker) -> value.getType() == JsonType.NULL ? null
+                    : value.asString();
+        } else if (JsonConstants.VTYPE_BOOLEAN.equals(transportType)) {
+            return (value, tracker) -> value.getType() == JsonType.NULL ? null
+                    : Boolean.valueOf(value.asBoolean());
+        } else if (JsonConstants.VTYPE_INTEGER.equals(transportType)) {
+            return (value, tracker) -> value.getType() == JsonType.NULL ? null
+                    : Integer.valueOf((int) value.asNumber());
+        } else if (JsonConstants.VTYPE_LONG.equals(transportType)) {
+            return (value, tracker) -> value.getType() == JsonType.NULL ? null
+                    : Long.valueOf((long) value.asNumber());
+        } else if (JsonConstants.VTYPE_FLOAT.equals(transportType)) {
+            return (value, tracker) -> value.getType() == JsonType.NULL ? null
+                    : Float.valueOf((float) value.asNumber());
+        } else if (JsonConstants.VTYPE_DOUBLE.equals(transportType)) {
+            return (value, tracker) -> value.getType() == JsonType.NULL ? null
+                    : Double.valueOf(value.asNumber());
+        } else if (isInternalType(targetType)) {
+            return (value, tracker) -> decodeInternalType(targetType, false,
+                    value, tracker);
+        } else {
+            return (value, tracker) -> decodeCustomType(targetType, value,
+                    tracker);
+        }
+    }
+
     public static Object decodeCustomType(Type targetType, JsonValue value,
             ConnectorTracker connectorTracker) {
         if (isInternalType(targetType)) {
@@ -708,6 +766,18 @@ public class JsonCodec implements Serializable {
         return properties;
     }
 
+    private static ObjectEncoder getObjectEncoder(Class<?> type)
+            throws IntrospectionException {
+        ObjectEncoder encoder = objectEncoderCache.get(type);
+        if (encoder == null) {
+            encoder = new ObjectEncoder(type);
+            // Doesn't matter if the same encoder is created multiple times
+            // from different threads
+            objectEncoderCache.put(type, encoder);
+        }
+        return encoder;
+    }
+
     /*
      * Loops through the fields of value and encodes them.
      */
@@ -717,24 +787,11 @@ public class JsonCodec implements Serializable {
         JsonObject diff = Json.createObject();
 
         try {
-            for (BeanProperty property : getProperties(valueType)) {
-                String fieldName = property.getName();
-                // We can't use PropertyDescriptor.getPropertyType() as it does
-                // not support generics
-                Type fieldType = property.getType();
-                Object fieldValue = property.getValue(value);
-
-                if (encoded.hasKey(fieldName)) {
-                    throw new RuntimeException("Can't encode "
-                            + valueType.getName()
-                            + " as it has multiple properties with the name "
-                            + fieldName.toLowerCase()
-                            + ". This can happen if there are getters and setters for a public field (the framework can't know which to ignore) or if there are properties with only casing distinguishing between the names (e.g. getFoo() and getFOO())");
-                }
-
+            for (PropertyEncoder property : getObjectEncoder(
+                    valueType).properties) {
                 JsonValue fieldReference;
                 if (referenceValue != null) {
-                    fieldReference = referenceValue.get(fieldName);
+                    fieldReference = referenceValue.get(property.name);
                     if (fieldReference instanceof JsonNull) {
                         fieldReference = null;
                     }
@@ -742,22 +799,510 @@ public class JsonCodec implements Serializable {
                     fieldReference = null;
                 }
 
-                EncodeResult encodeResult = encode(fieldValue, fieldReference,
-                        fieldType, connectorTracker);
-                encoded.put(fieldName, encodeResult.getEncodedValue());
-
-                if (valueChanged(encodeResult.getEncodedValue(),
-                        fieldReference)) {
-                    diff.put(fieldName, encodeResult.getDiffOrValue());
-                }
+                property.encode(value, fieldReference, encoded, diff,
+                        connectorTracker);
             }
-        } catch (Exception e) {
+        } catch (Error e) {
+            throw e;
+        } catch (Throwable e) {
             // TODO: Should exceptions be handled in a different way?
             throw new RuntimeException(e);
         }
         return new EncodeResult(encoded, diff);
     }
 
+    /**
+     * Creates a typed diff state for the given bean type where the values of
+     * all properties are unknown.
+     *
+     * @param type
+     *            the bean type, not <code>null</code>
+     * @return a new typed diff state
+     */
+    public static TypedDiffState createTypedDiffState(Class<?> type) {
+        try {
+            return new TypedDiffState(type,
+                    getObjectEncoder(type).properties.length);
+        } catch (IntrospectionException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * Encodes the properties of a bean that differ from the values in the
+     * given typed diff state, and updates the diff state to contain the current
+     * values.
+     *
+     * @param value
+     *            the bean to encode, not <code>null</code>
+     * @param diffState
+     *            the diff state to compare to and update, not
+     *            <code>null</code>
+     * @param connectorTracker
+     *            the connector tracker to use for encoding connectors
+     * @return a JSON object containing the changed properties
+     */
+    public static JsonObject encodeDiff(Object value, TypedDiffState diffState,
+            ConnectorTracker connectorTracker) {
+        JsonObject diff = Json.createObject();
+        try {
+            PropertyEncoder[] properties = getObjectEncoder(
+                    diffState.getType()).properties;
+            for (int i = 0; i < properties.length; i++) {
+                properties[i].encodeDiff(value, diffState, i, diff,
+                        connectorTracker);
+            }
+        } catch (Error e) {
+            throw e;
+        } catch (Throwable e) {
+            throw new RuntimeException(e);
+        }
+        return diff;
+    }
+
+    /**
+     * Encodes the given properties of a bean if they differ from the values in
+     * the given typed diff state, and updates the diff state to contain the
+     * current values of those properties. Other properties are neither read
+     * nor compared.
+     *
+     * @param value
+     *            the bean to encode, not <code>null</code>
+     * @param diffState
+     *            the diff state to compare to and update, not
+     *            <code>null</code>
+     * @param propertyNames
+     *            the names of the properties to encode, not <code>null</code>
+     * @param connectorTracker
+     *            the connector tracker to use for encoding connectors
+     * @return a JSON object containing the changed properties
+     * @throws IllegalArgumentException
+     *             if the bean type has no property with one of the given names
+     */
+    public static JsonObject encodeDiff(Object value, TypedDiffState diffState,
+            Collection<String> propertyNames,
+            ConnectorTracker connectorTracker) {
+        JsonObject diff = Json.createObject();
+        try {
+            ObjectEncoder encoder = getObjectEncoder(diffState.getType());
+            for (String propertyName : propertyNames) {
+                int index = encoder.getPropertyIndex(propertyName);
+                encoder.properties[index].encodeDiff(value, diffState, index,
+                        diff, connectorTracker);
+            }
+        } catch (Error | IllegalArgumentException e) {
+            throw e;
+        } catch (Throwable e) {
+            throw new RuntimeException(e);
+        }
+        return diff;
+    }
+
+    /**
+     * Encodes the given properties of a bean if they differ from the values in
+     * the given JSON diff state, and updates the diff state to contain the
+     * current encoded values of those properties. Other properties are neither
+     * read nor compared.
+     *
+     * @param value
+     *            the bean to encode, not <code>null</code>
+     * @param valueType
+     *            the bean type
+     * @param diffState
+     *            the previously encoded bean to compare to and update, not
+     *            <code>null</code>
+     * @param propertyNames
+     *            the names of the properties to encode, not <code>null</code>
+     * @param connectorTracker
+     *            the connector tracker to use for encoding connectors
+     * @return a JSON object containing the changed properties
+     * @throws IllegalArgumentException
+     *             if the bean type has no property with one of the given names
+     */
+    public static JsonObject encodeProperties(Object value, Class<?> valueType,
+            JsonObject diffState, Collection<String> propertyNames,
+            ConnectorTracker connectorTracker) {
+        JsonObject diff = Json.createObject();
+        try {
+            ObjectEncoder encoder = getObjectEncoder(valueType);
+            for (String propertyName : propertyNames) {
+                PropertyEncoder property = encoder.properties[encoder
+                        .getPropertyIndex(propertyName)];
+                JsonValue fieldReference = diffState.get(property.name);
+                if (fieldReference instanceof JsonNull) {
+                    fieldReference = null;
+                }
+                // The diff state is updated in place
+                property.encode(value, fieldReference, diffState, diff,
+                        connectorTracker);
+            }
+        } catch (Error | IllegalArgumentException e) {
+            throw e;
+        } catch (Throwable e) {
+            throw new RuntimeException(e);
+        }
+        return diff;
+    }
+
+    static JsonObject typedDiffStateToJson(TypedDiffState diffState) {
+        JsonObject json = Json.createObject();
+        PropertyEncoder[] properties = getTypedDiffStateProperties(diffState);
+        for (int i = 0; i < properties.length; i++) {
+            properties[i].writeJson(diffState, i, json);
+        }
+        return json;
+    }
+
+    static void updateTypedDiffState(TypedDiffState diffState,
+            JsonObject json) {
+        PropertyEncoder[] properties = getTypedDiffStateProperties(diffState);
+        for (int i = 0; i < properties.length; i++) {
+            properties[i].readJson(diffState, i, json);
+        }
+    }
+
+    static HashMap<String, Object> getTypedDiffStateValues(
+            TypedDiffState diffState) {
+        PropertyEncoder[] properties = getTypedDiffStateProperties(diffState);
+        HashMap<String, Object> propertyValues = new HashMap<>();
+        for (int i = 0; i < properties.length; i++) {
+            propertyValues.put(properties[i].name,
+                    properties[i].getSerializableValue(diffState, i));
+        }
+        return propertyValues;
+    }
+
+    static void setTypedDiffStateValues(TypedDiffState diffState,
+            Map<String, Object> propertyValues) {
+        PropertyEncoder[] properties = getTypedDiffStateProperties(diffState);
+        diffState.numbers = new double[properties.length];
+        diffState.values = new Object[properties.length];
+        for (int i = 0; i < properties.length; i++) {
+            properties[i].setSerializableValue(diffState, i,
+                    propertyValues.get(properties[i].name));
+        }
+    }
+
+    private static PropertyEncoder[] getTypedDiffStateProperties(
+            TypedDiffState diffState) {
+        try {
+            return getObjectEncoder(diffState.getType()).properties;
+        } catch (IntrospectionException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * The properties of a bean type, resolved once per type so that encoding
+     * an instance does not need to look up or validate the properties again.
+     */
+    private static class ObjectEncoder {
+        private final Class<?> type;
+        private final PropertyEncoder[] properties;
+        private final Map<String, Integer> propertyIndexes = new HashMap<>();
+
+        public ObjectEncoder(Class<?> type) throws IntrospectionException {
+            this.type = type;
+            Collection<BeanProperty> beanProperties = getProperties(type);
+
+            properties = new PropertyEncoder[beanProperties.size()];
+            int i = 0;
+            for (BeanProperty property : beanProperties) {
+                String fieldName = property.getName();
+                if (propertyIndexes.put(fieldName,
+                        Integer.valueOf(i)) != null) {
+                    throw new RuntimeException("Can't encode " + type.getName()
+                            + " as it has multiple properties with the name "
+                            + fieldName.toLowerCase()
+                            + ". This can happen if there are getters and setters for a public field (the framework can't know which to ignore) or if there are properties with only casing distinguishing between the names (e.g. getFoo() and getFOO())");
+                }
+                properties[i++] = new PropertyEncoder(property);
+            }
+        }
+
+        public int getPropertyIndex(String name) {
+            Integer index = propertyIndexes.get(name);
+            if (index == null) {
+                throw new IllegalArgumentException(
+                        type.getName() + " has no property named " + name);
+            }
+            return index.intValue();
+        }
+    }
+
+    /**
+     * Encodes a single bean property. The value is read through a method
+     * handle, falling back to the reflective {@link BeanProperty} if the
+     * property is not publicly accessible. Boolean, numeric and string
+     * properties are encoded and compared to the reference value directly
+     * without boxing or going through the generic {@link #encode} logic.
+     */
+    private static class PropertyEncoder {
+        private static final MethodType BOOLEAN_GETTER = MethodType
+                .methodType(boolean.class, Object.class);
+        private static final MethodType NUMBER_GETTER = MethodType
+                .methodType(double.class, Object.class);
+        private static final MethodType STRING_GETTER = MethodType
+                .methodType(String.class, Object.class);
+        private static final MethodType OBJECT_GETTER = MethodType
+                .methodType(Object.class, Object.class);
+
+        private enum Kind {
+            BOOLEAN, NUMBER, STRING, OBJECT, REFLECTIVE;
+        }
+
+        private final String name;
+        private final Type type;
+        private final BeanProperty property;
+        private final Kind kind;
+        private final MethodHandle getter;
+
+        public PropertyEncoder(BeanProperty property) {
+            this.property = property;
+            name = property.getName();
+            // We can't use PropertyDescriptor.getPropertyType() as it does
+            // not support generics
+            type = property.getType();
+
+            MethodHandle handle = findGetter(property);
+            if (handle == null) {
+                kind = Kind.REFLECTIVE;
+                getter = null;
+            } else if (type == boolean.class) {
+                kind = Kind.BOOLEAN;
+                getter = handle.asType(BOOLEAN_GETTER);
+            } else if (type == int.class || type == long.class
+                    || type == float.class || type == double.class
+                    || type == short.class) {
+                kind = Kind.NUMBER;
+                getter = handle.asType(NUMBER_GETTER);
+            } else if (type == String.class) {
+                kind = Kind.STRING;
+                getter = handle.asType(STRING_GETTER);
+            } else {
+                kind = Kind.OBJECT;
+                getter = handle.asType(OBJECT_GETTER);
+            }
+        }
+
+        private static MethodHandle findGetter(BeanProperty property) {
+            try {
+                if (property instanceof MethodProperty) {
+                    return MethodHandles.publicLookup().unreflect(
+                            ((MethodProperty) property).pd.getReadMethod());
+                } else if (property instanceof FieldProperty) {
+                    return MethodHandles.publicLookup()
+                            .unreflectGetter(((FieldProperty) property).field);
+                }
+            } catch (IllegalAccessException e) {
+                // Use reflection, e.g. for a public getter declared in a
+                // non-public super class
+            }
+            return null;
+        }
+
+        public void encode(Object bean, JsonValue reference,
+                JsonObject encoded, JsonObject diff,
+                ConnectorTracker connectorTracker) throws Throwable {
+            switch (kind) {
+            case BOOLEAN: {
+                boolean value = (boolean) getter.invokeExact(bean);
+                encoded.put(name, value);
+                if (reference == null
+                        || reference.getType() != JsonType.BOOLEAN
+                        || reference.asBoolean() != value) {
+                    diff.put(name, value);
+                }
+                break;
+            }
+            case NUMBER: {
+                double value = (double) getter.invokeExact(bean);
+                encoded.put(name, value);
+                if (reference == null || reference.getType() != JsonType.NUMBER
+                        || reference.asNumber() != value) {
+                    diff.put(name, value);
+                }
+                break;
+            }
+            case STRING: {
+                String value = (String) getter.invokeExact(bean);
+                if (value == null) {
+                    JsonValue encodedNull = ENCODE_RESULT_NULL
+                            .getEncodedValue();
+                    encoded.put(name, encodedNull);
+                    if (reference != null) {
+                        diff.put(name, encodedNull);
+                    }
+                } else {
+                    encoded.put(name, value);
+                    if (reference == null
+                            || reference.getType() != JsonType.STRING
+                            || !value.equals(reference.asString())) {
+                        diff.put(name, value);
+                    }
+                }
+                break;
+            }
+            default: {
+                Object value = getObjectValue(bean);
+                EncodeResult encodeResult = JsonCodec.encode(value, reference,
+                        type, connectorTracker);
+                encoded.put(name, encodeResult.getEncodedValue());
+
+                if (valueChanged(encodeResult.getEncodedValue(), reference)) {
+                    diff.put(name, encodeResult.getDiffOrValue());
+                }
+            }
+            }
+        }
+
+        public void encodeDiff(Object bean, TypedDiffState diffState,
+                int index, JsonObject diff, ConnectorTracker connectorTracker)
+                throws Throwable {
+            switch (kind) {
+            case BOOLEAN: {
+                boolean value = (boolean) getter.invokeExact(bean);
+                double number = value ? 1 : 0;
+                // Unknown values are NaN, which never equals anything
+                if (diffState.numbers[index] != number) {
+                    diffState.numbers[index] = number;
+                    diff.put(name, value);
+                }
+                break;
+            }
+            case NUMBER: {
+                double value = (double) getter.invokeExact(bean);
+                if (diffState.numbers[index] != value) {
+                    diffState.numbers[index] = value;
+                    diff.put(name, value);
+                }
+                break;
+            }
+            case STRING: {
+                String value = (String) getter.invokeExact(bean);
+                if (!Objects.equals(value, diffState.values[index])) {
+                    diffState.values[index] = value;
+                    if (value == null) {
+                        diff.put(name, ENCODE_RESULT_NULL.getEncodedValue());
+                    } else {
+                        diff.put(name, value);
+                    }
+                }
+                break;
+            }
+            default: {
+                Object value = getObjectValue(bean);
+                JsonValue reference = (JsonValue) diffState.values[index];
+                EncodeResult encodeResult = JsonCodec.encode(value, reference,
+                        type, connectorTracker);
+                JsonValue encodedValue = encodeResult.getEncodedValue();
+
+                if (valueChanged(encodedValue, reference)) {
+                    diff.put(name, encodeResult.getDiffOrValue());
+                }
+                diffState.values[index] = encodedValue instanceof JsonNull
+                        ? null : encodedValue;
+            }
+            }
+        }
+
+        public void writeJson(TypedDiffState diffState, int index,
+                JsonObject json) {
+            switch (kind) {
+            case BOOLEAN:
+                if (!Double.isNaN(diffState.numbers[index])) {
+                    json.put(name, diffState.numbers[index] != 0);
+                }
+                break;
+            case NUMBER:
+                if (!Double.isNaN(diffState.numbers[index])) {
+                    json.put(name, diffState.numbers[index]);
+                }
+                break;
+            case STRING:
+                if (diffState.values[index] == null) {
+                    json.put(name, Json.createNull());
+                } else {
+                    json.put(name, (String) diffState.values[index]);
+                }
+                break;
+            default:
+                if (diffState.values[index] == null) {
+                    json.put(name, Json.createNull());
+                } else {
+                    json.put(name, (JsonValue) diffState.values[index]);
+                }
+            }
+        }
+
+        public void readJson(TypedDiffState diffState, int index,
+                JsonObject json) {
+            JsonValue value = json.get(name);
+            JsonType valueType = value == null ? JsonType.NULL
+                    : value.getType();
+            switch (kind) {
+            case BOOLEAN:
+                diffState.numbers[index] = valueType == JsonType.BOOLEAN
+                        ? (value.asBoolean() ? 1 : 0) : Double.NaN;
+                break;
+            case NUMBER:
+                diffState.numbers[index] = valueType == JsonType.NUMBER
+                        ? value.asNumber() : Double.NaN;
+                break;
+            case STRING:
+                diffState.values[index] = valueType == JsonType.STRING
+                        ? value.asString() : null;
+                break;
+            default:
+                diffState.values[index] = valueType == JsonType.NULL ? null
+                        : value;
+            }
+        }
+
+        public Object getSerializableValue(TypedDiffState diffState,
+                int index) {
+            switch (kind) {
+            case BOOLEAN:
+            case NUMBER:
+                return Double.valueOf(diffState.numbers[index]);
+            case STRING:
+                return diffState.values[index];
+            default:
+                // JsonValue is not serializable
+                JsonValue value = (JsonValue) diffState.values[index];
+                return value == null ? null : JsonUtil.stringify(value);
+            }
+        }
+
+        public void setSerializableValue(TypedDiffState diffState, int index,
+                Object value) {
+            switch (kind) {
+            case BOOLEAN:
+            case NUMBER:
+                diffState.numbers[index] = value instanceof Double
+                        ? ((Double) value).doubleValue() : Double.NaN;
+                break;
+            case STRING:
+                diffState.values[index] = value instanceof String ? value
+                        : null;
+                break;
+            default:
+                JsonValue json = value instanceof String
+                        ? Json.instance().parse((String) value) : null;
+                diffState.values[index] = json instanceof JsonNull ? null
+                        : json;
+            }
+        }
+
+        private Object getObjectValue(Object bean) throws Throwable {
+            if (kind == Kind.REFLECTIVE) {
+                return property.getValue(bean);
+            } else {
+                return getter.invokeExact(bean);
+            }
+        }
+    }
+
     /**
      * Compares the value with the reference. If they match, returns false.
      *
@@ -66,7 +66,11 @@ public class LegacyCommunicationManager implements Serializable {
     private final VaadinSession session;
 
     // TODO Refactor (#11413)
-    private final Map<String, Class<?>> publishedFileContexts = new HashMap<>();
+    /*
+     * Concurrent so that published files can be looked up without locking the
+     * session
+     */
+    private final Map<String, Class<?>> publishedFileContexts = new ConcurrentHashMap<>();
 
     /**
      * TODO New constructor - document me!
@@ -83,6 +87,8 @@ public class LegacyCommunicationManager implements Serializable {
 
     private static final ConcurrentHashMap<Class<? extends SharedState>, JsonValue> referenceDiffStates = new ConcurrentHashMap<>();
 
+    private static final ConcurrentHashMap<Class<? extends SharedState>, TypedDiffState> referenceTypedDiffStates = new ConcurrentHashMap<>();
+
     /**
      * @deprecated As of 7.1. See #11411.
      */
@@ -92,18 +98,29 @@ public class LegacyCommunicationManager implements Serializable {
         UI uI = connector.getUI();
         ConnectorTracker connectorTracker = uI.getConnectorTracker();
         Class<? extends SharedState> stateType = connector.getStateType();
-        JsonValue diffState = connectorTracker.getDiffState(connector);
 
-        if (diffState == null) {
+        if (connectorTracker.isTypedDiffStateEnabled()) {
+            return encodeTypedState(connector, state, stateType,
+                    connectorTracker);
+        }
+
+        JsonObject diffState = connectorTracker.getDiffState(connector);
+        Set<String> dirtyStateFields = connectorTracker
+                .getDirtyStateFields(connector);
+
+        if (diffState != null && dirtyStateFields != null) {
+            // Only some properties have changed since the previous response
+            return JsonCodec.encodeProperties(state, stateType, diffState,
+                    dirtyStateFields, connectorTracker);
+        }
+
+        JsonValue referenceState = diffState;
+        if (referenceState == null) {
             // Use an empty state object as reference for full
             // repaints
-            diffState = referenceDiffStates.get(stateType);
-            if (diffState == null) {
-                diffState = createReferenceDiffStateState(stateType);
-                referenceDiffStates.put(stateType, diffState);
-            }
+            referenceState = getReferenceDiffState(stateType);
         }
-        EncodeResult encodeResult = JsonCodec.encode(state, diffState,
+        EncodeResult encodeResult = JsonCodec.encode(state, referenceState,
                 stateType, uI.getConnectorTracker());
         connectorTracker.setDiffState(connector,
                 (JsonObject) encodeResult.getEncodedValue());
@@ -111,6 +128,50 @@ public class LegacyCommunicationManager implements Serializable {
         return (JsonObject) encodeResult.getDiff();
     }
 
+    private static JsonObject encodeTypedState(ClientConnector connector,
+            SharedState state, Class<? extends SharedState> stateType,
+            ConnectorTracker connectorTracker) {
+        TypedDiffState diffState = connectorTracker
+                .getTypedDiffState(connector);
+
+        if (diffState == null) {
+            // Use an empty state object as reference for full repaints
+            TypedDiffState referenceState = referenceTypedDiffStates
+                    .get(stateType);
+            if (referenceState == null) {
+                referenceState = JsonCodec.createTypedDiffState(stateType);
+                JsonValue referenceJson = getReferenceDiffState(stateType);
+                if (referenceJson instanceof JsonObject) {
+                    referenceState.update((JsonObject) referenceJson);
+                }
+                referenceTypedDiffStates.put(stateType, referenceState);
+            }
+            diffState = referenceState.copy();
+            connectorTracker.setTypedDiffState(connector, diffState);
+        } else {
+            Set<String> dirtyStateFields = connectorTracker
+                    .getDirtyStateFields(connector);
+            if (dirtyStateFields != null) {
+                // Only some properties have changed since the previous
+                // response
+                return JsonCodec.encodeDiff(state, diffState,
+                        dirtyStateFields, connectorTracker);
+            }
+        }
+
+        return JsonCodec.encodeDiff(state, diffState, connectorTracker);
+    }
+
+    private static JsonValue getReferenceDiffState(
+            Class<? extends SharedState> stateType) {
+        JsonValue diffState = referenceDiffStates.get(stateType);
+        if (diffState == null) {
+            diffState = createReferenceDiffStateState(stateType);
+            referenceDiffStates.put(stateType, diffState);
+        }
+        return diffState;
+    }
+
     private static JsonValue createReferenceDiffStateState(
             Class<? extends SharedState> stateType) {
         if (JavaScriptConnectorState.class.isAssignableFrom(stateType)) {
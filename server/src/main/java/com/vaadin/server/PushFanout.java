@@ -0,0 +1,177 @@
+/*
+ * Copyright 2000-2016 Vaadin Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.vaadin.server;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.vaadin.shared.communication.PushMode;
+import com.vaadin.ui.UI;
+
+/**
+ * Delivers the same change to a group of UIs, e.g. all UIs showing a shared
+ * dashboard or chat. The change is described once as a
+ * {@link SerializableConsumer} and applied to each subscribed UI in turn.
+ * <p>
+ * Broadcasting uses {@link VaadinService#accessUIs(Map)}, so the lock of each
+ * session is acquired once for all its subscribed UIs and each UI is pushed to
+ * at most once per broadcast. UIs using {@link PushMode#MANUAL manual push} are
+ * pushed to right after the change has been applied.
+ * <p>
+ * Subscribed UIs are only weakly referenced and UIs that have been removed from
+ * their session are unsubscribed automatically.
+ *
+ * @author Vaadin Ltd
+ * @since 8.0
+ */
+public class PushFanout {
+
+    private final VaadinService service;
+
+    // Guarded by itself
+    private final Set<UI> subscribers = Collections
+            .newSetFromMap(new WeakHashMap<>());
+
+    private final AtomicLong broadcasts = new AtomicLong();
+    private final AtomicLong deliveries = new AtomicLong();
+
+    /**
+     * Creates a new fan-out for UIs of the given service.
+     *
+     * @param service
+     *            the service used for accessing the subscribed UIs, not
+     *            <code>null</code>
+     */
+    public PushFanout(VaadinService service) {
+        if (service == null) {
+            throw new IllegalArgumentException("The service cannot be null");
+        }
+        this.service = service;
+    }
+
+    /**
+     * Subscribes the given UI to changes broadcast by this fan-out.
+     *
+     * @param ui
+     *            the UI to subscribe, not <code>null</code>
+     */
+    public void subscribe(UI ui) {
+        if (ui == null) {
+            throw new IllegalArgumentException("The UI cannot be null");
+        }
+        synchronized (subscribers) {
+            subscribers.add(ui);
+        }
+    }
+
+    /**
+     * Unsubscribes the given UI from changes broadcast by this fan-out.
+     *
+     * @param ui
+     *            the UI to unsubscribe
+     */
+    public void unsubscribe(UI ui) {
+        synchronized (subscribers) {
+            subscribers.remove(ui);
+        }
+    }
+
+    /**
+     * Gets the number of UIs currently subscribed to this fan-out.
+     *
+     * @return the number of subscribed UIs
+     */
+    public int getSubscriberCount() {
+        synchronized (subscribers) {
+            return subscribers.size();
+        }
+    }
+
+    /**
+     * Applies the given change to all subscribed UIs and pushes it to them.
+     * The change is run while the session of the UI is locked and with the UI
+     * set as the current UI, in the same way as with {@link UI#access(Runnable)}.
+     * The change is run right away for UIs whose session is not locked by
+     * another thread, and when the session is unlocked for the others.
+     *
+     * @param change
+     *            the change to apply to each UI, not <code>null</code>
+     * @return a future that can be used to check for completion of the change
+     *         in all UIs
+     */
+    public Future<Void> broadcast(SerializableConsumer<UI> change) {
+        if (change == null) {
+            throw new IllegalArgumentException("The change cannot be null");
+        }
+        Map<UI, List<Runnable>> runnables = new LinkedHashMap<>();
+        for (UI ui : getActiveSubscribers()) {
+            runnables.put(ui,
+                    Collections.singletonList(() -> apply(ui, change)));
+        }
+
+        Future<Void> result = service.accessUIs(runnables);
+        broadcasts.incrementAndGet();
+        return result;
+    }
+
+    private List<UI> getActiveSubscribers() {
+        synchronized (subscribers) {
+            List<UI> active = new ArrayList<>(subscribers.size());
+            subscribers.removeIf(ui -> {
+                if (ui.getSession() == null) {
+                    return true;
+                }
+                active.add(ui);
+                return false;
+            });
+            return active;
+        }
+    }
+
+    private void apply(UI ui, SerializableConsumer<UI> change) {
+        change.accept(ui);
+        deliveries.incrementAndGet();
+        if (ui.getPushConfiguration().getPushMode() == PushMode.MANUAL) {
+            ui.push();
+        }
+    }
+
+    /**
+     * Gets the number of changes broadcast by this fan-out.
+     *
+     * @return the number of broadcasts
+     */
+    public long getBroadcasts() {
+        return broadcasts.get();
+    }
+
+    /**
+     * Gets the number of times a broadcast change has been applied to a UI.
+     *
+     * @return the number of deliveries
+     */
+    public long getDeliveries() {
+        return deliveries.get();
+    }
+}
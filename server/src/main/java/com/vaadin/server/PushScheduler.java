@@ -0,0 +1,252 @@
+/*
+ * Copyright 2000-2016 Vaadin Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.vaadin.server;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.vaadin.shared.communication.PushMode;
+import com.vaadin.ui.UI;
+
+/**
+ * Limits how often changes are pushed to UIs using {@link PushMode#AUTOMATIC
+ * automatic} push. At most one push per coalescing window is sent to each UI:
+ * the first push is sent right away when the session is unlocked, and changes
+ * made during the rest of the window are sent in a single push when the window
+ * ends.
+ * <p>
+ * Deferred pushes are run using {@link VaadinSession#access(Runnable)}, so they
+ * are run while holding the session lock and in the same order as other tasks
+ * enqueued for the session. Each push contains all changes made up to that
+ * point, so no changes are lost when pushes are coalesced.
+ * <p>
+ * A single timer thread only keeps track of when windows end. The deferred
+ * pushes themselves are run by a separate pool of push threads, so that a push
+ * that is slow or blocked, e.g. by a client that does not receive messages
+ * fast enough, only holds up one push thread instead of the deferred pushes of
+ * all other UIs.
+ * <p>
+ * A push scheduler is used by {@link VaadinService} when
+ * {@link Constants#SERVLET_PARAMETER_PUSH_COALESCING_WINDOW} is set to a
+ * positive value.
+ *
+ * @author Vaadin Ltd
+ * @since 8.0
+ */
+public class PushScheduler {
+
+    private static class PushState {
+        private boolean pending;
+    }
+
+    private final long window;
+
+    private final ScheduledExecutorService timer;
+
+    private final ExecutorService pushExecutor;
+
+    /*
+     * Contains the UIs that have been pushed to during the current window. An
+     * entry is removed when its window ends without any pending push, so UIs
+     * are only referenced here for the duration of one window after the last
+     * push.
+     */
+    private final ConcurrentHashMap<UI, PushState> states = new ConcurrentHashMap<>();
+
+    private final AtomicLong sentPushes = new AtomicLong();
+    private final AtomicLong coalescedPushes = new AtomicLong();
+
+    /**
+     * Creates a new push scheduler using the given coalescing window and
+     * {@value Constants#DEFAULT_PUSH_COALESCING_THREADS} push threads.
+     *
+     * @param window
+     *            the minimum time between two pushes to the same UI in
+     *            milliseconds, must be positive
+     */
+    public PushScheduler(long window) {
+        this(window, Constants.DEFAULT_PUSH_COALESCING_THREADS);
+    }
+
+    /**
+     * Creates a new push scheduler using the given coalescing window and
+     * number of threads for running deferred pushes.
+     *
+     * @param window
+     *            the minimum time between two pushes to the same UI in
+     *            milliseconds, must be positive
+     * @param pushThreads
+     *            the number of threads running deferred pushes, must be
+     *            positive
+     */
+    public PushScheduler(long window, int pushThreads) {
+        if (window <= 0) {
+            throw new IllegalArgumentException(
+                    "The coalescing window must be positive, was " + window);
+        }
+        if (pushThreads <= 0) {
+            throw new IllegalArgumentException(
+                    "The number of push threads must be positive, was "
+                            + pushThreads);
+        }
+        this.window = window;
+        timer = Executors.newSingleThreadScheduledExecutor(
+                createThreadFactory("Vaadin push scheduler"));
+        // Each UI has at most one deferred push waiting at a time, so the
+        // queue is bounded by the number of UIs
+        pushExecutor = Executors.newFixedThreadPool(pushThreads,
+                createThreadFactory("Vaadin deferred push"));
+    }
+
+    private static ThreadFactory createThreadFactory(String name) {
+        return runnable -> {
+            Thread thread = new Thread(runnable, name);
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    /**
+     * Gets the coalescing window of this scheduler.
+     *
+     * @return the minimum time between two pushes to the same UI in
+     *         milliseconds
+     */
+    public long getWindow() {
+        return window;
+    }
+
+    /**
+     * Called when the session of a UI with automatic push is about to be
+     * unlocked to check whether pending changes should be pushed right away.
+     * If the UI has already been pushed to during the current window, a push
+     * is scheduled for the end of the window instead.
+     * <p>
+     * This method is called by the framework and is not intended to be used by
+     * application developers.
+     *
+     * @param ui
+     *            the UI to push, not <code>null</code>
+     * @return <code>true</code> if the caller should push the UI right away,
+     *         <code>false</code> if the push has been deferred
+     */
+    public boolean requestPush(UI ui) {
+        assert ui.getSession().hasLock();
+
+        if (!ui.getConnectorTracker().hasDirtyConnectors()) {
+            // Nothing to push, UI.push() will not do anything
+            return true;
+        }
+
+        boolean[] pushNow = new boolean[1];
+        states.compute(ui, (key, state) -> {
+            if (state == null) {
+                pushNow[0] = true;
+                scheduleWindowEnd(ui);
+                return new PushState();
+            }
+            if (state.pending) {
+                coalescedPushes.incrementAndGet();
+            } else {
+                state.pending = true;
+            }
+            return state;
+        });
+
+        if (pushNow[0]) {
+            sentPushes.incrementAndGet();
+        }
+        return pushNow[0];
+    }
+
+    private void scheduleWindowEnd(UI ui) {
+        timer.schedule(() -> endWindow(ui), window, TimeUnit.MILLISECONDS);
+    }
+
+    private void endWindow(UI ui) {
+        boolean[] push = new boolean[1];
+        states.computeIfPresent(ui, (key, state) -> {
+            if (!state.pending) {
+                return null;
+            }
+            // A new window starts with the deferred push
+            state.pending = false;
+            push[0] = true;
+            scheduleWindowEnd(ui);
+            return state;
+        });
+
+        if (!push[0]) {
+            return;
+        }
+
+        VaadinSession session = ui.getSession();
+        if (session == null) {
+            states.remove(ui);
+            return;
+        }
+        // access() runs the task right away on the calling thread if the
+        // session is not locked, so it is called from a push thread
+        pushExecutor.execute(() -> pushDeferred(ui, session));
+    }
+
+    private void pushDeferred(UI ui, VaadinSession session) {
+        session.access(() -> {
+            if (ui.getSession() == session && ui.getPushConfiguration()
+                    .getPushMode() == PushMode.AUTOMATIC) {
+                if (ui.getConnectorTracker().hasDirtyConnectors()) {
+                    sentPushes.incrementAndGet();
+                }
+                ui.push();
+            }
+        });
+    }
+
+    /**
+     * Gets the number of pushes sent to UIs by this scheduler, either right
+     * away or at the end of a coalescing window.
+     *
+     * @return the number of sent pushes
+     */
+    public long getSentPushes() {
+        return sentPushes.get();
+    }
+
+    /**
+     * Gets the number of push requests that were merged into an already
+     * scheduled push instead of being sent separately.
+     *
+     * @return the number of coalesced pushes
+     */
+    public long getCoalescedPushes() {
+        return coalescedPushes.get();
+    }
+
+    /**
+     * Stops this scheduler. Pushes that have not yet been sent are discarded.
+     */
+    public void shutdown() {
+        timer.shutdownNow();
+        pushExecutor.shutdownNow();
+        states.clear();
+    }
+}
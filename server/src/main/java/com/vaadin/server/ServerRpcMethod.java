@@ -0,0 +1,195 @@
+/*
+ * Copyright 2000-2016 Vaadin Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.vaadin.server;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import com.vaadin.server.JsonCodec.Decoder;
+import com.vaadin.shared.annotations.Coalesced;
+import com.vaadin.shared.annotations.Delayed;
+import com.vaadin.ui.ConnectorTracker;
+
+import elemental.json.JsonArray;
+
+/**
+ * A server RPC method with everything needed for decoding its parameters and
+ * invoking it resolved once. The methods of an RPC interface are looked up the
+ * first time the interface is used, after which finding a method only needs a
+ * lookup by method name.
+ * <p>
+ * The method is invoked through a method handle, falling back to reflection if
+ * the RPC interface is not public.
+ *
+ * @author Vaadin Ltd
+ * @since 8.0
+ */
+class ServerRpcMethod {
+
+    private static final MethodType INVOKER_TYPE = MethodType
+            .methodType(void.class, Object.class, Object[].class);
+
+    /**
+     * The methods of each RPC interface by method name. Used from any thread
+     * that happens to process Vaadin requests.
+     */
+    private static final ConcurrentMap<Class<?>, Map<String, List<ServerRpcMethod>>> interfaceMethods = new ConcurrentHashMap<>();
+
+    private final Method method;
+    private final Decoder[] decoders;
+    private final MethodHandle invoker;
+    private final boolean lastOnly;
+
+    private ServerRpcMethod(Method method) {
+        this.method = method;
+
+        Delayed delayed = method.getAnnotation(Delayed.class);
+        lastOnly = delayed != null && delayed.lastOnly()
+                || method.isAnnotationPresent(Coalesced.class);
+
+        Type[] parameterTypes = method.getGenericParameterTypes();
+        decoders = new Decoder[parameterTypes.length];
+        for (int i = 0; i < parameterTypes.length; i++) {
+            decoders[i] = JsonCodec.getDecoder(parameterTypes[i]);
+        }
+
+        invoker = findInvoker(method);
+    }
+
+    private static MethodHandle findInvoker(Method method) {
+        try {
+            return MethodHandles.publicLookup().unreflect(method)
+                    .asSpreader(Object[].class,
+                            method.getParameterTypes().length)
+                    .asType(INVOKER_TYPE);
+        } catch (IllegalAccessException e) {
+            // Use reflection, e.g. for a non-public RPC interface
+            return null;
+        }
+    }
+
+    /**
+     * Finds the method with the given name and number of parameters in an RPC
+     * interface.
+     *
+     * @param rpcInterface
+     *            the RPC interface
+     * @param methodName
+     *            the name of the method
+     * @param parameterCount
+     *            the number of parameters of the method
+     * @return the method, or <code>null</code> if there is no such method
+     */
+    static ServerRpcMethod find(Class<?> rpcInterface, String methodName,
+            int parameterCount) {
+        List<ServerRpcMethod> methods = interfaceMethods
+                .computeIfAbsent(rpcInterface, ServerRpcMethod::findMethods)
+                .get(methodName);
+        if (methods != null) {
+            for (ServerRpcMethod method : methods) {
+                if (method.decoders.length == parameterCount) {
+                    return method;
+                }
+            }
+        }
+        return null;
+    }
+
+    private static Map<String, List<ServerRpcMethod>> findMethods(
+            Class<?> rpcInterface) {
+        Map<String, List<ServerRpcMethod>> methods = new HashMap<>();
+        for (Method method : rpcInterface.getMethods()) {
+            methods.computeIfAbsent(method.getName(), name -> new ArrayList<>())
+                    .add(new ServerRpcMethod(method));
+        }
+        return Collections.unmodifiableMap(methods);
+    }
+
+    /**
+     * Gets the reflective method.
+     *
+     * @return the method
+     */
+    Method getMethod() {
+        return method;
+    }
+
+    /**
+     * Checks whether only the last one of several invocations of this method
+     * for the same connector in one request should be invoked.
+     *
+     * @return <code>true</code> if the method is marked with
+     *         {@link Delayed @Delayed(lastOnly = true)} or {@link Coalesced},
+     *         otherwise <code>false</code>
+     */
+    boolean isLastOnly() {
+        return lastOnly;
+    }
+
+    /**
+     * Decodes the parameters of an invocation of this method.
+     *
+     * @param parametersJson
+     *            the encoded parameters, one for each parameter of the method
+     * @param connectorTracker
+     *            the connector tracker of the UI
+     * @return the decoded parameters
+     */
+    Object[] decodeParameters(JsonArray parametersJson,
+            ConnectorTracker connectorTracker) {
+        Object[] parameters = new Object[decoders.length];
+        for (int i = 0; i < decoders.length; i++) {
+            parameters[i] = decoders[i].decode(parametersJson.get(i),
+                    connectorTracker);
+        }
+        return parameters;
+    }
+
+    /**
+     * Invokes this method. Exceptions thrown by the method are wrapped in an
+     * {@link InvocationTargetException} in the same way as with reflection.
+     *
+     * @param implementation
+     *            the RPC implementation to invoke the method on
+     * @param parameters
+     *            the parameters of the invocation
+     * @throws Exception
+     *             if the method could not be invoked or threw an exception
+     */
+    void invoke(Object implementation, Object[] parameters) throws Exception {
+        if (invoker == null) {
+            method.invoke(implementation, parameters);
+            return;
+        }
+        try {
+            invoker.invokeExact(implementation, parameters);
+        } catch (Throwable t) {
+            throw new InvocationTargetException(t);
+        }
+    }
+}
@@ -16,21 +16,21 @@
 package com.vaadin.server;
 
 import java.lang.reflect.Method;
-import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
 
 import com.vaadin.shared.communication.MethodInvocation;
 import com.vaadin.shared.communication.ServerRpc;
+import com.vaadin.ui.ConnectorTracker;
 
-public class ServerRpcMethodInvocation extends MethodInvocation {
+import elemental.json.JsonArray;
 
-    private static final Map<String, Method> invocationMethodCache = new ConcurrentHashMap<>(
-            128, 0.75f, 1);
+public class ServerRpcMethodInvocation extends MethodInvocation {
 
     private final Method method;
 
     private final Class<? extends ServerRpc> interfaceClass;
 
+    private transient ServerRpcMethod rpcMethod;
+
     public ServerRpcMethodInvocation(String connectorId,
             Class<? extends ServerRpc> interfaceClass, String methodName,
             int parameterCount) {
@@ -39,8 +39,14 @@ public class ServerRpcMethodInvocation extends MethodInvocation {
         assert ServerRpc.class.isAssignableFrom(interfaceClass);
         this.interfaceClass = interfaceClass;
 
-        method = findInvocationMethod(interfaceClass, methodName,
+        rpcMethod = ServerRpcMethod.find(interfaceClass, methodName,
                 parameterCount);
+        if (rpcMethod == null) {
+            throw new IllegalStateException("Can't find method " + methodName
+                    + " with " + parameterCount + " parameters in "
+                    + interfaceClass.getName());
+        }
+        method = rpcMethod.getMethod();
     }
 
     public Class<? extends ServerRpc> getInterfaceClass() {
@@ -52,61 +58,44 @@ public class ServerRpcMethodInvocation extends MethodInvocation {
     }
 
     /**
-     * Tries to find the method from the cache or alternatively by invoking
-     * {@link #doFindInvocationMethod(Class, String, int)} and updating the
-     * cache.
+     * Decodes the given JSON parameters using the declared parameter types of
+     * the invoked method and sets them as the parameters of this invocation.
      *
-     * @param targetType
-     * @param methodName
-     * @param parameterCount
-     * @return
+     * @since 8.0
+     * @param parametersJson
+     *            the encoded parameters, one for each parameter of the method
+     * @param connectorTracker
+     *            the connector tracker used for decoding connector references
      */
-    private Method findInvocationMethod(Class<?> targetType, String methodName,
-            int parameterCount) {
-        // TODO currently only using method name and number of parameters as the
-        // signature
-        String signature = targetType.getName() + "." + methodName + "("
-                + parameterCount;
-        Method invocationMethod = invocationMethodCache.get(signature);
-
-        if (invocationMethod == null) {
-            invocationMethod = doFindInvocationMethod(targetType, methodName,
-                    parameterCount);
-
-            if (invocationMethod != null) {
-                invocationMethodCache.put(signature, invocationMethod);
-            }
-        }
-
-        if (invocationMethod == null) {
-            throw new IllegalStateException("Can't find method " + methodName
-                    + " with " + parameterCount + " parameters in "
-                    + targetType.getName());
-        }
-
-        return invocationMethod;
+    public void decodeParameters(JsonArray parametersJson,
+            ConnectorTracker connectorTracker) {
+        setParameters(getRpcMethod().decodeParameters(parametersJson,
+                connectorTracker));
     }
 
     /**
-     * Tries to find the method from the class by looping through available
-     * methods.
+     * Checks whether this invocation is superseded by a later invocation of
+     * the same method for the same connector, so that only the last one of
+     * them needs to be invoked.
+     *
+     * @see com.vaadin.shared.annotations.Delayed#lastOnly()
+     * @see com.vaadin.shared.annotations.Coalesced
      *
-     * @param targetType
-     * @param methodName
-     * @param parameterCount
-     * @return
+     * @since 8.0
+     * @return <code>true</code> if only the last invocation of the method is
+     *         of interest, otherwise <code>false</code>
      */
-    private Method doFindInvocationMethod(Class<?> targetType,
-            String methodName, int parameterCount) {
-        Method[] methods = targetType.getMethods();
-        for (Method method : methods) {
-            Class<?>[] parameterTypes = method.getParameterTypes();
-            if (method.getName().equals(methodName)
-                    && parameterTypes.length == parameterCount) {
-                return method;
-            }
+    public boolean isLastOnly() {
+        return getRpcMethod().isLastOnly();
+    }
+
+    ServerRpcMethod getRpcMethod() {
+        if (rpcMethod == null) {
+            // Not restored when deserialized
+            rpcMethod = ServerRpcMethod.find(interfaceClass, method.getName(),
+                    method.getParameterCount());
         }
-        return null;
+        return rpcMethod;
     }
 
 }
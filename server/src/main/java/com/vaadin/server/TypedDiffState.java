@@ -0,0 +1,136 @@
+/*
+ * Copyright 2000-2016 Vaadin Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.vaadin.server;
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.HashMap;
+
+import com.vaadin.shared.communication.SharedState;
+
+import elemental.json.JsonObject;
+
+/**
+ * The values of a bean, typically a {@link SharedState}, that were last sent
+ * to the client, stored per property as Java values.
+ * <p>
+ * Boolean and numeric properties are stored as unboxed <code>double</code>
+ * values and strings as they are, so that the current value of such a property
+ * can be compared to the last sent value without encoding it to JSON first.
+ * Other properties are stored in their encoded JSON form.
+ * <p>
+ * A typed diff state is used instead of a {@link JsonObject} diff state when
+ * {@link Constants#SERVLET_PARAMETER_TYPED_DIFF_STATE} is enabled. It is
+ * created using {@link JsonCodec#createTypedDiffState(Class)} and updated by
+ * {@link JsonCodec#encodeDiff(Object, TypedDiffState, com.vaadin.ui.ConnectorTracker)}.
+ *
+ * @author Vaadin Ltd
+ * @since 8.0
+ */
+public class TypedDiffState implements Serializable {
+
+    private Class<?> type;
+
+    /*
+     * Values of boolean (1 or 0) and numeric properties, indexed in the
+     * property order used by JsonCodec. NaN means that the value is not known,
+     * which makes it differ from any current value.
+     */
+    transient double[] numbers;
+
+    /*
+     * Values of string properties as String and of other properties as
+     * JsonValue. Null means that the value is null or not known.
+     */
+    transient Object[] values;
+
+    TypedDiffState(Class<?> type, int propertyCount) {
+        this.type = type;
+        numbers = new double[propertyCount];
+        Arrays.fill(numbers, Double.NaN);
+        values = new Object[propertyCount];
+    }
+
+    private TypedDiffState(TypedDiffState source) {
+        type = source.type;
+        numbers = source.numbers.clone();
+        values = source.values.clone();
+    }
+
+    /**
+     * Gets the bean type this diff state is for.
+     *
+     * @return the bean type, not <code>null</code>
+     */
+    public Class<?> getType() {
+        return type;
+    }
+
+    /**
+     * Creates a copy of this diff state that can be updated independently of
+     * this instance.
+     *
+     * @return a copy of this diff state
+     */
+    public TypedDiffState copy() {
+        return new TypedDiffState(this);
+    }
+
+    /**
+     * Converts this diff state to the JSON format that is used for diff states
+     * when typed diff states are not in use. Properties with an unknown value
+     * are not included.
+     *
+     * @return a new JSON object representing this diff state
+     */
+    public JsonObject toJson() {
+        return JsonCodec.typedDiffStateToJson(this);
+    }
+
+    /**
+     * Replaces the values in this diff state with the values in the given JSON
+     * diff state. Properties that are not present in the JSON object are
+     * considered unknown, so their current value will be sent the next time
+     * the bean is encoded.
+     *
+     * @param diffState
+     *            the JSON diff state to read values from, not
+     *            <code>null</code>
+     */
+    public void update(JsonObject diffState) {
+        JsonCodec.updateTypedDiffState(this, diffState);
+    }
+
+    private void writeObject(ObjectOutputStream out) throws IOException {
+        out.defaultWriteObject();
+        // Write values by property name since the property order can differ
+        // between JVMs
+        out.writeObject(JsonCodec.getTypedDiffStateValues(this));
+    }
+
+    private void readObject(ObjectInputStream in)
+            throws IOException, ClassNotFoundException {
+        in.defaultReadObject();
+        @SuppressWarnings("unchecked")
+        HashMap<String, Object> propertyValues = (HashMap<String, Object>) in
+                .readObject();
+        JsonCodec.setTypedDiffStateValues(this, propertyValues);
+    }
+}
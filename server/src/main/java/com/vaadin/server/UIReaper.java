@@ -0,0 +1,278 @@
+/*
+ * Copyright 2000-2016 Vaadin Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.vaadin.server;
+
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import com.vaadin.ui.UI;
+
+/**
+ * Closes and removes UIs that have not received a heartbeat or UIDL request
+ * within the heartbeat timeout, without waiting for another request to the
+ * same session. Without a reaper, inactive UIs are only removed at the end of
+ * a request to their session, so a session that receives no more requests
+ * keeps its inactive UIs until the underlying HTTP session expires.
+ * <p>
+ * Tracked UIs are kept in a priority queue ordered by the time they expire
+ * unless another heartbeat is received. Heartbeats do not update the queue:
+ * when a UI reaches the head of the queue, its heartbeat timestamp is checked
+ * again and the UI is put back in the queue if it has received a heartbeat in
+ * the meantime. Expired UIs are closed and removed using
+ * {@link VaadinSession#access(Runnable)}, so the reaper never waits for a
+ * session lock.
+ * <p>
+ * A reaper is used by {@link VaadinService} when
+ * {@link Constants#SERVLET_PARAMETER_UI_REAPER} is enabled and heartbeats are
+ * enabled.
+ *
+ * @author Vaadin Ltd
+ * @since 8.0
+ */
+public class UIReaper {
+
+    private static class Entry implements Comparable<Entry> {
+        private final WeakReference<UI> ui;
+        private long deadline;
+
+        private Entry(UI ui, long deadline) {
+            this.ui = new WeakReference<>(ui);
+            this.deadline = deadline;
+        }
+
+        @Override
+        public int compareTo(Entry other) {
+            return Long.compare(deadline, other.deadline);
+        }
+    }
+
+    private final long timeout;
+
+    private final ScheduledExecutorService executor;
+
+    // Guarded by itself
+    private final PriorityQueue<Entry> queue = new PriorityQueue<>();
+
+    private final AtomicLong reapedUIs = new AtomicLong();
+    private final AtomicLong reapedConnectors = new AtomicLong();
+
+    /**
+     * Creates a new reaper for the given heartbeat timeout. Expired UIs are
+     * looked for with an interval of a quarter of the timeout, but at most once
+     * per second.
+     *
+     * @param timeout
+     *            the time in milliseconds after the last heartbeat when a UI
+     *            is considered inactive, must be positive
+     */
+    public UIReaper(long timeout) {
+        this(timeout, Math.max(1000, timeout / 4));
+    }
+
+    /**
+     * Creates a new reaper for the given heartbeat timeout, looking for
+     * expired UIs with the given interval.
+     *
+     * @param timeout
+     *            the time in milliseconds after the last heartbeat when a UI
+     *            is considered inactive, must be positive
+     * @param interval
+     *            the time in milliseconds between two checks for expired UIs,
+     *            must be positive
+     */
+    public UIReaper(long timeout, long interval) {
+        if (timeout <= 0) {
+            throw new IllegalArgumentException(
+                    "The timeout must be positive, was " + timeout);
+        }
+        if (interval <= 0) {
+            throw new IllegalArgumentException(
+                    "The interval must be positive, was " + interval);
+        }
+        this.timeout = timeout;
+        executor = Executors.newSingleThreadScheduledExecutor(
+                createThreadFactory());
+        executor.scheduleWithFixedDelay(this::reapExpiredUIs, interval,
+                interval, TimeUnit.MILLISECONDS);
+    }
+
+    private static ThreadFactory createThreadFactory() {
+        return runnable -> {
+            Thread thread = new Thread(runnable, "Vaadin UI reaper");
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    /**
+     * Gets the heartbeat timeout used by this reaper.
+     *
+     * @return the time in milliseconds after the last heartbeat when a UI is
+     *         considered inactive
+     */
+    public long getTimeout() {
+        return timeout;
+    }
+
+    /**
+     * Starts tracking the given UI. The UI is only weakly referenced, so
+     * tracking does not prevent it from being garbage collected if it is
+     * removed from its session in some other way.
+     * <p>
+     * This method is called by the framework when a UI has been added to its
+     * session and is not intended to be used by application developers.
+     *
+     * @param ui
+     *            the UI to track, not <code>null</code>
+     */
+    public void track(UI ui) {
+        Entry entry = new Entry(ui, ui.getLastHeartbeatTimestamp() + timeout);
+        synchronized (queue) {
+            queue.add(entry);
+        }
+    }
+
+    /**
+     * Closes and removes the tracked UIs that have not received a heartbeat
+     * within the timeout. This is run periodically by the reaper, but can also
+     * be called to reap expired UIs right away.
+     */
+    public void reapExpiredUIs() {
+        long now = System.currentTimeMillis();
+        List<Entry> expired = new ArrayList<>();
+        synchronized (queue) {
+            while (!queue.isEmpty() && queue.peek().deadline <= now) {
+                expired.add(queue.poll());
+            }
+        }
+
+        for (Entry entry : expired) {
+            UI ui = entry.ui.get();
+            VaadinSession session = ui != null ? ui.getSession() : null;
+            if (session == null) {
+                // Already removed from its session
+                continue;
+            }
+            long deadline = ui.getLastHeartbeatTimestamp() + timeout;
+            if (deadline > now) {
+                entry.deadline = deadline;
+                synchronized (queue) {
+                    queue.add(entry);
+                }
+            } else {
+                try {
+                    session.access(() -> reap(entry, ui, session));
+                } catch (RuntimeException e) {
+                    getLogger().log(Level.WARNING,
+                            "Could not close inactive UI " + ui.getUIId(), e);
+                }
+            }
+        }
+    }
+
+    private void reap(Entry entry, UI ui, VaadinSession session) {
+        if (ui.getSession() != session) {
+            return;
+        }
+        long deadline = ui.getLastHeartbeatTimestamp() + timeout;
+        if (!ui.isClosing() && deadline > System.currentTimeMillis()) {
+            // Received a heartbeat while waiting for the session lock
+            entry.deadline = deadline;
+            synchronized (queue) {
+                queue.add(entry);
+            }
+            return;
+        }
+
+        ui.accessSynchronously(() -> {
+            getLogger().log(Level.FINE, "Closing inactive UI #{0}",
+                    ui.getUIId());
+            int connectors = countConnectors(ui);
+            if (!ui.isClosing()) {
+                ui.close();
+            }
+            session.removeUI(ui);
+            reapedUIs.incrementAndGet();
+            reapedConnectors.addAndGet(connectors);
+        });
+    }
+
+    private static int countConnectors(ClientConnector connector) {
+        int count = 1;
+        for (ClientConnector child : AbstractClientConnector
+                .getAllChildrenIterable(connector)) {
+            count += countConnectors(child);
+        }
+        return count;
+    }
+
+    /**
+     * Gets the number of UIs that are currently tracked by this reaper,
+     * including UIs that have already been removed but not yet discarded.
+     *
+     * @return the number of tracked UIs
+     */
+    public int getTrackedUIs() {
+        synchronized (queue) {
+            return queue.size();
+        }
+    }
+
+    /**
+     * Gets the number of inactive UIs that have been closed and removed by
+     * this reaper.
+     *
+     * @return the number of reaped UIs
+     */
+    public long getReapedUIs() {
+        return reapedUIs.get();
+    }
+
+    /**
+     * Gets the total number of connectors, including the UIs themselves, in
+     * the UIs that have been removed by this reaper. This is an indication of
+     * how much memory has been made available for garbage collection.
+     *
+     * @return the number of reaped connectors
+     */
+    public long getReapedConnectors() {
+        return reapedConnectors.get();
+    }
+
+    /**
+     * Stops this reaper. Tracked UIs are no longer checked.
+     */
+    public void shutdown() {
+        executor.shutdownNow();
+        synchronized (queue) {
+            queue.clear();
+        }
+    }
+
+    private static Logger getLogger() {
+        return Logger.getLogger(UIReaper.class.getName());
+    }
+}
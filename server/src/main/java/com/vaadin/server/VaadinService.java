@@ -20,6 +20,7 @@ import java.io.BufferedWriter;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.ObjectInputStream;
 import java.io.OutputStream;
 import java.io.OutputStreamWriter;
 import java.io.PrintWriter;
@@ -28,18 +29,28 @@ import java.lang.reflect.Constructor;
 import java.net.MalformedURLException;
 import java.net.URL;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
+import java.util.Queue;
 import java.util.ServiceLoader;
 import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Future;
+import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantLock;
 import java.util.logging.Level;
@@ -65,6 +76,7 @@ import com.vaadin.shared.JsonConstants;
 import com.vaadin.shared.Registration;
 import com.vaadin.shared.ui.ui.UIConstants;
 import com.vaadin.ui.UI;
+import com.vaadin.ui.UIDetachedException;
 import com.vaadin.util.CurrentInstance;
 
 import elemental.json.Json;
@@ -114,6 +126,18 @@ public abstract class VaadinService implements Serializable {
 
     private static final String REQUEST_START_TIME_ATTRIBUTE = "requestStartTime";
 
+    /*
+     * The number of read-aheads that can be queued for each read-ahead thread.
+     */
+    private static final int READ_AHEAD_QUEUE_PER_THREAD = 4;
+
+    /*
+     * Guards creating the lock of a session. A lock is used instead of
+     * synchronizing on the class, since accessing the session attributes while
+     * holding a monitor pins the carrier of a virtual thread.
+     */
+    private static final Lock SESSION_LOCK_CREATION_LOCK = new ReentrantLock();
+
     private final DeploymentConfiguration deploymentConfiguration;
 
     /*
@@ -150,6 +174,25 @@ public abstract class VaadinService implements Serializable {
      */
     private boolean initialized = false;
 
+    private transient PushScheduler pushScheduler;
+
+    private transient UIReaper uiReaper;
+
+    private transient ExecutorService readAheadExecutor;
+
+    /*
+     * Tasks waiting for a session lock to be released, see
+     * runWhenUnlocked(Lock, SerializableSupplier). The locks are not
+     * serializable, so neither are the tasks waiting for them.
+     */
+    private transient ConcurrentHashMap<Lock, Queue<SerializableSupplier<Boolean>>> unlockTasks = new ConcurrentHashMap<>();
+
+    /*
+     * The task that was last run for a session lock and started something
+     * that is expected to lock the session, until the lock is released again.
+     */
+    private transient ConcurrentHashMap<Lock, SerializableSupplier<Boolean>> startedUnlockTasks = new ConcurrentHashMap<>();
+
     /**
      * Creates a new vaadin service based on a deployment configuration
      *
@@ -206,9 +249,164 @@ public abstract class VaadinService implements Serializable {
 
         requestHandlers = Collections.unmodifiableCollection(handlers);
 
+        pushScheduler = createPushScheduler();
+        uiReaper = createUIReaper();
+        readAheadExecutor = createReadAheadExecutor();
+
         initialized = true;
     }
 
+    /**
+     * Creates the push scheduler used for limiting how often changes are
+     * pushed to UIs using automatic push. The default implementation creates a
+     * scheduler if {@link Constants#SERVLET_PARAMETER_PUSH_COALESCING_WINDOW}
+     * is set to a positive value, sending deferred pushes using the number of
+     * threads set by
+     * {@link Constants#SERVLET_PARAMETER_PUSH_COALESCING_THREADS}.
+     *
+     * @since 8.0
+     * @return the push scheduler to use, or <code>null</code> to push changes
+     *         every time a session is unlocked
+     */
+    protected PushScheduler createPushScheduler() {
+        String window = getDeploymentConfiguration()
+                .getApplicationOrSystemProperty(
+                        Constants.SERVLET_PARAMETER_PUSH_COALESCING_WINDOW,
+                        "0");
+        long windowMillis;
+        try {
+            windowMillis = Long.parseLong(window);
+        } catch (NumberFormatException e) {
+            getLogger().log(Level.WARNING,
+                    "Invalid value {0} for {1}, pushes will not be coalesced",
+                    new Object[] { window,
+                            Constants.SERVLET_PARAMETER_PUSH_COALESCING_WINDOW });
+            return null;
+        }
+        if (windowMillis <= 0) {
+            return null;
+        }
+
+        String threads = getDeploymentConfiguration()
+                .getApplicationOrSystemProperty(
+                        Constants.SERVLET_PARAMETER_PUSH_COALESCING_THREADS,
+                        String.valueOf(
+                                Constants.DEFAULT_PUSH_COALESCING_THREADS));
+        int threadCount;
+        try {
+            threadCount = Integer.parseInt(threads);
+        } catch (NumberFormatException e) {
+            threadCount = 0;
+        }
+        if (threadCount <= 0) {
+            getLogger().log(Level.WARNING,
+                    "Invalid value {0} for {1}, using {2} threads",
+                    new Object[] { threads,
+                            Constants.SERVLET_PARAMETER_PUSH_COALESCING_THREADS,
+                            Constants.DEFAULT_PUSH_COALESCING_THREADS });
+            threadCount = Constants.DEFAULT_PUSH_COALESCING_THREADS;
+        }
+        return new PushScheduler(windowMillis, threadCount);
+    }
+
+    /**
+     * Creates the reaper used for closing inactive UIs in the background. The
+     * default implementation creates a reaper if
+     * {@link Constants#SERVLET_PARAMETER_UI_REAPER} is enabled and heartbeats
+     * are enabled.
+     *
+     * @since 8.0
+     * @return the UI reaper to use, or <code>null</code> to close inactive UIs
+     *         at the end of requests to their sessions
+     */
+    protected UIReaper createUIReaper() {
+        boolean enabled = Boolean.parseBoolean(getDeploymentConfiguration()
+                .getApplicationOrSystemProperty(
+                        Constants.SERVLET_PARAMETER_UI_REAPER, "false"));
+        int timeout = getHeartbeatTimeout();
+        if (enabled && timeout > 0) {
+            return new UIReaper(1000L * timeout);
+        }
+        return null;
+    }
+
+    /**
+     * Gets the reaper used for closing inactive UIs in the background.
+     *
+     * @since 8.0
+     * @return the UI reaper, or <code>null</code> if inactive UIs are closed
+     *         at the end of requests to their sessions
+     */
+    public UIReaper getUIReaper() {
+        return uiReaper;
+    }
+
+    /**
+     * Creates the executor used by data communicators for fetching rows ahead
+     * of the rows requested by the client, without holding the session lock.
+     * The default implementation creates a thread pool if
+     * {@link Constants#SERVLET_PARAMETER_DATA_READ_AHEAD_THREADS} is set to a
+     * positive value. The queue of the pool is bounded, and rows are not read
+     * ahead when the queue is full.
+     *
+     * @since 8.0
+     * @return the executor to use, or <code>null</code> to only fetch the rows
+     *         requested by the client
+     */
+    protected ExecutorService createReadAheadExecutor() {
+        String threads = getDeploymentConfiguration()
+                .getApplicationOrSystemProperty(
+                        Constants.SERVLET_PARAMETER_DATA_READ_AHEAD_THREADS,
+                        "0");
+        try {
+            int threadCount = Integer.parseInt(threads);
+            if (threadCount > 0) {
+                // Read-aheads that can't be queued are skipped, since the
+                // rows would be stale by the time a long queue is processed
+                return new ThreadPoolExecutor(threadCount, threadCount, 0L,
+                        TimeUnit.MILLISECONDS,
+                        new ArrayBlockingQueue<>(
+                                threadCount * READ_AHEAD_QUEUE_PER_THREAD),
+                        runnable -> {
+                            Thread thread = new Thread(runnable,
+                                    "Vaadin data read-ahead");
+                            thread.setDaemon(true);
+                            return thread;
+                        });
+            }
+        } catch (NumberFormatException e) {
+            getLogger().log(Level.WARNING,
+                    "Invalid value {0} for {1}, rows will not be read ahead",
+                    new Object[] { threads,
+                            Constants.SERVLET_PARAMETER_DATA_READ_AHEAD_THREADS });
+        }
+        return null;
+    }
+
+    /**
+     * Gets the executor used by data communicators for fetching rows ahead of
+     * the rows requested by the client.
+     *
+     * @since 8.0
+     * @return the read-ahead executor, or <code>null</code> if rows are not
+     *         read ahead
+     */
+    public Executor getReadAheadExecutor() {
+        return readAheadExecutor;
+    }
+
+    /**
+     * Gets the push scheduler used for limiting how often changes are pushed
+     * to UIs using automatic push.
+     *
+     * @since 8.0
+     * @return the push scheduler, or <code>null</code> if changes are pushed
+     *         every time a session is unlocked
+     */
+    public PushScheduler getPushScheduler() {
+        return pushScheduler;
+    }
+
     /**
      * Gets all available service init listeners. A custom Vaadin service
      * implementation can override this method to discover init listeners in
@@ -532,6 +730,21 @@ public abstract class VaadinService implements Serializable {
                 }
             }
             session.setState(State.CLOSED);
+            /*
+             * Nothing will release the lock of a destroyed session for the
+             * tasks still in the queue, so run them right away. Deferred
+             * requests then fail through the usual handling of expired
+             * sessions instead of waiting for their timeout.
+             */
+            Lock lock = session.getLockInstance();
+            if (lock != null) {
+                startedUnlockTasks.remove(lock);
+                Queue<SerializableSupplier<Boolean>> tasks = unlockTasks
+                        .remove(lock);
+                if (tasks != null) {
+                    tasks.forEach(this::runUnlockTask);
+                }
+            }
         });
     }
 
@@ -661,12 +874,15 @@ public abstract class VaadinService implements Serializable {
              * the CPU flushes its caches and reads the value directly from main
              * memory).
              */
-            synchronized (VaadinService.class) {
+            SESSION_LOCK_CREATION_LOCK.lock();
+            try {
                 lock = getSessionLock(wrappedSession);
                 if (lock == null) {
                     lock = new ReentrantLock();
                     setSessionLock(wrappedSession, lock);
                 }
+            } finally {
+                SESSION_LOCK_CREATION_LOCK.unlock();
             }
         }
         lock.lock();
@@ -695,7 +911,136 @@ public abstract class VaadinService implements Serializable {
         assert getSessionLock(wrappedSession) != null;
         assert ((ReentrantLock) getSessionLock(wrappedSession))
                 .isHeldByCurrentThread() : "Trying to unlock the session but it has not been locked by this thread";
-        getSessionLock(wrappedSession).unlock();
+        Lock lock = getSessionLock(wrappedSession);
+        lock.unlock();
+        if (!((ReentrantLock) lock).isHeldByCurrentThread()) {
+            sessionLockReleased(lock);
+        }
+    }
+
+    /**
+     * Runs the given task when the given session lock is not held by any
+     * thread, without blocking the current thread while waiting. If the lock is
+     * free, the task is run right away in the current thread. Otherwise the
+     * task is run by the thread that releases the lock.
+     * <p>
+     * Tasks are run one at a time in the order they were added. A task returns
+     * <code>true</code> if it has started something that will lock the
+     * session, in which case the next task is run when the lock is released
+     * again, or <code>false</code> if it did nothing, in which case the next
+     * task is run right away. Tasks should return quickly since they are run
+     * by the thread that released the lock.
+     *
+     * @since 8.0
+     * @param lock
+     *            the session lock to wait for, not <code>null</code>
+     * @param task
+     *            the task to run, not <code>null</code>
+     */
+    protected void runWhenUnlocked(Lock lock,
+            SerializableSupplier<Boolean> task) {
+        assert lock != null;
+        assert task != null;
+        unlockTasks.compute(lock, (key, tasks) -> {
+            if (tasks == null) {
+                tasks = new ConcurrentLinkedQueue<>();
+            }
+            tasks.add(task);
+            return tasks;
+        });
+
+        /*
+         * The lock might have been released before the task was added, in
+         * which case nobody would run it. Run it here if the lock is free.
+         */
+        if (lock.tryLock()) {
+            lock.unlock();
+            sessionLockReleased(lock);
+        }
+    }
+
+    /**
+     * Removes a task added using
+     * {@link #runWhenUnlocked(Lock, SerializableSupplier)} that has not been
+     * run yet, e.g. because whatever it was waiting to do has already been
+     * done in some other way.
+     *
+     * @since 8.0
+     * @param lock
+     *            the session lock the task is waiting for, not
+     *            <code>null</code>
+     * @param task
+     *            the task to remove, not <code>null</code>
+     */
+    protected void removeWhenUnlocked(Lock lock,
+            SerializableSupplier<Boolean> task) {
+        assert lock != null;
+        assert task != null;
+        unlockTasks.computeIfPresent(lock, (key, tasks) -> {
+            tasks.remove(task);
+            return tasks.isEmpty() ? null : tasks;
+        });
+    }
+
+    /**
+     * Informs that whatever a task added using
+     * {@link #runWhenUnlocked(Lock, SerializableSupplier)} started when it
+     * returned <code>true</code> has finished. If the lock has not been
+     * released since the task was run, e.g. because a dispatched request
+     * failed before locking the session, the next task is run right away
+     * instead of waiting for an unrelated unlock.
+     *
+     * @since 8.0
+     * @param lock
+     *            the session lock the task waited for, not <code>null</code>
+     * @param task
+     *            the task that was run, not <code>null</code>
+     */
+    protected void unlockTaskFinished(Lock lock,
+            SerializableSupplier<Boolean> task) {
+        assert lock != null;
+        assert task != null;
+        if (startedUnlockTasks.remove(lock, task)) {
+            sessionLockReleased(lock);
+        }
+    }
+
+    /**
+     * Runs the next task added using
+     * {@link #runWhenUnlocked(Lock, SerializableSupplier)} for the given lock,
+     * if any. Should be called after the lock has been released.
+     *
+     * @param lock
+     *            the released session lock
+     */
+    void sessionLockReleased(Lock lock) {
+        if (unlockTasks.isEmpty()) {
+            return;
+        }
+        startedUnlockTasks.remove(lock);
+        Queue<SerializableSupplier<Boolean>> tasks = unlockTasks.get(lock);
+        while (tasks != null && !((ReentrantLock) lock).isLocked()) {
+            SerializableSupplier<Boolean> task = tasks.poll();
+            if (task == null) {
+                unlockTasks.computeIfPresent(lock,
+                        (key, queue) -> queue.isEmpty() ? null : queue);
+                return;
+            }
+            if (runUnlockTask(task)) {
+                startedUnlockTasks.put(lock, task);
+                return;
+            }
+        }
+    }
+
+    private boolean runUnlockTask(SerializableSupplier<Boolean> task) {
+        try {
+            return task.get();
+        } catch (RuntimeException e) {
+            getLogger().log(Level.WARNING,
+                    "Error running a task waiting for a session lock", e);
+            return false;
+        }
     }
 
     private VaadinSession findOrCreateVaadinSession(VaadinRequest request)
@@ -704,6 +1049,13 @@ public abstract class VaadinService implements Serializable {
         WrappedSession wrappedSession = getWrappedSession(request,
                 requestCanCreateSession);
 
+        if (!requestCanCreateSession && isLockFreeRequest(request)) {
+            VaadinSession session = findBusySession(request, wrappedSession);
+            if (session != null) {
+                return session;
+            }
+        }
+
         try {
             lockSession(wrappedSession);
         } catch (IllegalStateException e) {
@@ -719,6 +1071,58 @@ public abstract class VaadinService implements Serializable {
 
     }
 
+    /**
+     * Finds the existing session for a lock free request without locking it, if
+     * the session is currently locked by another thread. The thread holding the
+     * lock has already refreshed the transient fields of the session.
+     *
+     * @return the session, or <code>null</code> if the session should be
+     *         found by locking it as usual
+     */
+    private VaadinSession findBusySession(VaadinRequest request,
+            WrappedSession wrappedSession) {
+        Lock lock = getSessionLock(wrappedSession);
+        if (lock == null || !((ReentrantLock) lock).isLocked()
+                || hasParameter(request, URL_PARAMETER_RESTART_APPLICATION)
+                || hasParameter(request, URL_PARAMETER_CLOSE_APPLICATION)) {
+            return null;
+        }
+        try {
+            VaadinSession session = readFromHttpSession(wrappedSession);
+            if (session == null || session.getService() != this) {
+                return null;
+            }
+            return session;
+        } catch (IllegalStateException e) {
+            // Session invalidated, let the normal path deal with it
+            return null;
+        }
+    }
+
+    /**
+     * Checks whether the given request can be handled without waiting for the
+     * session lock. Such a request does not lock the session when finding it,
+     * and skips the session cleanup at the end of the request, if the session
+     * is locked by another thread. The thread holding the lock takes care of
+     * the cleanup instead.
+     * <p>
+     * The request handlers for these requests must not assume that the session
+     * is locked. The default implementation returns <code>true</code> for
+     * heartbeat requests and for connector and published file resource
+     * requests, which are handled using lookups that do not require the session
+     * lock.
+     *
+     * @since 8.0
+     * @param request
+     *            the request to check, not <code>null</code>
+     * @return <code>true</code> if the request does not need to wait for the
+     *         session lock, otherwise <code>false</code>
+     */
+    protected boolean isLockFreeRequest(VaadinRequest request) {
+        return ServletPortletHelper.isHeartbeatRequest(request)
+                || ServletPortletHelper.isAppRequest(request);
+    }
+
     /**
      * Finds or creates a Vaadin session. Assumes necessary synchronization has
      * been done by the caller to ensure this is not called simultaneously by
@@ -1197,14 +1601,17 @@ public abstract class VaadinService implements Serializable {
 
     /**
      * Called at the end of a request, after sending the response. Closes
-     * inactive UIs in the given session, removes closed UIs from the session,
-     * and closes the session if it is itself inactive.
+     * inactive UIs in the given session unless they are closed by a
+     * {@link UIReaper}, removes closed UIs from the session, and closes the
+     * session if it is itself inactive.
      *
      * @param session
      */
     void cleanupSession(VaadinSession session) {
         if (isSessionActive(session)) {
-            closeInactiveUIs(session);
+            if (uiReaper == null) {
+                closeInactiveUIs(session);
+            }
             removeClosedUIs(session);
         } else {
             if (session.getState() == State.OPEN) {
@@ -1401,6 +1808,16 @@ public abstract class VaadinService implements Serializable {
             VaadinSession session) {
         if (session != null) {
             assert VaadinSession.getCurrent() == session;
+            Lock lock = session.getLockInstance();
+            if (lock instanceof ReentrantLock
+                    && ((ReentrantLock) lock).isLocked()
+                    && !((ReentrantLock) lock).isHeldByCurrentThread()
+                    && isLockFreeRequest(request)) {
+                // Skip the cleanup instead of waiting, it is done at the end
+                // of a later request
+                CurrentInstance.clearAll();
+                return;
+            }
             session.lock();
             try {
                 cleanupSession(session);
@@ -1493,6 +1910,13 @@ public abstract class VaadinService implements Serializable {
                 errorHandler.error(new ErrorEvent(t));
             }
 
+            if (t instanceof AbortedResponseException) {
+                // Part of the response has already been sent, so let the
+                // container close the connection instead of appending an
+                // error response to it
+                throw new ServiceException(t);
+            }
+
             // if this was an UIDL request, send UIDL back to the client
             if (ServletPortletHelper.isUIDLRequest(request)) {
                 SystemMessages ci = getSystemMessages(ServletPortletHelper
@@ -1855,6 +2279,119 @@ public abstract class VaadinService implements Serializable {
         }
     }
 
+    /**
+     * Provides exclusive access to many UIs for running the given runnables.
+     * This is a more efficient alternative to calling
+     * {@link UI#access(Runnable)} separately for each runnable when the same
+     * update is delivered to a large number of UIs.
+     * <p>
+     * The runnables for each UI are run in the given order using
+     * {@link UI#accessBatch(Collection)}. All runnables for UIs in the same
+     * session are run while the session lock is held once, so changes are
+     * pushed at most once to each UI using automatic push mode. UIs that are
+     * not attached to a session are ignored.
+     *
+     * @since 8.0
+     * @param runnables
+     *            the runnables to run for each UI, not <code>null</code>
+     * @return a future that can be used to check for completion of all the
+     *         runnables and to cancel the ones that have not yet been run
+     */
+    public Future<Void> accessUIs(
+            Map<UI, ? extends Collection<? extends Runnable>> runnables) {
+        Map<VaadinSession, List<UI>> uisBySession = new LinkedHashMap<>();
+        for (UI ui : runnables.keySet()) {
+            VaadinSession session = ui.getSession();
+            if (session != null) {
+                uisBySession
+                        .computeIfAbsent(session, key -> new ArrayList<>())
+                        .add(ui);
+            }
+        }
+
+        List<Future<Void>> futures = new ArrayList<>();
+        for (Map.Entry<VaadinSession, List<UI>> entry : uisBySession
+                .entrySet()) {
+            VaadinSession session = entry.getKey();
+            /*
+             * If the lock is acquired here, the tasks are enqueued without
+             * purging the queue for each task and they are all run when the
+             * lock is released. Otherwise the thread holding the lock runs
+             * them when it releases the lock.
+             */
+            boolean locked = false;
+            try {
+                locked = session.getLockInstance().tryLock(0,
+                        TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                // Just ignore
+            }
+            try {
+                for (UI ui : entry.getValue()) {
+                    try {
+                        futures.add(ui.accessBatch(runnables.get(ui)));
+                    } catch (UIDetachedException e) {
+                        // Ignore UIs detached after grouping
+                    }
+                }
+            } finally {
+                if (locked) {
+                    session.unlock();
+                }
+            }
+        }
+        return new AggregateFuture(futures);
+    }
+
+    /**
+     * A future that completes when all the given futures have completed.
+     */
+    private static class AggregateFuture implements Future<Void> {
+        private final List<Future<Void>> futures;
+
+        private AggregateFuture(List<Future<Void>> futures) {
+            this.futures = futures;
+        }
+
+        @Override
+        public boolean cancel(boolean mayInterruptIfRunning) {
+            boolean cancelled = false;
+            for (Future<Void> future : futures) {
+                cancelled |= future.cancel(mayInterruptIfRunning);
+            }
+            return cancelled;
+        }
+
+        @Override
+        public boolean isCancelled() {
+            return futures.stream().anyMatch(Future::isCancelled);
+        }
+
+        @Override
+        public boolean isDone() {
+            return futures.stream().allMatch(Future::isDone);
+        }
+
+        @Override
+        public Void get() throws InterruptedException, ExecutionException {
+            for (Future<Void> future : futures) {
+                future.get();
+            }
+            return null;
+        }
+
+        @Override
+        public Void get(long timeout, TimeUnit unit)
+                throws InterruptedException, ExecutionException,
+                TimeoutException {
+            long deadline = System.nanoTime() + unit.toNanos(timeout);
+            for (Future<Void> future : futures) {
+                future.get(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+            }
+            return null;
+        }
+    }
+
     /**
      * Purges the queue of pending access invocations enqueued with
      * {@link VaadinSession#access(Runnable)}.
@@ -1953,6 +2490,15 @@ public abstract class VaadinService implements Serializable {
         ServiceDestroyEvent event = new ServiceDestroyEvent(this);
         serviceDestroyListeners
                 .forEach(listener -> listener.serviceDestroy(event));
+        if (pushScheduler != null) {
+            pushScheduler.shutdown();
+        }
+        if (uiReaper != null) {
+            uiReaper.shutdown();
+        }
+        if (readAheadExecutor != null) {
+            readAheadExecutor.shutdownNow();
+        }
     }
 
     /**
@@ -2085,4 +2631,11 @@ public abstract class VaadinService implements Serializable {
         return VaadinSession.class.getName() + "." + getServiceName();
     }
 
+    private void readObject(ObjectInputStream stream)
+            throws IOException, ClassNotFoundException {
+        stream.defaultReadObject();
+        unlockTasks = new ConcurrentHashMap<>();
+        startedUnlockTasks = new ConcurrentHashMap<>();
+    }
+
 }
@@ -376,6 +376,9 @@ public class VaadinServlet extends HttpServlet implements Constants {
                 CurrentInstance.clearAll();
             }
         }
+        if (getService().deferWhileSessionLocked(vaadinRequest)) {
+            return;
+        }
         try {
             getService().handleRequest(vaadinRequest, vaadinResponse);
         } catch (ServiceException e) {
@@ -22,9 +22,16 @@ import java.io.InputStream;
 import java.net.MalformedURLException;
 import java.net.URL;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
+import javax.servlet.AsyncContext;
+import javax.servlet.AsyncEvent;
+import javax.servlet.AsyncListener;
+import javax.servlet.DispatcherType;
 import javax.servlet.http.HttpServletRequest;
 
 import com.vaadin.server.communication.PushRequestHandler;
@@ -33,13 +40,85 @@ import com.vaadin.server.communication.ServletUIInitHandler;
 import com.vaadin.ui.UI;
 
 public class VaadinServletService extends VaadinService {
+
+    /**
+     * Dispatches a request that was put in asynchronous mode while waiting for
+     * its session to be unlocked. The request is dispatched at most once,
+     * either when the session is unlocked or when the asynchronous operation
+     * times out. The request is removed from the queue of requests waiting for
+     * the lock when it is dispatched or completed in some other way. When a
+     * request dispatched on unlock has been handled, the next waiting request
+     * is dispatched if the handled request never locked the session.
+     */
+    private class DeferredRequest implements AsyncListener {
+        private final AsyncContext context;
+        private final Lock lock;
+        private final SerializableSupplier<Boolean> task = this::dispatch;
+        private final AtomicBoolean dispatched = new AtomicBoolean();
+
+        public DeferredRequest(AsyncContext context, Lock lock) {
+            this.context = context;
+            this.lock = lock;
+        }
+
+        public void enqueue() {
+            runWhenUnlocked(lock, task);
+        }
+
+        public boolean dispatch() {
+            if (!dispatched.compareAndSet(false, true)) {
+                return false;
+            }
+            context.dispatch();
+            return true;
+        }
+
+        private void dequeue() {
+            removeWhenUnlocked(lock, task);
+        }
+
+        @Override
+        public void onTimeout(AsyncEvent event) throws IOException {
+            dequeue();
+            // Handle the request anyway, waiting for the lock if necessary
+            dispatch();
+        }
+
+        @Override
+        public void onError(AsyncEvent event) throws IOException {
+            finish();
+        }
+
+        @Override
+        public void onComplete(AsyncEvent event) throws IOException {
+            finish();
+        }
+
+        private void finish() {
+            dispatched.set(true);
+            dequeue();
+            unlockTaskFinished(lock, task);
+        }
+
+        @Override
+        public void onStartAsync(AsyncEvent event) throws IOException {
+            // Nothing to do
+        }
+    }
+
     private final VaadinServlet servlet;
 
+    private final boolean asyncUidlRequests;
+
     public VaadinServletService(VaadinServlet servlet,
             DeploymentConfiguration deploymentConfiguration)
             throws ServiceException {
         super(deploymentConfiguration);
         this.servlet = servlet;
+        asyncUidlRequests = Boolean.parseBoolean(
+                deploymentConfiguration.getApplicationOrSystemProperty(
+                        Constants.SERVLET_PARAMETER_ASYNC_UIDL_REQUESTS,
+                        "false"));
     }
 
     @Override
@@ -72,6 +151,54 @@ public class VaadinServletService extends VaadinService {
         return servlet;
     }
 
+    /**
+     * Puts the given request in asynchronous mode if it is a UIDL request for
+     * a session that is currently locked, so that no request thread is blocked
+     * while waiting for the lock. The request is dispatched again to the
+     * servlet when the session has been unlocked, and is then handled as
+     * usual.
+     * <p>
+     * Requests are only deferred if
+     * {@link Constants#SERVLET_PARAMETER_ASYNC_UIDL_REQUESTS} is enabled and
+     * the servlet supports asynchronous requests. Requests for which
+     * {@link #isLockFreeRequest(VaadinRequest)} returns <code>true</code>, such
+     * as heartbeat requests, are never deferred since they do not wait for the
+     * lock. A request that has already been deferred once is not deferred
+     * again, to avoid starving it when the session is busy.
+     *
+     * @since 8.0
+     * @param request
+     *            the request to potentially defer, not <code>null</code>
+     * @return <code>true</code> if the request has been deferred and should
+     *         not be handled now; <code>false</code> if the request should be
+     *         handled as usual
+     */
+    protected boolean deferWhileSessionLocked(VaadinServletRequest request) {
+        if (!asyncUidlRequests || !request.isAsyncSupported()
+                || request.getDispatcherType() == DispatcherType.ASYNC) {
+            return false;
+        }
+        if (!ServletPortletHelper.isUIDLRequest(request)
+                || isLockFreeRequest(request)) {
+            // Lock free requests are handled right away instead
+            return false;
+        }
+        WrappedSession wrappedSession = request.getWrappedSession(false);
+        if (wrappedSession == null) {
+            return false;
+        }
+        Lock lock = getSessionLock(wrappedSession);
+        if (lock == null || !((ReentrantLock) lock).isLocked()) {
+            return false;
+        }
+
+        AsyncContext context = request.startAsync();
+        DeferredRequest deferredRequest = new DeferredRequest(context, lock);
+        context.addListener(deferredRequest);
+        deferredRequest.enqueue();
+        return true;
+    }
+
     @Override
     public String getStaticFileLocation(VaadinRequest request) {
         VaadinServletRequest servletRequest = (VaadinServletRequest) request;
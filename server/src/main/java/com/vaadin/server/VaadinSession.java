@@ -33,7 +33,9 @@ import java.util.Map;
 import java.util.Queue;
 import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Future;
 import java.util.concurrent.FutureTask;
@@ -209,10 +211,14 @@ public class VaadinSession implements HttpSessionBindingListener, Serializable {
     @Deprecated
     private Object converterFactory;
 
-    private LinkedList<RequestHandler> requestHandlers = new LinkedList<>();
+    /*
+     * Request handlers and UIs can be looked up without locking the session,
+     * see getRequestHandlers() and getUIById(int)
+     */
+    private List<RequestHandler> requestHandlers = new CopyOnWriteArrayList<>();
 
     private int nextUIId = 0;
-    private Map<Integer, UI> uIs = new HashMap<>();
+    private Map<Integer, UI> uIs = new ConcurrentHashMap<>();
 
     private final Map<String, Integer> embedIdMap = new HashMap<>();
 
@@ -400,14 +406,16 @@ public class VaadinSession implements HttpSessionBindingListener, Serializable {
     }
 
     /**
-     * @return
+     * Gets the communication manager of this session. This method can be
+     * called without holding the session lock.
+     *
+     * @return the communication manager
      *
      * @deprecated As of 7.0. Will likely change or be removed in a future
      *             version
      */
     @Deprecated
     public LegacyCommunicationManager getCommunicationManager() {
-        assert hasLock();
         return communicationManager;
     }
 
@@ -641,7 +649,7 @@ public class VaadinSession implements HttpSessionBindingListener, Serializable {
      */
     public void addRequestHandler(RequestHandler handler) {
         assert hasLock();
-        requestHandlers.addFirst(handler);
+        requestHandlers.add(0, handler);
     }
 
     /**
@@ -661,6 +669,10 @@ public class VaadinSession implements HttpSessionBindingListener, Serializable {
      * Gets the request handlers that are registered to the session. The
      * iteration order of the returned collection is the same as the order in
      * which the request handlers will be invoked when a request is handled.
+     * <p>
+     * This method can be called without holding the session lock. Iterating
+     * the returned collection is not affected by handlers that are added or
+     * removed while iterating.
      *
      * @return a collection of request handlers, with the iteration order
      *         according to the order they would be invoked
@@ -671,7 +683,6 @@ public class VaadinSession implements HttpSessionBindingListener, Serializable {
      * @since 7.0
      */
     public Collection<RequestHandler> getRequestHandlers() {
-        assert hasLock();
         return Collections.unmodifiableCollection(requestHandlers);
     }
 
@@ -766,13 +777,17 @@ public class VaadinSession implements HttpSessionBindingListener, Serializable {
      * <p>
      * This is meant for framework internal use.
      * </p>
+     * <p>
+     * This method can be called without holding the session lock, e.g. for
+     * finding the UI of a heartbeat request while another request is being
+     * processed.
+     * </p>
      *
      * @param uiId
      *            The UI id
      * @return The UI with the given id or null if not found
      */
     public UI getUIById(int uiId) {
-        assert hasLock();
         return uIs.get(uiId);
     }
 
@@ -984,6 +999,8 @@ public class VaadinSession implements HttpSessionBindingListener, Serializable {
      * For UIs in this session that have its push mode set to
      * {@link PushMode#AUTOMATIC automatic}, pending changes will be pushed to
      * their respective clients.
+     * If the service has a {@link PushScheduler}, the push may be deferred to
+     * limit how often changes are pushed to the same UI.
      *
      * @see #lock()
      * @see UI#push()
@@ -1000,9 +1017,12 @@ public class VaadinSession implements HttpSessionBindingListener, Serializable {
                 ultimateRelease = true;
                 getService().runPendingAccessTasks(this);
 
+                PushScheduler pushScheduler = getService().getPushScheduler();
                 for (UI ui : getUIs()) {
                     if (ui.getPushConfiguration()
-                            .getPushMode() == PushMode.AUTOMATIC) {
+                            .getPushMode() == PushMode.AUTOMATIC
+                            && (pushScheduler == null
+                                    || pushScheduler.requestPush(ui))) {
                         Map<Class<?>, CurrentInstance> oldCurrent = CurrentInstance
                                 .setCurrent(ui);
                         try {
@@ -1017,6 +1037,10 @@ public class VaadinSession implements HttpSessionBindingListener, Serializable {
             getLockInstance().unlock();
         }
 
+        if (ultimateRelease) {
+            getService().sessionLockReleased(getLockInstance());
+        }
+
         /*
          * If the session is locked when a new access task is added, it is
          * assumed that the queue will be purged when the lock is released. This
@@ -1171,6 +1195,7 @@ public class VaadinSession implements HttpSessionBindingListener, Serializable {
 
         Integer uiId = Integer.valueOf(ui.getUIId());
         uIs.put(uiId, ui);
+        trackUI(ui);
 
         String embedId = ui.getEmbedId();
         if (embedId != null) {
@@ -1486,9 +1511,22 @@ public class VaadinSession implements HttpSessionBindingListener, Serializable {
      */
     public void refreshTransients(WrappedSession wrappedSession,
             VaadinService vaadinService) {
+        // The service is only missing when the session has been deserialized
+        boolean deserialized = service == null;
         session = wrappedSession;
         service = vaadinService;
         refreshLock();
+        if (deserialized) {
+            // The UI reaper of the service has not seen these UIs
+            uIs.values().forEach(this::trackUI);
+        }
+    }
+
+    private void trackUI(UI ui) {
+        UIReaper uiReaper = service == null ? null : service.getUIReaper();
+        if (uiReaper != null) {
+            uiReaper.track(ui);
+        }
     }
 
 }
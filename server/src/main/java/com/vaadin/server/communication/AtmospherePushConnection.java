@@ -16,13 +16,15 @@
 
 package com.vaadin.server.communication;
 
+import java.io.CharArrayWriter;
 import java.io.IOException;
 import java.io.ObjectInputStream;
 import java.io.Reader;
 import java.io.Serializable;
 import java.io.StringReader;
-import java.io.StringWriter;
-import java.io.Writer;
+import java.util.ArrayDeque;
+import java.util.Locale;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
@@ -35,6 +37,8 @@ import org.atmosphere.cpr.AtmosphereResource;
 import org.atmosphere.cpr.AtmosphereResource.TRANSPORT;
 import org.atmosphere.util.Version;
 
+import com.vaadin.server.Constants;
+import com.vaadin.server.DeploymentConfiguration;
 import com.vaadin.shared.communication.PushConstants;
 import com.vaadin.ui.UI;
 
@@ -47,6 +51,22 @@ import com.vaadin.ui.UI;
  */
 public class AtmospherePushConnection implements PushConnection {
 
+    private static final int INITIAL_PUSH_BUFFER_SIZE = 8 * 1024;
+
+    /*
+     * Buffers larger than this are not kept for reuse to avoid retaining a lot
+     * of memory in every thread that has once pushed a large message.
+     */
+    private static final int MAX_REUSED_PUSH_BUFFER_SIZE = 256 * 1024;
+
+    /*
+     * A push message is written to a buffer owned by the pushing thread and
+     * then copied once to the String sent by Atmosphere. The buffer is removed
+     * from the thread local while in use, so a push that happens while another
+     * is being written uses a buffer of its own.
+     */
+    private static final ThreadLocal<CharArrayWriter> reusablePushBuffer = new ThreadLocal<>();
+
     public static String getAtmosphereVersion() {
         try {
             String v = Version.getRawVersion();
@@ -131,11 +151,49 @@ public class AtmospherePushConnection implements PushConnection {
         CONNECTED;
     }
 
+    /**
+     * Determines what is done when a message should be pushed while the
+     * maximum number of messages are still waiting to be sent to the client.
+     *
+     * @see Constants#SERVLET_PARAMETER_PUSH_BACKPRESSURE_POLICY
+     * @since 8.0
+     */
+    public enum BackpressurePolicy {
+        /**
+         * Closes the connection and marks the UI to send its full state. The
+         * client reconnects and receives the full state through the new
+         * connection. Messages that have already been handed to Atmosphere
+         * cannot be removed from its queue, so closing the connection is the
+         * only way to discard them instead of sending the full state after
+         * them.
+         */
+        RESYNC,
+
+        /**
+         * Waits for the oldest message to be sent before pushing, while still
+         * holding the session lock. If the message is not sent within a few
+         * seconds, {@link #RESYNC} is used instead.
+         */
+        BLOCK;
+    }
+
+    private static final long BLOCK_TIMEOUT_MILLIS = 5000;
+
     private final UI ui;
     private transient State state = State.DISCONNECTED;
     private transient AtmosphereResource resource;
     private transient FragmentedMessage incomingMessage;
-    private transient Future<Object> outgoingMessage;
+
+    /*
+     * Messages handed to the broadcaster that have not necessarily been sent
+     * yet, oldest first. Atmosphere writes the messages to the network using
+     * its own threads, so pushing only waits for the client when using
+     * BackpressurePolicy.BLOCK.
+     */
+    private transient ArrayDeque<Future<Object>> outgoingMessages;
+
+    private transient int maxOutgoingMessages;
+    private transient BackpressurePolicy backpressurePolicy;
 
     public AtmospherePushConnection(UI ui) {
         this.ui = ui;
@@ -162,11 +220,28 @@ public class AtmospherePushConnection implements PushConnection {
             } else {
                 state = State.RESPONSE_PENDING;
             }
+        } else if (!ensureOutgoingCapacity()) {
+            // The connection was closed to let the client resynchronize
+            push(async);
         } else {
             try {
-                Writer writer = new StringWriter();
+                // Write the whole message to a single buffer to avoid copying
+                // it when adding the prefix and suffix. Atmosphere needs the
+                // complete message for broadcasting.
+                CharArrayWriter writer = reusablePushBuffer.get();
+                if (writer == null) {
+                    writer = new CharArrayWriter(INITIAL_PUSH_BUFFER_SIZE);
+                } else {
+                    reusablePushBuffer.remove();
+                    writer.reset();
+                }
+                writer.write("for(;;);[{");
                 new UidlWriter().write(getUI(), writer, async);
-                sendMessage("for(;;);[{" + writer.toString() + "}]");
+                writer.write("}]");
+                sendMessage(writer.toString());
+                if (writer.size() <= MAX_REUSED_PUSH_BUFFER_SIZE) {
+                    reusablePushBuffer.set(writer);
+                }
             } catch (Exception e) {
                 throw new RuntimeException("Push failed", e);
             }
@@ -183,8 +258,115 @@ public class AtmospherePushConnection implements PushConnection {
     void sendMessage(String message) {
         assert (isConnected());
         // "Broadcast" the changes to the single client only
-        outgoingMessage = getResource().getBroadcaster().broadcast(message,
-                getResource());
+        getOutgoingMessages().add(getResource().getBroadcaster()
+                .broadcast(message, getResource()));
+    }
+
+    /**
+     * Gets the number of pushed messages that have not yet been sent to the
+     * client.
+     *
+     * @return the number of unsent messages
+     */
+    int getUnsentMessageCount() {
+        removeSentMessages();
+        return getOutgoingMessages().size();
+    }
+
+    private ArrayDeque<Future<Object>> getOutgoingMessages() {
+        if (outgoingMessages == null) {
+            outgoingMessages = new ArrayDeque<>();
+        }
+        return outgoingMessages;
+    }
+
+    private void removeSentMessages() {
+        ArrayDeque<Future<Object>> messages = getOutgoingMessages();
+        while (!messages.isEmpty() && messages.peekFirst().isDone()) {
+            messages.removeFirst();
+        }
+    }
+
+    /**
+     * Applies the backpressure policy if the maximum number of messages are
+     * waiting to be sent to the client.
+     *
+     * @return <code>true</code> if a message can be pushed through this
+     *         connection, <code>false</code> if the connection was closed
+     */
+    private boolean ensureOutgoingCapacity() {
+        readOutgoingConfiguration();
+        if (getUnsentMessageCount() < maxOutgoingMessages) {
+            return true;
+        }
+
+        if (backpressurePolicy == BackpressurePolicy.BLOCK) {
+            try {
+                getOutgoingMessages().peekFirst().get(BLOCK_TIMEOUT_MILLIS,
+                        TimeUnit.MILLISECONDS);
+                if (getUnsentMessageCount() < maxOutgoingMessages) {
+                    return true;
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (ExecutionException | TimeoutException e) {
+                // Resynchronize below
+            }
+        }
+
+        getLogger().log(Level.FINE,
+                "Client is not receiving pushed messages, resynchronizing");
+        resynchronize();
+        disconnect();
+        return false;
+    }
+
+    /**
+     * Cancels unsent messages and marks the UI to send its full state in the
+     * next message. The messages are cleared before disconnecting so that
+     * {@link #disconnect()} does not wait for them to be sent.
+     */
+    private void resynchronize() {
+        for (Future<Object> message : getOutgoingMessages()) {
+            message.cancel(false);
+        }
+        getOutgoingMessages().clear();
+        getUI().getSession().getCommunicationManager().repaintAll(getUI());
+    }
+
+    private void readOutgoingConfiguration() {
+        if (backpressurePolicy != null) {
+            return;
+        }
+        DeploymentConfiguration configuration = getUI().getSession()
+                .getService().getDeploymentConfiguration();
+        String maxMessages = configuration.getApplicationOrSystemProperty(
+                Constants.SERVLET_PARAMETER_PUSH_OUTGOING_QUEUE_SIZE,
+                String.valueOf(Constants.DEFAULT_PUSH_OUTGOING_QUEUE_SIZE));
+        String policy = configuration.getApplicationOrSystemProperty(
+                Constants.SERVLET_PARAMETER_PUSH_BACKPRESSURE_POLICY,
+                BackpressurePolicy.RESYNC.name());
+        try {
+            maxOutgoingMessages = Math.max(1, Integer.parseInt(maxMessages));
+        } catch (NumberFormatException e) {
+            getLogger().log(Level.WARNING,
+                    "Invalid value {0} for {1}, using the default value {2}",
+                    new Object[] { maxMessages,
+                            Constants.SERVLET_PARAMETER_PUSH_OUTGOING_QUEUE_SIZE,
+                            Constants.DEFAULT_PUSH_OUTGOING_QUEUE_SIZE });
+            maxOutgoingMessages = Constants.DEFAULT_PUSH_OUTGOING_QUEUE_SIZE;
+        }
+        try {
+            backpressurePolicy = BackpressurePolicy
+                    .valueOf(policy.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            getLogger().log(Level.WARNING,
+                    "Invalid value {0} for {1}, using the default value {2}",
+                    new Object[] { policy,
+                            Constants.SERVLET_PARAMETER_PUSH_BACKPRESSURE_POLICY,
+                            BackpressurePolicy.RESYNC });
+            backpressurePolicy = BackpressurePolicy.RESYNC;
+        }
     }
 
     /**
@@ -295,6 +477,7 @@ public class AtmospherePushConnection implements PushConnection {
             return;
         }
 
+        Future<Object> outgoingMessage = getOutgoingMessages().peekLast();
         if (outgoingMessage != null) {
             // Wait for the last message to be sent before closing the
             // connection (assumes that futures are completed in order)
@@ -307,7 +490,7 @@ public class AtmospherePushConnection implements PushConnection {
                 getLogger().log(Level.INFO,
                         "Error waiting for messages to be sent to client before disconnect");
             }
-            outgoingMessage = null;
+            getOutgoingMessages().clear();
         }
 
         try {
@@ -326,6 +509,7 @@ public class AtmospherePushConnection implements PushConnection {
      */
     public void connectionLost() {
         resource = null;
+        outgoingMessages = null;
         if (state == State.CONNECTED) {
             // Guard against connectionLost being (incorrectly) called when
             // state is PUSH_PENDING or RESPONSE_PENDING
@@ -32,8 +32,6 @@ import com.vaadin.server.PaintException;
 import com.vaadin.shared.communication.ClientRpc;
 import com.vaadin.ui.UI;
 
-import elemental.json.Json;
-import elemental.json.JsonArray;
 import elemental.json.JsonException;
 import elemental.json.JsonValue;
 import elemental.json.impl.JsonUtil;
@@ -62,37 +60,34 @@ public class ClientRpcWriter implements Serializable {
         Collection<ClientMethodInvocation> pendingInvocations = collectPendingRpcCalls(
                 ui.getConnectorTracker().getDirtyVisibleConnectors());
 
-        JsonArray rpcCalls = Json.createArray();
+        // Invocations are written directly to the writer instead of first
+        // building a JSON tree of all invocations
+        writer.write("[");
+        boolean first = true;
         for (ClientMethodInvocation invocation : pendingInvocations) {
-            // add invocation to rpcCalls
+            if (!first) {
+                writer.write(",");
+            }
+            first = false;
             try {
-                JsonArray invocationJson = Json.createArray();
-                invocationJson.set(0,
-                        invocation.getConnector().getConnectorId());
-                invocationJson.set(1, invocation.getInterfaceName());
-                invocationJson.set(2, invocation.getMethodName());
-                JsonArray paramJson = Json.createArray();
-                for (int i = 0; i < invocation
-                        .getParameterTypes().length; ++i) {
-                    Type parameterType = invocation.getParameterTypes()[i];
-                    JsonValue referenceParameter = null;
-                    // TODO Use default values for RPC parameter types
-                    // if (!JsonCodec.isInternalType(parameterType)) {
-                    // try {
-                    // referenceParameter = parameterType.newInstance();
-                    // } catch (Exception e) {
-                    // logger.log(Level.WARNING,
-                    // "Error creating reference object for parameter of type "
-                    // + parameterType.getName());
-                    // }
-                    // }
-                    EncodeResult encodeResult = JsonCodec.encode(
-                            invocation.getParameters()[i], referenceParameter,
-                            parameterType, ui.getConnectorTracker());
-                    paramJson.set(i, encodeResult.getEncodedValue());
+                writer.write("[");
+                writer.write(JsonUtil
+                        .quote(invocation.getConnector().getConnectorId()));
+                writer.write(",");
+                writer.write(JsonUtil.quote(invocation.getInterfaceName()));
+                writer.write(",");
+                writer.write(JsonUtil.quote(invocation.getMethodName()));
+                writer.write(",[");
+                Type[] parameterTypes = invocation.getParameterTypes();
+                Object[] parameters = invocation.getParameters();
+                for (int i = 0; i < parameterTypes.length; ++i) {
+                    if (i > 0) {
+                        writer.write(",");
+                    }
+                    writeParameter(ui, writer, parameters[i],
+                            parameterTypes[i]);
                 }
-                invocationJson.set(3, paramJson);
-                rpcCalls.set(rpcCalls.length(), invocationJson);
+                writer.write("]]");
             } catch (JsonException e) {
                 throw new PaintException(
                         "Failed to serialize RPC method call parameters for connector "
@@ -103,7 +98,38 @@ public class ClientRpcWriter implements Serializable {
                         e);
             }
         }
-        writer.write(JsonUtil.stringify(rpcCalls));
+        writer.write("]");
+    }
+
+    private static void writeParameter(UI ui, Writer writer, Object value,
+            Type parameterType) throws IOException {
+        // Write the most common parameter types without creating JSON values
+        if (value == null) {
+            writer.write("null");
+        } else if (value instanceof String) {
+            writer.write(JsonUtil.quote((String) value));
+        } else if (value instanceof Boolean) {
+            writer.write(((Boolean) value).booleanValue() ? "true" : "false");
+        } else if (value instanceof Integer || value instanceof Long
+                || value instanceof Short || value instanceof Byte) {
+            writer.write(value.toString());
+        } else {
+            // TODO Use default values for RPC parameter types
+            // if (!JsonCodec.isInternalType(parameterType)) {
+            // try {
+            // referenceParameter = parameterType.newInstance();
+            // } catch (Exception e) {
+            // logger.log(Level.WARNING,
+            // "Error creating reference object for parameter of type "
+            // + parameterType.getName());
+            // }
+            // }
+            JsonValue referenceParameter = null;
+            EncodeResult encodeResult = JsonCodec.encode(value,
+                    referenceParameter, parameterType,
+                    ui.getConnectorTracker());
+            writer.write(JsonUtil.stringify(encodeResult.getEncodedValue()));
+        }
     }
 
     /**
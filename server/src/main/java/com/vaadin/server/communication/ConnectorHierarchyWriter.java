@@ -19,7 +19,11 @@ package com.vaadin.server.communication;
 import java.io.IOException;
 import java.io.Serializable;
 import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Set;
 
 import com.vaadin.server.AbstractClientConnector;
@@ -28,12 +32,10 @@ import com.vaadin.server.LegacyCommunicationManager;
 import com.vaadin.server.PaintException;
 import com.vaadin.server.VaadinRequest;
 import com.vaadin.server.VaadinService;
+import com.vaadin.ui.ConnectorTracker;
 import com.vaadin.ui.UI;
 
-import elemental.json.Json;
-import elemental.json.JsonArray;
 import elemental.json.JsonException;
-import elemental.json.JsonObject;
 import elemental.json.impl.JsonUtil;
 
 /**
@@ -46,7 +48,14 @@ public class ConnectorHierarchyWriter implements Serializable {
 
     /**
      * Writes a JSON object containing the connector hierarchy (parent-child
-     * mappings) of the dirty connectors in the given UI.
+     * mappings) of the dirty connectors in the given UI. The hierarchy of a
+     * connector is only included if it has changed since it was last sent to
+     * the client.
+     * <p>
+     * The client assumes an empty hierarchy for connectors with state changes
+     * but no hierarchy information. The ids of such connectors that do have
+     * children which have not changed are therefore returned, so that they
+     * can be sent to the client separately.
      *
      * @param ui
      *            The {@link UI} whose hierarchy to write.
@@ -54,33 +63,64 @@ public class ConnectorHierarchyWriter implements Serializable {
      *            The {@link Writer} used to write the JSON.
      * @param stateUpdateConnectors
      *            connector ids with state changes
+     * @return ids of connectors with state changes whose non-empty hierarchy
+     *         has not changed and was thus not written
      * @throws IOException
      *             If the serialization fails.
      */
-    public void write(UI ui, Writer writer, Set<String> stateUpdateConnectors)
-            throws IOException {
+    public Set<String> write(UI ui, Writer writer,
+            Set<String> stateUpdateConnectors) throws IOException {
 
-        Collection<ClientConnector> dirtyVisibleConnectors = ui
-                .getConnectorTracker().getDirtyVisibleConnectors();
+        ConnectorTracker connectorTracker = ui.getConnectorTracker();
+        Collection<ClientConnector> dirtyVisibleConnectors = connectorTracker
+                .getDirtyVisibleConnectors();
 
-        JsonObject hierarchyInfo = Json.createObject();
+        // Each child list is written out as soon as it has been collected to
+        // avoid building the hierarchy of all connectors in memory
+        Set<String> hierarchyConnectors = new HashSet<>();
+        Set<String> unchangedHierarchyConnectors = new HashSet<>();
+        List<String> children = new ArrayList<>();
+        writer.write("{");
         for (ClientConnector connector : dirtyVisibleConnectors) {
             String connectorId = connector.getConnectorId();
-            JsonArray children = Json.createArray();
 
+            children.clear();
             for (ClientConnector child : AbstractClientConnector
                     .getAllChildrenIterable(connector)) {
                 if (LegacyCommunicationManager
                         .isConnectorVisibleToClient(child)) {
-                    children.set(children.length(), child.getConnectorId());
+                    children.add(child.getConnectorId());
                 }
             }
+            String[] childIds = children.toArray(new String[children.size()]);
+
+            if (Arrays.equals(childIds,
+                    connectorTracker.getClientSideHierarchy(connector))) {
+                if (childIds.length > 0
+                        && stateUpdateConnectors.contains(connectorId)) {
+                    unchangedHierarchyConnectors.add(connectorId);
+                }
+                continue;
+            }
+            connectorTracker.setClientSideHierarchy(connector, childIds);
 
             // Omit for leaf nodes with state changes
-            if (children.length() > 0
+            if (childIds.length > 0
                     || !stateUpdateConnectors.contains(connectorId)) {
                 try {
-                    hierarchyInfo.put(connectorId, children);
+                    if (!hierarchyConnectors.isEmpty()) {
+                        writer.write(",");
+                    }
+                    writer.write(JsonUtil.quote(connectorId));
+                    writer.write(":[");
+                    for (int i = 0; i < childIds.length; i++) {
+                        if (i > 0) {
+                            writer.write(",");
+                        }
+                        writer.write(JsonUtil.quote(childIds[i]));
+                    }
+                    writer.write("]");
+                    hierarchyConnectors.add(connectorId);
                 } catch (JsonException e) {
                     throw new PaintException(
                             "Failed to send hierarchy information about "
@@ -90,20 +130,22 @@ public class ConnectorHierarchyWriter implements Serializable {
                 }
             }
         }
+        writer.write("}");
+
         // Dummy assert just for conditionally storing away data that will be
         // used by the real assert later on
-        assert storeSentHierarchy(hierarchyInfo, stateUpdateConnectors);
+        assert storeSentHierarchy(hierarchyConnectors, stateUpdateConnectors);
 
-        writer.write(JsonUtil.stringify(hierarchyInfo));
+        return unchangedHierarchyConnectors;
     }
 
-    private boolean storeSentHierarchy(JsonObject hierarchyInfo,
+    private boolean storeSentHierarchy(Set<String> hierarchyConnectors,
             Set<String> stateUpdateConnectors) {
         VaadinRequest request = VaadinService.getCurrentRequest();
         if (request != null) {
             request.setAttribute(
                     ConnectorHierarchyWriter.class.getName() + ".hierarchyInfo",
-                    hierarchyInfo);
+                    hierarchyConnectors);
             request.setAttribute(ConnectorHierarchyWriter.class.getName()
                     + ".stateUpdateConnectors", stateUpdateConnectors);
         }
@@ -22,13 +22,10 @@ import java.io.Writer;
 import java.util.Collection;
 
 import com.vaadin.server.ClientConnector;
-import com.vaadin.server.PaintException;
 import com.vaadin.server.PaintTarget;
+import com.vaadin.ui.ConnectorTracker;
 import com.vaadin.ui.UI;
 
-import elemental.json.Json;
-import elemental.json.JsonException;
-import elemental.json.JsonObject;
 import elemental.json.impl.JsonUtil;
 
 /**
@@ -41,7 +38,8 @@ public class ConnectorTypeWriter implements Serializable {
 
     /**
      * Writes a JSON object containing connector-ID-to-type-ID mappings for each
-     * dirty Connector in the given UI.
+     * dirty Connector in the given UI that has not yet been initialized on the
+     * client side. The client already knows the type of other connectors.
      *
      * @param ui
      *            The {@link UI} containing dirty connectors
@@ -55,22 +53,27 @@ public class ConnectorTypeWriter implements Serializable {
     public void write(UI ui, Writer writer, PaintTarget target)
             throws IOException {
 
-        Collection<ClientConnector> dirtyVisibleConnectors = ui
-                .getConnectorTracker().getDirtyVisibleConnectors();
+        ConnectorTracker connectorTracker = ui.getConnectorTracker();
+        Collection<ClientConnector> dirtyVisibleConnectors = connectorTracker
+                .getDirtyVisibleConnectors();
 
-        JsonObject connectorTypes = Json.createObject();
+        writer.write("{");
+        boolean first = true;
         for (ClientConnector connector : dirtyVisibleConnectors) {
-            String connectorType = target.getTag(connector);
-            try {
-                connectorTypes.put(connector.getConnectorId(), connectorType);
-            } catch (JsonException e) {
-                throw new PaintException(
-                        "Failed to send connector type for connector "
-                                + connector.getConnectorId() + ": "
-                                + e.getMessage(),
-                        e);
+            if (connectorTracker.isClientSideInitialized(connector)) {
+                // The type is only needed for creating the client side
+                // connector
+                continue;
+            }
+            if (!first) {
+                writer.write(",");
             }
+            first = false;
+            String connectorType = target.getTag(connector);
+            writer.write(JsonUtil.quote(connector.getConnectorId()));
+            writer.write(":");
+            writer.write(JsonUtil.quote(connectorType));
         }
-        writer.write(JsonUtil.stringify(connectorTypes));
+        writer.write("}");
     }
 }
@@ -0,0 +1,144 @@
+/*
+ * Copyright 2000-2016 Vaadin Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.vaadin.server.communication;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.Deflater;
+
+/**
+ * A pool of {@link Deflater} instances used for compressing responses, along
+ * with statistics about the compression done using the pooled instances.
+ * <p>
+ * Creating a {@link Deflater} allocates native memory which is only released
+ * when the instance is ended, so reusing instances avoids both the allocation
+ * and relying on finalization for releasing the memory.
+ *
+ * @author Vaadin Ltd
+ * @since 8.0
+ */
+public class DeflaterPool {
+
+    private static final DeflaterPool DEFAULT = new DeflaterPool(
+            2 * Runtime.getRuntime().availableProcessors());
+
+    private final BlockingQueue<Deflater> idle;
+
+    private final AtomicLong compressedMessages = new AtomicLong();
+    private final AtomicLong uncompressedBytes = new AtomicLong();
+    private final AtomicLong compressedBytes = new AtomicLong();
+    private final AtomicLong compressionTime = new AtomicLong();
+
+    /**
+     * Creates a new pool that keeps at most the given number of idle deflaters
+     * for reuse.
+     *
+     * @param maxIdle
+     *            the maximum number of idle deflaters to keep, must be
+     *            positive
+     */
+    public DeflaterPool(int maxIdle) {
+        if (maxIdle <= 0) {
+            throw new IllegalArgumentException(
+                    "The number of idle deflaters must be positive, was "
+                            + maxIdle);
+        }
+        idle = new ArrayBlockingQueue<>(maxIdle);
+    }
+
+    /**
+     * Gets the pool shared by all services in this class loader.
+     *
+     * @return the default pool, not <code>null</code>
+     */
+    public static DeflaterPool getDefault() {
+        return DEFAULT;
+    }
+
+    /**
+     * Gets a deflater producing raw deflate data without zlib header or
+     * checksum. The deflater should be returned using
+     * {@link #release(Deflater)} when it is no longer used.
+     *
+     * @return a deflater ready for use
+     */
+    public Deflater acquire() {
+        Deflater deflater = idle.poll();
+        if (deflater == null) {
+            deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+        }
+        return deflater;
+    }
+
+    /**
+     * Returns a deflater acquired from this pool. The deflater is reset for
+     * reuse, or ended if the pool already has enough idle deflaters.
+     *
+     * @param deflater
+     *            the deflater to return, not <code>null</code>
+     */
+    public void release(Deflater deflater) {
+        deflater.reset();
+        if (!idle.offer(deflater)) {
+            deflater.end();
+        }
+    }
+
+    void recordCompression(long uncompressed, long compressed, long nanos) {
+        compressedMessages.incrementAndGet();
+        uncompressedBytes.addAndGet(uncompressed);
+        compressedBytes.addAndGet(compressed);
+        compressionTime.addAndGet(nanos);
+    }
+
+    /**
+     * Gets the number of messages compressed using deflaters from this pool.
+     *
+     * @return the number of compressed messages
+     */
+    public long getCompressedMessages() {
+        return compressedMessages.get();
+    }
+
+    /**
+     * Gets the total size of all compressed messages before compression.
+     *
+     * @return the number of uncompressed bytes
+     */
+    public long getUncompressedBytes() {
+        return uncompressedBytes.get();
+    }
+
+    /**
+     * Gets the total size of all compressed messages after compression.
+     *
+     * @return the number of compressed bytes
+     */
+    public long getCompressedBytes() {
+        return compressedBytes.get();
+    }
+
+    /**
+     * Gets the total time spent compressing messages.
+     *
+     * @return the compression time in nanoseconds
+     */
+    public long getCompressionTimeNanos() {
+        return compressionTime.get();
+    }
+}
@@ -48,6 +48,32 @@ public class HeartbeatHandler extends SynchronizedRequestHandler
         return ServletPortletHelper.isHeartbeatRequest(request);
     }
 
+    /**
+     * Handles a heartbeat request without locking the session, so that
+     * heartbeats are not delayed by other requests that are being processed for
+     * the same session. The UI is found using
+     * {@link VaadinSession#getUIById(int)}, which does not require the session
+     * lock, and its heartbeat timestamp is updated as described in
+     * {@link #synchronizedHandleRequest(VaadinSession, VaadinRequest, VaadinResponse)}.
+     */
+    @Override
+    public boolean handleRequest(VaadinSession session, VaadinRequest request,
+            VaadinResponse response) throws IOException {
+        if (!canHandleRequest(request)) {
+            return false;
+        }
+
+        String uiIdString = request.getParameter(UIConstants.UI_ID_PARAMETER);
+        UI ui = null;
+        if (uiIdString != null) {
+            ui = session.getUIById(Integer.parseInt(uiIdString));
+        }
+        UI.setCurrent(ui);
+
+        handleHeartbeat(ui, response);
+        return true;
+    }
+
     /**
      * Handles a heartbeat request for the given session. Reads the GET
      * parameter named {@link UIConstants#UI_ID_PARAMETER} to identify the UI.
@@ -59,6 +85,12 @@ public class HeartbeatHandler extends SynchronizedRequestHandler
     public boolean synchronizedHandleRequest(VaadinSession session,
             VaadinRequest request, VaadinResponse response) throws IOException {
         UI ui = session.getService().findUI(request);
+        handleHeartbeat(ui, response);
+        return true;
+    }
+
+    private static void handleHeartbeat(UI ui, VaadinResponse response)
+            throws IOException {
         if (ui != null) {
             ui.setLastHeartbeatTimestamp(System.currentTimeMillis());
             // Ensure that the browser does not cache heartbeat responses.
@@ -71,8 +103,6 @@ public class HeartbeatHandler extends SynchronizedRequestHandler
             response.sendError(HttpServletResponse.SC_NOT_FOUND,
                     "UI not found");
         }
-
-        return true;
     }
 
     /*
@@ -80,18 +80,35 @@ public class MetadataWriter implements Serializable {
             int newTimeoutInterval = ui.getSession().getSession()
                     .getMaxInactiveInterval();
             if (repaintAll || (timeoutInterval != newTimeoutInterval)) {
-                String escapedURL = messages.getSessionExpiredURL() == null ? ""
-                        : messages.getSessionExpiredURL().replace("/", "\\/");
                 if (metaOpen) {
                     writer.write(",");
                 }
-                writer.write("\"timedRedirect\":{\"interval\":"
-                        + (newTimeoutInterval + 15) + ",\"url\":\"" + escapedURL
-                        + "\"}");
+                // Written directly to the writer instead of first
+                // concatenating the parts
+                writer.write("\"timedRedirect\":{\"interval\":");
+                writer.write(Integer.toString(newTimeoutInterval + 15));
+                writer.write(",\"url\":\"");
+                writeEscapedUrl(writer, messages.getSessionExpiredURL());
+                writer.write("\"}");
                 metaOpen = true;
             }
             timeoutInterval = newTimeoutInterval;
         }
         writer.write("}");
     }
+
+    private static void writeEscapedUrl(Writer writer, String url)
+            throws IOException {
+        if (url == null) {
+            return;
+        }
+        int start = 0;
+        int slash;
+        while ((slash = url.indexOf('/', start)) != -1) {
+            writer.write(url, start, slash - start);
+            writer.write("\\/");
+            start = slash + 1;
+        }
+        writer.write(url, start, url.length() - start);
+    }
 }
@@ -0,0 +1,163 @@
+/*
+ * Copyright 2000-2016 Vaadin Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.vaadin.server.communication;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Writes data in the gzip format using a {@link Deflater} from a
+ * {@link DeflaterPool}. Unlike {@link GZIPOutputStream}, the deflater is
+ * returned to the pool when the stream is finished or aborted, and the
+ * underlying stream is not closed.
+ *
+ * @author Vaadin Ltd
+ * @since 8.0
+ */
+class PooledGzipOutputStream extends OutputStream {
+
+    private static final byte[] HEADER = { 0x1f, (byte) 0x8b,
+            Deflater.DEFLATED, 0, 0, 0, 0, 0, 0, (byte) 0xff };
+
+    private final OutputStream out;
+    private final DeflaterPool pool;
+    private final CRC32 crc = new CRC32();
+    private final byte[] buffer = new byte[8 * 1024];
+
+    private Deflater deflater;
+    private long compressedBytes;
+    private long compressionTime;
+
+    /**
+     * Creates a new stream and writes the gzip header to the given stream.
+     *
+     * @param out
+     *            the stream to write compressed data to
+     * @param pool
+     *            the pool to acquire a deflater from
+     * @throws IOException
+     *             if writing the header fails
+     */
+    public PooledGzipOutputStream(OutputStream out, DeflaterPool pool)
+            throws IOException {
+        this.out = out;
+        this.pool = pool;
+        out.write(HEADER);
+        compressedBytes = HEADER.length;
+        // Acquired only once the header has been written, so that a failing
+        // stream does not leak the deflater
+        deflater = pool.acquire();
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        write(new byte[] { (byte) b }, 0, 1);
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        if (deflater == null) {
+            throw new IOException("Stream has already been finished");
+        }
+        crc.update(b, off, len);
+        deflater.setInput(b, off, len);
+        while (!deflater.needsInput()) {
+            deflate();
+        }
+    }
+
+    /**
+     * Flushes the underlying stream. Data still buffered by the deflater is not
+     * flushed, since that would make the compression less efficient.
+     */
+    @Override
+    public void flush() throws IOException {
+        out.flush();
+    }
+
+    /**
+     * Writes the remaining compressed data and the gzip trailer, and returns
+     * the deflater to the pool. Does nothing if the stream has already been
+     * finished.
+     *
+     * @throws IOException
+     *             if writing fails
+     */
+    public void finish() throws IOException {
+        if (deflater == null) {
+            return;
+        }
+        try {
+            deflater.finish();
+            while (!deflater.finished()) {
+                deflate();
+            }
+            writeInt((int) crc.getValue());
+            writeInt((int) deflater.getBytesRead());
+            compressedBytes += 8;
+
+            pool.recordCompression(deflater.getBytesRead(), compressedBytes,
+                    compressionTime);
+        } finally {
+            pool.release(deflater);
+            deflater = null;
+        }
+    }
+
+    /**
+     * Returns the deflater to the pool without writing the remaining
+     * compressed data or the gzip trailer, e.g. when writing the response has
+     * failed. Does nothing if the stream has already been finished or
+     * aborted.
+     */
+    public void abort() {
+        if (deflater == null) {
+            return;
+        }
+        pool.release(deflater);
+        deflater = null;
+    }
+
+    /**
+     * Finishes this stream without closing the underlying stream.
+     */
+    @Override
+    public void close() throws IOException {
+        finish();
+    }
+
+    private void deflate() throws IOException {
+        long start = System.nanoTime();
+        int length = deflater.deflate(buffer, 0, buffer.length);
+        compressionTime += System.nanoTime() - start;
+        if (length > 0) {
+            out.write(buffer, 0, length);
+            compressedBytes += length;
+        }
+    }
+
+    private void writeInt(int value) throws IOException {
+        // Little endian as required by the gzip format
+        out.write(value & 0xff);
+        out.write((value >> 8) & 0xff);
+        out.write((value >> 16) & 0xff);
+        out.write((value >> 24) & 0xff);
+    }
+}
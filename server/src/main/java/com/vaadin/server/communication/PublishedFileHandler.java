@@ -77,15 +77,10 @@ public class PublishedFileHandler implements RequestHandler {
             return true;
         }
 
-        // Check that the resource name has been registered
-        session.lock();
-        Class<?> context;
-        try {
-            context = session.getCommunicationManager().getDependencies()
-                    .get(fileName);
-        } finally {
-            session.unlock();
-        }
+        // Check that the resource name has been registered. The lookup does
+        // not require the session lock.
+        Class<?> context = session.getCommunicationManager().getDependencies()
+                .get(fileName);
 
         // Security check: don't serve resource if the name hasn't been
         // registered in the map
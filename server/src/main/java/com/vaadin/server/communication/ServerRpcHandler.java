@@ -23,8 +23,10 @@ import java.lang.reflect.Type;
 import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.List;
+import java.util.ListIterator;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -203,6 +205,8 @@ public class ServerRpcHandler implements Serializable {
 
     private static final int MAX_BUFFER_SIZE = 64 * 1024;
 
+    private final AtomicLong coalescedInvocations = new AtomicLong();
+
     /**
      * Reads JSON containing zero or more serialized RPC calls (including legacy
      * variable changes) and executes the calls.
@@ -337,6 +341,7 @@ public class ServerRpcHandler implements Serializable {
             List<MethodInvocation> invocations = parseInvocations(
                     ui.getConnectorTracker(), invocationsData,
                     lastSyncIdSeenByClient);
+            coalesceInvocations(invocations);
             for (MethodInvocation invocation : invocations) {
                 final ClientConnector connector = connectorTracker
                         .getConnector(invocation.getConnectorId());
@@ -421,6 +426,62 @@ public class ServerRpcHandler implements Serializable {
         }
     }
 
+    /**
+     * Removes invocations that are superseded by a later invocation of the
+     * same {@link ServerRpcMethodInvocation#isLastOnly() last only} method for
+     * the same connector, so that e.g. a filter that has changed several times
+     * while the previous request was being handled is only applied once. An
+     * invocation is only removed if all invocations between it and the later
+     * one are also last only, so that e.g. a click handled between two text
+     * changes still sees the first text.
+     *
+     * @param invocations
+     *            the parsed invocations in the order they should be handled
+     */
+    private void coalesceInvocations(List<MethodInvocation> invocations) {
+        Set<String> laterTags = null;
+        int coalesced = 0;
+        ListIterator<MethodInvocation> iterator = invocations
+                .listIterator(invocations.size());
+        while (iterator.hasPrevious()) {
+            MethodInvocation invocation = iterator.previous();
+            if (invocation instanceof ServerRpcMethodInvocation
+                    && ((ServerRpcMethodInvocation) invocation).isLastOnly()) {
+                if (laterTags == null) {
+                    laterTags = new HashSet<>();
+                }
+                if (!laterTags.add(invocation.getLastOnlyTag())) {
+                    iterator.remove();
+                    coalesced++;
+                }
+            } else if (laterTags != null) {
+                // Earlier invocations must be handled before this one
+                laterTags.clear();
+            }
+        }
+        if (coalesced != 0) {
+            coalescedInvocations.addAndGet(coalesced);
+            getLogger().log(Level.FINE,
+                    "Ignored {0} RPC calls superseded by later calls",
+                    coalesced);
+        }
+    }
+
+    /**
+     * Gets the total number of RPC invocations that have been ignored by this
+     * handler because a later invocation of the same method for the same
+     * connector was received in the same request. This can be used for
+     * debugging and monitoring.
+     *
+     * @see ServerRpcMethodInvocation#isLastOnly()
+     *
+     * @since 8.0
+     * @return the number of ignored invocations
+     */
+    public long getCoalescedInvocationCount() {
+        return coalescedInvocations.get();
+    }
+
     private void logUnknownConnector(String connectorId, String interfaceName,
             String methodName) {
         getLogger().log(Level.FINE,
@@ -605,17 +666,7 @@ public class ServerRpcHandler implements Serializable {
         ServerRpcMethodInvocation invocation = new ServerRpcMethodInvocation(
                 connectorId, rpcInterface, methodName, parametersJson.length());
 
-        Object[] parameters = new Object[parametersJson.length()];
-        Type[] declaredRpcMethodParameterTypes = invocation.getMethod()
-                .getGenericParameterTypes();
-
-        for (int j = 0; j < parametersJson.length(); ++j) {
-            JsonValue parameterValue = parametersJson.get(j);
-            Type parameterType = declaredRpcMethodParameterTypes[j];
-            parameters[j] = JsonCodec.decodeInternalOrCustomType(parameterType,
-                    parameterValue, connectorTracker);
-        }
-        invocation.setParameters(parameters);
+        invocation.decodeParameters(parametersJson, connectorTracker);
         return invocation;
     }
 
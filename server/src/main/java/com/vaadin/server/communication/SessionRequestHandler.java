@@ -16,7 +16,6 @@
 package com.vaadin.server.communication;
 
 import java.io.IOException;
-import java.util.ArrayList;
 
 import com.vaadin.server.RequestHandler;
 import com.vaadin.server.VaadinRequest;
@@ -50,15 +49,9 @@ public class SessionRequestHandler implements RequestHandler {
     @Override
     public boolean handleRequest(VaadinSession session, VaadinRequest request,
             VaadinResponse response) throws IOException {
-        // Use a copy to avoid ConcurrentModificationException
-        session.lock();
-        ArrayList<RequestHandler> requestHandlers;
-        try {
-            requestHandlers = new ArrayList<>(session.getRequestHandlers());
-        } finally {
-            session.unlock();
-        }
-        for (RequestHandler handler : requestHandlers) {
+        // Iteration is not affected by handlers added or removed concurrently,
+        // so there is no need to lock the session
+        for (RequestHandler handler : session.getRequestHandlers()) {
             if (handler.handleRequest(session, request, response)) {
                 return true;
             }
@@ -105,11 +105,7 @@ public abstract class UIInitHandler extends SynchronizedRequestHandler {
     static boolean commitJsonResponse(VaadinRequest request,
             VaadinResponse response, String json) throws IOException {
         // The response was produced without errors so write it to the client
-        response.setContentType(JsonConstants.JSON_CONTENT_TYPE);
-
-        // Ensure that the browser does not cache UIDL responses.
-        // iOS 6 Safari requires this (#9732)
-        response.setHeader("Cache-Control", "no-cache");
+        writeJsonResponseHeaders(response);
 
         byte[] b = json.getBytes("UTF-8");
         response.setContentLength(b.length);
@@ -122,6 +118,20 @@ public abstract class UIInitHandler extends SynchronizedRequestHandler {
         return true;
     }
 
+    /**
+     * Sets the content type and caching headers used for JSON responses.
+     *
+     * @param response
+     *            The response to set the headers for
+     */
+    static void writeJsonResponseHeaders(VaadinResponse response) {
+        response.setContentType(JsonConstants.JSON_CONTENT_TYPE);
+
+        // Ensure that the browser does not cache UIDL responses.
+        // iOS 6 Safari requires this (#9732)
+        response.setHeader("Cache-Control", "no-cache");
+    }
+
     private UI getBrowserDetailsUI(VaadinRequest request,
             VaadinSession session) {
         VaadinService vaadinService = request.getService();
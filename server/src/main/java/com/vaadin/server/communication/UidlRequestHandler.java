@@ -17,11 +17,13 @@
 package com.vaadin.server.communication;
 
 import java.io.IOException;
-import java.io.StringWriter;
 import java.io.Writer;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
+import com.vaadin.server.AbortedResponseException;
+import com.vaadin.server.Constants;
+import com.vaadin.server.DeploymentConfiguration;
 import com.vaadin.server.LegacyCommunicationManager.InvalidUIDLSecurityKeyException;
 import com.vaadin.server.ServletPortletHelper;
 import com.vaadin.server.SessionExpiredHandler;
@@ -84,15 +86,26 @@ public class UidlRequestHandler extends SynchronizedRequestHandler
             return true;
         }
 
-        StringWriter stringWriter = new StringWriter();
+        UidlResponseWriter responseWriter = new UidlResponseWriter(response,
+                UidlResponseWriter.DEFAULT_BUFFER_SIZE,
+                getCompressionThreshold(session, request));
 
         try {
             rpcHandler.handleRpc(uI, request.getReader(), request);
 
-            writeUidl(request, response, uI, stringWriter);
+            writeUidl(request, response, uI, responseWriter);
+            responseWriter.close();
         } catch (JsonException e) {
             getLogger().log(Level.SEVERE, "Error writing JSON to response", e);
+            if (responseWriter.isCommitted()) {
+                // Part of the message has already been sent, the client will
+                // treat the broken message as a communication error and
+                // resynchronize
+                throw new AbortedResponseException(
+                        "Error writing JSON to response", e);
+            }
             // Refresh on client side
+            responseWriter.discard();
             writeRefresh(request, response);
             return true;
         } catch (InvalidUIDLSecurityKeyException e) {
@@ -100,14 +113,88 @@ public class UidlRequestHandler extends SynchronizedRequestHandler
                     "Invalid security key received from {0}",
                     request.getRemoteHost());
             // Refresh on client side
+            responseWriter.discard();
             writeRefresh(request, response);
             return true;
+        } catch (RuntimeException e) {
+            if (responseWriter.isCommitted()) {
+                // An error response would be appended to the part of the
+                // message that has already been sent
+                throw new AbortedResponseException(
+                        "Error writing UIDL response", e);
+            }
+            throw e;
         } finally {
-            stringWriter.close();
+            // Does nothing if the response has been completed
+            responseWriter.abort();
         }
 
-        return UIInitHandler.commitJsonResponse(request, response,
-                stringWriter.toString());
+        return true;
+    }
+
+    /**
+     * Gets the minimum length of a response to compress, or -1 if the response
+     * should not be compressed.
+     */
+    private static int getCompressionThreshold(VaadinSession session,
+            VaadinRequest request) {
+        DeploymentConfiguration configuration = session.getConfiguration();
+        if (configuration == null
+                || !Boolean.parseBoolean(
+                        configuration.getApplicationOrSystemProperty(
+                                Constants.SERVLET_PARAMETER_COMPRESS_UIDL_RESPONSES,
+                                "false"))
+                || !acceptsGzip(request)) {
+            return -1;
+        }
+        String threshold = configuration.getApplicationOrSystemProperty(
+                Constants.SERVLET_PARAMETER_COMPRESSION_THRESHOLD,
+                String.valueOf(Constants.DEFAULT_COMPRESSION_THRESHOLD));
+        try {
+            return Integer.parseInt(threshold);
+        } catch (NumberFormatException e) {
+            getLogger().log(Level.WARNING,
+                    "Invalid value {0} for {1}, using the default value {2}",
+                    new Object[] { threshold,
+                            Constants.SERVLET_PARAMETER_COMPRESSION_THRESHOLD,
+                            Constants.DEFAULT_COMPRESSION_THRESHOLD });
+            return Constants.DEFAULT_COMPRESSION_THRESHOLD;
+        }
+    }
+
+    /**
+     * Checks whether the client accepts gzip encoded responses based on the
+     * Accept-Encoding header of the request.
+     *
+     * @param request
+     *            the request to check
+     * @return <code>true</code> if gzip is accepted, <code>false</code>
+     *         otherwise
+     */
+    static boolean acceptsGzip(VaadinRequest request) {
+        String acceptEncoding = request.getHeader("Accept-Encoding");
+        if (acceptEncoding == null) {
+            return false;
+        }
+        for (String encoding : acceptEncoding.split(",")) {
+            String[] parts = encoding.split(";");
+            if (!"gzip".equalsIgnoreCase(parts[0].trim())) {
+                continue;
+            }
+            for (int i = 1; i < parts.length; i++) {
+                String parameter = parts[i].trim();
+                if (parameter.startsWith("q=")) {
+                    // gzip;q=0 means that gzip is not accepted
+                    try {
+                        return Double.parseDouble(parameter.substring(2)) > 0;
+                    } catch (NumberFormatException e) {
+                        return false;
+                    }
+                }
+            }
+            return true;
+        }
+        return false;
     }
 
     private void writeRefresh(VaadinRequest request, VaadinResponse response)
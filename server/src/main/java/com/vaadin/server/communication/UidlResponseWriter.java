@@ -0,0 +1,325 @@
+/*
+ * Copyright 2000-2016 Vaadin Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.vaadin.server.communication;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+
+import com.vaadin.server.VaadinResponse;
+
+/**
+ * A {@link Writer} that streams a JSON response to the output stream of a
+ * {@link VaadinResponse} through a bounded character buffer.
+ * <p>
+ * Nothing is sent to the client until the buffer has been filled once. This
+ * means that small responses can still be discarded using {@link #discard()}
+ * and replaced with e.g. a critical notification if something goes wrong while
+ * producing them, in the same way as when the whole response is built in
+ * memory before writing it. Once the buffer overflows, the response is
+ * committed and the buffer is reused for the rest of the message, so the
+ * memory needed for writing a response does not grow with the size of the
+ * response.
+ * <p>
+ * Calling {@link #flush()} does not commit the response. The response is
+ * completed by calling {@link #close()}.
+ * <p>
+ * The response can optionally be gzip compressed if it is at least as long as a
+ * given threshold. The caller is responsible for checking that the client
+ * accepts gzip compressed responses.
+ *
+ * @author Vaadin Ltd
+ * @since 8.0
+ */
+public class UidlResponseWriter extends Writer {
+
+    /**
+     * The default size of the character buffer, in characters.
+     */
+    public static final int DEFAULT_BUFFER_SIZE = 32 * 1024;
+
+    /*
+     * A buffer of the default size is reused by the next writer created in
+     * the same thread once the previous writer has been closed. The thread
+     * local only holds a char array, so it does not keep the class loader of
+     * the application alive.
+     */
+    private static final ThreadLocal<char[]> reusableBuffer = new ThreadLocal<>();
+
+    private final VaadinResponse response;
+    private final char[] buffer;
+    private final int compressionThreshold;
+    private int position = 0;
+
+    private Writer out;
+    private PooledGzipOutputStream gzipStream;
+    private boolean closed = false;
+
+    /**
+     * Creates a new writer for the given response using the default buffer
+     * size.
+     *
+     * @param response
+     *            the response to write to, not <code>null</code>
+     */
+    public UidlResponseWriter(VaadinResponse response) {
+        this(response, DEFAULT_BUFFER_SIZE);
+    }
+
+    /**
+     * Creates a new writer for the given response using the given buffer size.
+     *
+     * @param response
+     *            the response to write to, not <code>null</code>
+     * @param bufferSize
+     *            the maximum number of characters to buffer before committing
+     *            the response, must be positive
+     */
+    public UidlResponseWriter(VaadinResponse response, int bufferSize) {
+        this(response, bufferSize, -1);
+    }
+
+    /**
+     * Creates a new writer for the given response using the given buffer size
+     * and compressing responses that are at least as long as the given
+     * threshold.
+     *
+     * @param response
+     *            the response to write to, not <code>null</code>
+     * @param bufferSize
+     *            the maximum number of characters to buffer before committing
+     *            the response, must be positive
+     * @param compressionThreshold
+     *            the minimum number of characters in a response for gzip
+     *            compressing it, or a negative number to never compress the
+     *            response
+     */
+    public UidlResponseWriter(VaadinResponse response, int bufferSize,
+            int compressionThreshold) {
+        if (response == null) {
+            throw new IllegalArgumentException("Response cannot be null");
+        }
+        if (bufferSize <= 0) {
+            throw new IllegalArgumentException(
+                    "Buffer size must be positive, was " + bufferSize);
+        }
+        this.response = response;
+        char[] reusable = null;
+        if (bufferSize == DEFAULT_BUFFER_SIZE) {
+            reusable = reusableBuffer.get();
+            reusableBuffer.remove();
+        }
+        buffer = reusable != null ? reusable : new char[bufferSize];
+        this.compressionThreshold = compressionThreshold;
+    }
+
+    @Override
+    public void write(int c) throws IOException {
+        ensureOpen();
+        if (position == buffer.length) {
+            flushBuffer();
+        }
+        buffer[position++] = (char) c;
+    }
+
+    @Override
+    public void write(char[] cbuf, int off, int len) throws IOException {
+        ensureOpen();
+        while (len > 0) {
+            if (position == buffer.length) {
+                flushBuffer();
+            }
+            int count = Math.min(len, buffer.length - position);
+            System.arraycopy(cbuf, off, buffer, position, count);
+            position += count;
+            off += count;
+            len -= count;
+        }
+    }
+
+    @Override
+    public void write(String str, int off, int len) throws IOException {
+        ensureOpen();
+        while (len > 0) {
+            if (position == buffer.length) {
+                flushBuffer();
+            }
+            int count = Math.min(len, buffer.length - position);
+            str.getChars(off, off + count, buffer, position);
+            position += count;
+            off += count;
+            len -= count;
+        }
+    }
+
+    /**
+     * Flushes data that has already been committed to the client. Does not
+     * commit the response if it has not yet been committed.
+     */
+    @Override
+    public void flush() throws IOException {
+        ensureOpen();
+        if (out != null) {
+            out.flush();
+        }
+    }
+
+    /**
+     * Checks whether any part of the response has been written to the client.
+     * A committed response can no longer be discarded.
+     *
+     * @return <code>true</code> if the response has been committed,
+     *         <code>false</code> otherwise
+     */
+    public boolean isCommitted() {
+        return out != null;
+    }
+
+    /**
+     * Discards everything written so far. Can only be used as long as the
+     * response has not been committed.
+     *
+     * @throws IllegalStateException
+     *             if the response has already been committed
+     */
+    public void discard() {
+        if (isCommitted()) {
+            throw new IllegalStateException(
+                    "Cannot discard a response that has already been committed");
+        }
+        position = 0;
+    }
+
+    /**
+     * Abandons the response without completing it. Nothing more is sent to the
+     * client, so a response that has already been committed is left
+     * incomplete. Does nothing if the writer has already been closed or
+     * aborted.
+     */
+    public void abort() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        position = 0;
+        if (gzipStream != null) {
+            gzipStream.abort();
+        }
+        recycleBuffer();
+    }
+
+    /**
+     * Checks whether the response is gzip compressed. This is decided when the
+     * response is committed.
+     *
+     * @return <code>true</code> if the response has been committed using gzip
+     *         compression, <code>false</code> otherwise
+     */
+    public boolean isCompressed() {
+        return gzipStream != null;
+    }
+
+    /**
+     * Completes the response by writing any buffered data to the client. If
+     * the whole response fit in the buffer and is not compressed, the content
+     * length of the response is also set.
+     */
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        try {
+            if (out == null && compressionThreshold >= 0
+                    && position >= compressionThreshold) {
+                commit(true);
+            }
+            if (out == null) {
+                writeHeaders();
+                byte[] b = new String(buffer, 0, position)
+                        .getBytes(StandardCharsets.UTF_8);
+                response.setContentLength(b.length);
+
+                OutputStream outputStream = response.getOutputStream();
+                outputStream.write(b);
+                // NOTE GateIn requires the buffers to be flushed to work
+                outputStream.flush();
+            } else {
+                out.write(buffer, 0, position);
+                out.flush();
+                if (gzipStream != null) {
+                    gzipStream.finish();
+                }
+                // NOTE GateIn requires the buffers to be flushed to work
+                response.getOutputStream().flush();
+            }
+        } finally {
+            if (gzipStream != null) {
+                // Releases the deflater if writing failed before finishing
+                gzipStream.abort();
+            }
+            position = 0;
+            recycleBuffer();
+        }
+    }
+
+    private void recycleBuffer() {
+        if (buffer.length == DEFAULT_BUFFER_SIZE) {
+            reusableBuffer.set(buffer);
+        }
+    }
+
+    private void flushBuffer() throws IOException {
+        if (out == null) {
+            // A response that does not fit in the buffer is long enough to
+            // compress even if the threshold is larger than the buffer
+            commit(compressionThreshold >= 0);
+        }
+        out.write(buffer, 0, position);
+        position = 0;
+    }
+
+    private void commit(boolean compress) throws IOException {
+        writeHeaders();
+        OutputStream outputStream = response.getOutputStream();
+        if (compress) {
+            response.setHeader("Content-Encoding", "gzip");
+            gzipStream = new PooledGzipOutputStream(outputStream,
+                    DeflaterPool.getDefault());
+            outputStream = gzipStream;
+        }
+        out = new OutputStreamWriter(outputStream, StandardCharsets.UTF_8);
+    }
+
+    private void writeHeaders() {
+        UIInitHandler.writeJsonResponseHeaders(response);
+        if (compressionThreshold >= 0) {
+            // Whether the response is compressed depends on the
+            // Accept-Encoding header of the request
+            response.setHeader("Vary", "Accept-Encoding");
+        }
+    }
+
+    private void ensureOpen() throws IOException {
+        if (closed) {
+            throw new IOException("Writer has already been closed");
+        }
+    }
+}
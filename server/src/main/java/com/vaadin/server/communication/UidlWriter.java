@@ -56,6 +56,26 @@ import elemental.json.impl.JsonUtil;
  */
 public class UidlWriter implements Serializable {
 
+    /*
+     * The depth of each class in the class hierarchy, computed once per class
+     * instead of on each comparison when sorting connector types.
+     */
+    private static final ClassValue<Integer> hierarchyDepth = new ClassValue<Integer>() {
+        @Override
+        protected Integer computeValue(Class<?> type) {
+            if (type == Object.class) {
+                return Integer.valueOf(0);
+            } else {
+                return Integer
+                        .valueOf(get(type.getSuperclass()).intValue() + 1);
+            }
+        }
+    };
+
+    private static final Comparator<Class<?>> HIERARCHY_DEPTH_COMPARATOR = (
+            o1, o2) -> hierarchyDepth.get(o1).intValue()
+                    - hierarchyDepth.get(o2).intValue();
+
     /**
      * Writes a JSON object containing all pending changes to the given UI.
      *
@@ -123,16 +143,20 @@ public class UidlWriter implements Serializable {
             int syncId = service.getDeploymentConfiguration()
                     .isSyncIdCheckEnabled()
                             ? uiConnectorTracker.getCurrentSyncId() : -1;
-            writer.write("\"" + ApplicationConstants.SERVER_SYNC_ID + "\": "
-                    + syncId + ", ");
+            // The constant parts are concatenated at compile time
+            writer.write("\"" + ApplicationConstants.SERVER_SYNC_ID + "\": ");
+            writer.write(Integer.toString(syncId));
+            writer.write(", ");
             if (repaintAll) {
                 writer.write("\"" + ApplicationConstants.RESYNCHRONIZE_ID
                         + "\": true, ");
             }
             int nextClientToServerMessageId = ui
                     .getLastProcessedClientToServerId() + 1;
-            writer.write("\"" + ApplicationConstants.CLIENT_TO_SERVER_ID
-                    + "\": " + nextClientToServerMessageId + ", ");
+            writer.write(
+                    "\"" + ApplicationConstants.CLIENT_TO_SERVER_ID + "\": ");
+            writer.write(Integer.toString(nextClientToServerMessageId));
+            writer.write(", ");
             writer.write("\"changes\" : ");
 
             JsonPaintTarget paintTarget = new JsonPaintTarget(manager, writer,
@@ -159,27 +183,40 @@ public class UidlWriter implements Serializable {
                     .write(ui, writer);
             writer.write(", "); // close states
 
-            // TODO This should be optimized. The type only needs to be
-            // sent once for each connector id + on refresh. Use the same cache
-            // as
-            // widget mapping
+            // The type is only sent for connectors that are not yet
+            // initialized on the client, i.e. once for each connector id + on
+            // refresh
 
             writer.write("\"types\":");
             new ConnectorTypeWriter().write(ui, writer, paintTarget);
             writer.write(", "); // close states
 
-            // Send update hierarchy information to the client.
-
-            // This could be optimized aswell to send only info if hierarchy has
-            // actually changed. Much like with the shared state. Note though
-            // that an empty hierarchy is information aswell (e.g. change from 1
-            // child to 0 children)
+            // Send update hierarchy information to the client. Only hierarchy
+            // that has actually changed is sent. Note though that an empty
+            // hierarchy is information aswell (e.g. change from 1 child to 0
+            // children)
 
             writer.write("\"hierarchy\":");
-            new ConnectorHierarchyWriter().write(ui, writer,
-                    stateUpdateConnectors);
+            Set<String> unchangedHierarchyConnectors = new ConnectorHierarchyWriter()
+                    .write(ui, writer, stateUpdateConnectors);
             writer.write(", "); // close hierarchy
 
+            if (!unchangedHierarchyConnectors.isEmpty()) {
+                // Tell the client not to assume an empty hierarchy for these
+                // connectors even though they have state changes
+                writer.write("\"" + ApplicationConstants.UNCHANGED_HIERARCHY
+                        + "\":[");
+                boolean first = true;
+                for (String connectorId : unchangedHierarchyConnectors) {
+                    if (!first) {
+                        writer.write(",");
+                    }
+                    first = false;
+                    writer.write(JsonUtil.quote(connectorId));
+                }
+                writer.write("], ");
+            }
+
             // send server to client RPC calls for components in the UI, in call
             // order
 
@@ -235,8 +272,9 @@ public class UidlWriter implements Serializable {
             // TODO PUSH Refactor to TypeInheritanceWriter or something
             boolean typeInheritanceMapOpen = false;
             if (typeMappingsOpen) {
-                // send the whole type inheritance map if any new mappings
-                for (Class<? extends ClientConnector> class1 : usedClientConnectors) {
+                // send the inheritance of the new mappings, the client already
+                // knows the rest
+                for (Class<? extends ClientConnector> class1 : newConnectorTypes) {
                     if (!ClientConnector.class
                             .isAssignableFrom(class1.getSuperclass())) {
                         continue;
@@ -266,29 +304,15 @@ public class UidlWriter implements Serializable {
              *
              * @JavaScript defined by super class is already loaded.
              */
-            Collections.sort(newConnectorTypes, new Comparator<Class<?>>() {
-                @Override
-                public int compare(Class<?> o1, Class<?> o2) {
-                    // TODO optimize using Class.isAssignableFrom?
-                    return hierarchyDepth(o1) - hierarchyDepth(o2);
-                }
-
-                private int hierarchyDepth(Class<?> type) {
-                    if (type == Object.class) {
-                        return 0;
-                    } else {
-                        return hierarchyDepth(type.getSuperclass()) + 1;
-                    }
-                }
-            });
+            Collections.sort(newConnectorTypes, HIERARCHY_DEPTH_COMPARATOR);
 
             List<Dependency> dependencies = Dependency
                     .findDependencies(newConnectorTypes, manager);
 
             // Include dependencies in output if there are any
             if (!dependencies.isEmpty()) {
-                writer.write(", \"dependencies\": "
-                        + JsonUtil.stringify(toJsonArray(dependencies)));
+                writer.write(", \"dependencies\": ");
+                writer.write(JsonUtil.stringify(toJsonArray(dependencies)));
             }
 
             session.getDragAndDropService().printJSONResponse(writer);
@@ -717,25 +717,42 @@ public abstract class AbstractComponent extends AbstractClientConnector
         super.beforeClientResponse(initial);
         // TODO This logic should be on the client side and the state should
         // simply be a data object with "width" and "height".
+        String height;
         if (getHeight() >= 0 && (getHeightUnits() != Unit.PERCENTAGE
                 || ComponentSizeValidator.parentCanDefineHeight(this))) {
-            getState().height = "" + getCSSHeight();
+            height = "" + getCSSHeight();
         } else {
-            getState().height = "";
+            height = "";
         }
 
+        String width;
         if (getWidth() >= 0 && (getWidthUnits() != Unit.PERCENTAGE
                 || ComponentSizeValidator.parentCanDefineWidth(this))) {
-            getState().width = "" + getCSSWidth();
+            width = "" + getCSSWidth();
         } else {
-            getState().width = "";
+            width = "";
         }
 
         ErrorMessage error = getErrorMessage();
+        String errorMessage = null;
         if (null != error) {
-            getState().errorMessage = error.getFormattedHtmlMessage();
-        } else {
-            getState().errorMessage = null;
+            errorMessage = error.getFormattedHtmlMessage();
+        }
+
+        // Only mark the changed fields so that a connector with dirty state
+        // fields is not marked fully dirty when it is about to be painted
+        AbstractComponentState state = getState(false);
+        if (!Objects.equals(state.height, height)) {
+            state.height = height;
+            markStateFieldDirty("height");
+        }
+        if (!Objects.equals(state.width, width)) {
+            state.width = width;
+            markStateFieldDirty("width");
+        }
+        if (!Objects.equals(state.errorMessage, errorMessage)) {
+            state.errorMessage = errorMessage;
+            markStateFieldDirty("errorMessage");
         }
     }
 
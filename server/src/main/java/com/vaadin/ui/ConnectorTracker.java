@@ -19,6 +19,7 @@ import java.io.IOException;
 import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
@@ -26,17 +27,22 @@ import java.util.LinkedList;
 import java.util.Map;
 import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
 import com.vaadin.server.AbstractClientConnector;
 import com.vaadin.server.ClientConnector;
+import com.vaadin.server.Constants;
+import com.vaadin.server.DeploymentConfiguration;
 import com.vaadin.server.DragAndDropService;
 import com.vaadin.server.GlobalResourceHandler;
 import com.vaadin.server.LegacyCommunicationManager;
 import com.vaadin.server.StreamVariable;
+import com.vaadin.server.TypedDiffState;
 import com.vaadin.server.VaadinRequest;
 import com.vaadin.server.VaadinService;
+import com.vaadin.server.VaadinSession;
 import com.vaadin.server.communication.ConnectorHierarchyWriter;
 
 import elemental.json.Json;
@@ -65,8 +71,18 @@ import elemental.json.JsonObject;
  */
 public class ConnectorTracker implements Serializable {
 
-    private final HashMap<String, ClientConnector> connectorIdToConnector = new HashMap<>();
+    /*
+     * Concurrent so that getConnector() can be used without locking the session
+     * when serving connector resources.
+     */
+    private final Map<String, ClientConnector> connectorIdToConnector = new ConcurrentHashMap<>();
     private final Set<ClientConnector> dirtyConnectors = new HashSet<>();
+    /*
+     * Dirty connectors for which only some shared state properties have been
+     * changed. A dirty connector without an entry needs its whole state to be
+     * encoded.
+     */
+    private final Map<ClientConnector, Set<String>> dirtyStateFields = new HashMap<>();
     private final Set<ClientConnector> uninitializedConnectors = new HashSet<>();
 
     /**
@@ -74,12 +90,16 @@ public class ConnectorTracker implements Serializable {
      * time {@link #cleanConnectorMap()} is invoked unless they have been
      * registered again.
      */
-    private final Set<ClientConnector> unregisteredConnectors = new HashSet<>();
+    private final Set<ClientConnector> unregisteredConnectors = ConcurrentHashMap
+            .newKeySet();
 
     private boolean writingResponse = false;
 
     private final UI uI;
     private transient Map<ClientConnector, JsonObject> diffStates = new HashMap<>();
+    private final Map<ClientConnector, TypedDiffState> typedDiffStates = new HashMap<>();
+    private transient Boolean typedDiffStateEnabled;
+    private final Map<ClientConnector, String[]> clientSideHierarchies = new HashMap<>();
 
     /** Maps connectorIds to a map of named StreamVariables */
     private Map<String, Map<String, StreamVariable>> pidToNameToStreamVariable;
@@ -144,6 +164,7 @@ public class ConnectorTracker implements Serializable {
                             connectorId });
         }
         dirtyConnectors.add(connector);
+        dirtyStateFields.remove(connector);
     }
 
     /**
@@ -173,6 +194,7 @@ public class ConnectorTracker implements Serializable {
         }
 
         dirtyConnectors.remove(connector);
+        dirtyStateFields.remove(connector);
         if (unregisteredConnectors.add(connector)) {
             if (getLogger().isLoggable(Level.FINE)) {
                 getLogger().log(Level.FINE, "Unregistered {0} ({1})",
@@ -227,10 +249,17 @@ public class ConnectorTracker implements Serializable {
     public void markAllClientSidesUninitialized() {
         uninitializedConnectors.addAll(connectorIdToConnector.values());
         diffStates.clear();
+        typedDiffStates.clear();
+        clientSideHierarchies.clear();
     }
 
     /**
      * Gets a connector by its id.
+     * <p>
+     * This method can be called without holding the session lock, in which
+     * case connectors that are being registered or unregistered concurrently
+     * may or may not be found, and the drag and drop service of the session
+     * is not found.
      *
      * @param connectorId
      *            The connector id to look for
@@ -239,12 +268,16 @@ public class ConnectorTracker implements Serializable {
      */
     public ClientConnector getConnector(String connectorId) {
         ClientConnector connector = connectorIdToConnector.get(connectorId);
-        // Ignore connectors that have been unregistered but not yet cleaned up
-        if (unregisteredConnectors.contains(connector)) {
-            return null;
-        } else if (connector != null) {
+        if (connector != null) {
+            // Ignore connectors that have been unregistered but not yet cleaned
+            // up
+            if (unregisteredConnectors.contains(connector)) {
+                return null;
+            }
             return connector;
-        } else {
+        } else if (uI.getSession().hasLock()) {
+            // The drag and drop service is created lazily, which is only safe
+            // while holding the lock
             DragAndDropService service = uI.getSession()
                     .getDragAndDropService();
             if (connectorId.equals(service.getConnectorId())) {
@@ -296,12 +329,16 @@ public class ConnectorTracker implements Serializable {
                 }
                 uninitializedConnectors.remove(connector);
                 diffStates.remove(connector);
+                typedDiffStates.remove(connector);
+                clientSideHierarchies.remove(connector);
                 iterator.remove();
             } else if (!uninitializedConnectors.contains(connector)
                     && !LegacyCommunicationManager
                             .isConnectorVisibleToClient(connector)) {
                 uninitializedConnectors.add(connector);
                 diffStates.remove(connector);
+                typedDiffStates.remove(connector);
+                clientSideHierarchies.remove(connector);
 
                 assert isRemovalSentToClient(connector) : "Connector "
                         + connector + " (id = " + connector.getConnectorId()
@@ -328,8 +365,8 @@ public class ConnectorTracker implements Serializable {
         String attributeName = ConnectorHierarchyWriter.class.getName()
                 + ".hierarchyInfo";
         Object hierarchyInfoObj = request.getAttribute(attributeName);
-        if (hierarchyInfoObj instanceof JsonObject) {
-            JsonObject hierachyInfo = (JsonObject) hierarchyInfoObj;
+        if (hierarchyInfoObj instanceof Set<?>) {
+            Set<?> hierachyInfo = (Set<?>) hierarchyInfoObj;
 
             ClientConnector firstVisibleParent = findFirstVisibleParent(
                     connector);
@@ -338,7 +375,8 @@ public class ConnectorTracker implements Serializable {
                 return true;
             }
 
-            if (!hierachyInfo.hasKey(firstVisibleParent.getConnectorId())) {
+            if (!hierachyInfo
+                    .contains(firstVisibleParent.getConnectorId())) {
                 /*
                  * No hierarchy change about to be sent, but this might be
                  * because of an optimization that omits explicit hierarchy
@@ -369,7 +407,7 @@ public class ConnectorTracker implements Serializable {
             }
         } else {
             getLogger().warning("Request attribute " + attributeName
-                    + " is not a JsonObject");
+                    + " is not a Set");
         }
 
         return true;
@@ -412,6 +450,8 @@ public class ConnectorTracker implements Serializable {
             }
             uninitializedConnectors.remove(connector);
             diffStates.remove(connector);
+            typedDiffStates.remove(connector);
+            clientSideHierarchies.remove(connector);
         }
         unregisteredConnectors.clear();
     }
@@ -479,6 +519,58 @@ public class ConnectorTracker implements Serializable {
         }
 
         dirtyConnectors.add(connector);
+        dirtyStateFields.remove(connector);
+    }
+
+    /**
+     * Marks a single property of the shared state of the connector as
+     * changed. If the connector is not otherwise dirty, only the properties
+     * marked in this way are encoded and compared to the state previously
+     * sent to the client in the following response. This should not be done
+     * while the response is being written.
+     * <p>
+     * Marking the connector dirty using {@link #markDirty(ClientConnector)}
+     * causes its whole state to be encoded, regardless of any properties
+     * marked using this method.
+     *
+     * @see #getDirtyStateFields(ClientConnector)
+     *
+     * @since 8.0
+     * @param connector
+     *            the connector whose state has changed
+     * @param propertyName
+     *            the name of the changed shared state property
+     */
+    public void markStateFieldDirty(ClientConnector connector,
+            String propertyName) {
+        if (!dirtyConnectors.contains(connector)) {
+            markDirty(connector);
+            dirtyStateFields.put(connector, new HashSet<>());
+        }
+        Set<String> fields = dirtyStateFields.get(connector);
+        if (fields != null) {
+            fields.add(propertyName);
+        }
+    }
+
+    /**
+     * Gets the names of the shared state properties that have been marked as
+     * changed for the given connector using
+     * {@link #markStateFieldDirty(ClientConnector, String)}.
+     *
+     * @since 8.0
+     * @param connector
+     *            the connector to check
+     * @return an unmodifiable set of changed property names, or
+     *         <code>null</code> if the whole state of the connector should be
+     *         encoded
+     */
+    public Set<String> getDirtyStateFields(ClientConnector connector) {
+        Set<String> fields = dirtyStateFields.get(connector);
+        if (fields == null) {
+            return null;
+        }
+        return Collections.unmodifiableSet(fields);
     }
 
     /**
@@ -496,6 +588,7 @@ public class ConnectorTracker implements Serializable {
         }
 
         dirtyConnectors.remove(connector);
+        dirtyStateFields.remove(connector);
     }
 
     /**
@@ -552,6 +645,7 @@ public class ConnectorTracker implements Serializable {
      */
     public void markAllConnectorsClean() {
         dirtyConnectors.clear();
+        dirtyStateFields.clear();
         getLogger().fine("All connectors are now clean");
     }
 
@@ -616,7 +710,20 @@ public class ConnectorTracker implements Serializable {
 
     public JsonObject getDiffState(ClientConnector connector) {
         assert getConnector(connector.getConnectorId()) == connector;
-        return diffStates.get(connector);
+        JsonObject diffState = diffStates.get(connector);
+        if (diffState == null) {
+            TypedDiffState typedDiffState = typedDiffStates.get(connector);
+            if (typedDiffState != null) {
+                /*
+                 * Provide a JSON copy of the typed diff state for code that
+                 * updates the diff state directly. Any changes are read back
+                 * before the state is encoded the next time.
+                 */
+                diffState = typedDiffState.toJson();
+                diffStates.put(connector, diffState);
+            }
+        }
+        return diffState;
     }
 
     public void setDiffState(ClientConnector connector, JsonObject diffState) {
@@ -624,6 +731,107 @@ public class ConnectorTracker implements Serializable {
         diffStates.put(connector, diffState);
     }
 
+    /**
+     * Gets the ids of the children of the given connector as they were last
+     * sent to the client.
+     *
+     * @since 8.0
+     * @param connector
+     *            the connector to get the children for
+     * @return the ids of the visible children last sent to the client, or
+     *         <code>null</code> if the hierarchy of the connector has not been
+     *         sent since the client side of the connector was initialized
+     */
+    public String[] getClientSideHierarchy(ClientConnector connector) {
+        return clientSideHierarchies.get(connector);
+    }
+
+    /**
+     * Records the ids of the children of the given connector that have been
+     * sent to the client.
+     *
+     * @since 8.0
+     * @param connector
+     *            the connector to set the children for
+     * @param childConnectorIds
+     *            the ids of the visible children sent to the client, not
+     *            <code>null</code>
+     */
+    public void setClientSideHierarchy(ClientConnector connector,
+            String[] childConnectorIds) {
+        assert getConnector(connector.getConnectorId()) == connector;
+        clientSideHierarchies.put(connector, childConnectorIds);
+    }
+
+    /**
+     * Checks whether shared state last sent to the client is kept as
+     * {@link TypedDiffState typed diff states} for the connectors in this
+     * tracker. This is configured using
+     * {@link Constants#SERVLET_PARAMETER_TYPED_DIFF_STATE}.
+     *
+     * @since 8.0
+     * @return <code>true</code> if typed diff states are used,
+     *         <code>false</code> if JSON diff states are used
+     */
+    public boolean isTypedDiffStateEnabled() {
+        if (typedDiffStateEnabled == null) {
+            VaadinSession session = uI.getSession();
+            DeploymentConfiguration configuration = session == null ? null
+                    : session.getConfiguration();
+            typedDiffStateEnabled = Boolean.valueOf(configuration != null
+                    && Boolean.parseBoolean(configuration
+                            .getApplicationOrSystemProperty(
+                                    Constants.SERVLET_PARAMETER_TYPED_DIFF_STATE,
+                                    "false")));
+        }
+        return typedDiffStateEnabled.booleanValue();
+    }
+
+    /**
+     * Gets the typed diff state of the given connector, i.e. the state last
+     * sent to the client. Changes made to the JSON diff state returned by
+     * {@link #getDiffState(ClientConnector)} are applied to the typed diff
+     * state before it is returned.
+     *
+     * @since 8.0
+     * @param connector
+     *            the connector to get the diff state for
+     * @return the typed diff state, or <code>null</code> if no state has been
+     *         sent for the connector
+     */
+    public TypedDiffState getTypedDiffState(ClientConnector connector) {
+        assert getConnector(connector.getConnectorId()) == connector;
+        TypedDiffState typedDiffState = typedDiffStates.get(connector);
+        if (typedDiffState != null) {
+            JsonObject diffState = diffStates.remove(connector);
+            if (diffState != null) {
+                typedDiffState.update(diffState);
+            }
+        }
+        return typedDiffState;
+    }
+
+    /**
+     * Sets the typed diff state of the given connector. Changes made to the
+     * JSON diff state returned by {@link #getDiffState(ClientConnector)} are
+     * applied to the new typed diff state.
+     *
+     * @since 8.0
+     * @param connector
+     *            the connector to set the diff state for
+     * @param typedDiffState
+     *            the new typed diff state
+     */
+    public void setTypedDiffState(ClientConnector connector,
+            TypedDiffState typedDiffState) {
+        assert getConnector(connector.getConnectorId()) == connector;
+        JsonObject diffState = diffStates.remove(connector);
+        if (diffState != null) {
+            typedDiffState.update(diffState);
+        }
+        typedDiffStates.put(connector, typedDiffState);
+    }
+
     public boolean isDirty(ClientConnector connector) {
         return dirtyConnectors.contains(connector);
     }
@@ -18,6 +18,7 @@ package com.vaadin.ui;
 import java.io.Serializable;
 import java.lang.annotation.Annotation;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 
 import com.vaadin.annotations.HtmlImport;
@@ -90,27 +91,37 @@ public class Dependency implements Serializable {
         return type;
     }
 
+    /*
+     * The untranslated dependencies declared by each connector class, in the
+     * order they should be loaded. ClassValue ties the cached value to the
+     * class itself so that the cache does not prevent unloading the class
+     * loader of e.g. a redeployed application.
+     */
+    private static final ClassValue<List<Dependency>> declaredDependencies = new ClassValue<List<Dependency>>() {
+        @Override
+        protected List<Dependency> computeValue(Class<?> type) {
+            List<Dependency> dependencies = new ArrayList<>();
+            findResources(Type.JAVASCRIPT, type, dependencies);
+            findResources(Type.HTMLIMPORT, type, dependencies);
+            findResources(Type.STYLESHEET, type, dependencies);
+            return Collections.unmodifiableList(dependencies);
+        }
+    };
+
     /**
      * Finds all the URLs defined for the given class using annotations for the
-     * given type, registers the URLs to the communication manager and adds the
-     * registered dependencies to the given list.
+     * given type and adds them as untranslated dependencies to the given list.
      *
      * @param type
      *            the type of dependencies to look for
      * @param cls
      *            the class to scan
-     * @param manager
-     *            a reference to the communication manager which tracks
-     *            dependencies
      * @param dependencies
-     *            the list to add registered dependencies to
-     *
-     * @return a stream of resource URLs in the order defined by the annotations
+     *            the list to add dependencies to, in the order defined by the
+     *            annotations
      */
-    @SuppressWarnings("deprecation")
-    private static void findAndRegisterResources(Type type,
-            Class<? extends ClientConnector> cls,
-            LegacyCommunicationManager manager, List<Dependency> dependencies) {
+    private static void findResources(Type type, Class<?> cls,
+            List<Dependency> dependencies) {
         Annotation[] annotations = cls
                 .getAnnotationsByType(type.annotationType);
         if (annotations != null) {
@@ -129,8 +140,7 @@ public class Dependency implements Serializable {
                 }
 
                 for (String resource : resources) {
-                    String url = manager.registerDependency(resource, cls);
-                    dependencies.add(new Dependency(type, url));
+                    dependencies.add(new Dependency(type, resource));
                 }
             }
         }
@@ -161,12 +171,18 @@ public class Dependency implements Serializable {
         List<Dependency> dependencies = new ArrayList<>();
 
         for (Class<? extends ClientConnector> connectorType : connectorTypes) {
-            findAndRegisterResources(Type.JAVASCRIPT, connectorType, manager,
-                    dependencies);
-            findAndRegisterResources(Type.HTMLIMPORT, connectorType, manager,
-                    dependencies);
-            findAndRegisterResources(Type.STYLESHEET, connectorType, manager,
-                    dependencies);
+            // The annotations are only scanned once per class, but published
+            // files must still be registered to each communication manager
+            for (Dependency declared : declaredDependencies
+                    .get(connectorType)) {
+                String url = manager.registerDependency(declared.getUrl(),
+                        connectorType);
+                if (url.equals(declared.getUrl())) {
+                    dependencies.add(declared);
+                } else {
+                    dependencies.add(new Dependency(declared.getType(), url));
+                }
+            }
         }
 
         return dependencies;
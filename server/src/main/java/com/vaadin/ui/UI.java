@@ -273,9 +273,10 @@ public abstract class UI extends AbstractSingleComponentContainer
     /**
      * Timestamp keeping track of the last heartbeat of this UI. Updated to the
      * current time whenever the application receives a heartbeat or UIDL
-     * request from the client for this UI.
+     * request from the client for this UI. Volatile since heartbeat requests
+     * update it without locking the session.
      */
-    private long lastHeartbeatTimestamp = System.currentTimeMillis();
+    private volatile long lastHeartbeatTimestamp = System.currentTimeMillis();
 
     private boolean closing = false;
 
@@ -1218,7 +1219,8 @@ public abstract class UI extends AbstractSingleComponentContainer
      * <p>
      * This method is not intended to be overridden. If it is overridden, care
      * should be taken since this method might be called in situations where
-     * {@link UI#getCurrent()} does not return this UI.
+     * {@link UI#getCurrent()} does not return this UI, and without holding the
+     * session lock.
      *
      * @param lastHeartbeat
      *            The time the last heartbeat request occurred, in milliseconds
@@ -1493,29 +1495,70 @@ public abstract class UI extends AbstractSingleComponentContainer
 
             @Override
             public void handleError(Exception exception) {
+                handleAccessError(runnable, exception);
+            }
+        });
+    }
+
+    /**
+     * Provides exclusive access to this UI for running several runnables. The
+     * runnables are run in the given order as one task, which means that the
+     * session lock is acquired only once and that changes made by all the
+     * runnables are pushed together when using automatic push mode.
+     * <p>
+     * The runnables are run in the same way as with {@link #access(Runnable)}.
+     * An exception thrown by one runnable is passed to the error handler in
+     * the same way as for {@link #access(Runnable)}, after which the remaining
+     * runnables are run.
+     *
+     * @see #access(Runnable)
+     * @see VaadinService#accessUIs(Map)
+     *
+     * @since 8.0
+     *
+     * @param runnables
+     *            the runnables which access the UI, not <code>null</code>
+     * @throws UIDetachedException
+     *             if the UI is not attached to a session (and locking can
+     *             therefore not be done)
+     * @return a future that can be used to check for completion of all the
+     *         runnables and to cancel the ones that have not yet been run
+     */
+    public Future<Void> accessBatch(Collection<? extends Runnable> runnables) {
+        List<Runnable> batch = new ArrayList<>(runnables);
+        return access(() -> {
+            for (Runnable runnable : batch) {
                 try {
-                    if (runnable instanceof ErrorHandlingRunnable) {
-                        ErrorHandlingRunnable errorHandlingRunnable = (ErrorHandlingRunnable) runnable;
+                    runnable.run();
+                } catch (Exception e) {
+                    handleAccessError(runnable, e);
+                }
+            }
+        });
+    }
 
-                        errorHandlingRunnable.handleError(exception);
-                    } else {
-                        ConnectorErrorEvent errorEvent = new ConnectorErrorEvent(
-                                UI.this, exception);
+    private void handleAccessError(Runnable runnable, Exception exception) {
+        try {
+            if (runnable instanceof ErrorHandlingRunnable) {
+                ErrorHandlingRunnable errorHandlingRunnable = (ErrorHandlingRunnable) runnable;
 
-                        ErrorHandler errorHandler = com.vaadin.server.ErrorEvent
-                                .findErrorHandler(UI.this);
+                errorHandlingRunnable.handleError(exception);
+            } else {
+                ConnectorErrorEvent errorEvent = new ConnectorErrorEvent(
+                        UI.this, exception);
 
-                        if (errorHandler == null) {
-                            errorHandler = new DefaultErrorHandler();
-                        }
+                ErrorHandler errorHandler = com.vaadin.server.ErrorEvent
+                        .findErrorHandler(UI.this);
 
-                        errorHandler.error(errorEvent);
-                    }
-                } catch (Exception e) {
-                    getLogger().log(Level.SEVERE, e.getMessage(), e);
+                if (errorHandler == null) {
+                    errorHandler = new DefaultErrorHandler();
                 }
+
+                errorHandler.error(errorEvent);
             }
-        });
+        } catch (Exception e) {
+            getLogger().log(Level.SEVERE, e.getMessage(), e);
+        }
     }
 
     /**
@@ -18,11 +18,11 @@ package com.vaadin.util;
 
 import java.io.Serializable;
 import java.lang.ref.WeakReference;
+import java.util.AbstractMap;
 import java.util.Collections;
 import java.util.HashMap;
-import java.util.Iterator;
 import java.util.Map;
-import java.util.Map.Entry;
+import java.util.Set;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -41,6 +41,13 @@ import com.vaadin.ui.UI;
  * means that the a current instance value may suddenly disappear if there a no
  * other references to the object.
  * <p>
+ * The instances of a thread are stored as an immutable linked list of frames,
+ * so that the current instances can be saved using {@link #getInstances()}
+ * without copying them. The returned map only copies the frames if it is
+ * modified. Saving and restoring the instances is frequently done
+ * when running tasks for a session or a UI, and is therefore cheap even when
+ * every request is handled in a new thread.
+ * <p>
  * Currently the framework uses the following instances:
  * </p>
  * <p>
@@ -58,7 +65,121 @@ public class CurrentInstance implements Serializable {
 
     private final WeakReference<Object> instance;
 
-    private static final ThreadLocal<Map<Class<?>, CurrentInstance>> instances = new ThreadLocal<>();
+    /*
+     * The first frame of the current instances of the thread, or null if there
+     * are no current instances. Frames are never modified, so a frame can be
+     * used as a snapshot of the instances.
+     */
+    private static final ThreadLocal<Frame> instances = new ThreadLocal<>();
+
+    /**
+     * An immutable entry in the linked list of current instances. Each type is
+     * present at most once in a list.
+     */
+    private static final class Frame implements Serializable {
+        private final Class<?> type;
+        private final CurrentInstance value;
+        private final Frame next;
+
+        private Frame(Class<?> type, CurrentInstance value, Frame next) {
+            this.type = type;
+            this.value = value;
+            this.next = next;
+        }
+
+        private Frame find(Object type) {
+            for (Frame frame = this; frame != null; frame = frame.next) {
+                if (frame.type == type) {
+                    return frame;
+                }
+            }
+            return null;
+        }
+    }
+
+    /**
+     * A map of the instances in a linked list of frames. The frames are used
+     * as they are until the map is modified, at which point the map switches
+     * to a modifiable copy of them.
+     */
+    private static final class FrameMap
+            extends AbstractMap<Class<?>, CurrentInstance>
+            implements Serializable {
+        private final Frame first;
+        private Map<Class<?>, CurrentInstance> copy;
+
+        private FrameMap(Frame first) {
+            this.first = first;
+        }
+
+        /**
+         * Gets the frames of this map, or null if the map has been modified
+         * and no longer corresponds to the frames.
+         */
+        private Frame getFrames() {
+            return copy == null ? first : null;
+        }
+
+        private Map<Class<?>, CurrentInstance> getCopy() {
+            if (copy == null) {
+                copy = new HashMap<>();
+                for (Frame frame = first; frame != null; frame = frame.next) {
+                    copy.put(frame.type, frame.value);
+                }
+            }
+            return copy;
+        }
+
+        @Override
+        public CurrentInstance get(Object key) {
+            if (copy != null) {
+                return copy.get(key);
+            }
+            Frame frame = first.find(key);
+            return frame == null ? null : frame.value;
+        }
+
+        @Override
+        public boolean containsKey(Object key) {
+            if (copy != null) {
+                return copy.containsKey(key);
+            }
+            return first.find(key) != null;
+        }
+
+        @Override
+        public int size() {
+            if (copy != null) {
+                return copy.size();
+            }
+            int size = 0;
+            for (Frame frame = first; frame != null; frame = frame.next) {
+                size++;
+            }
+            return size;
+        }
+
+        @Override
+        public CurrentInstance put(Class<?> key, CurrentInstance value) {
+            return getCopy().put(key, value);
+        }
+
+        @Override
+        public CurrentInstance remove(Object key) {
+            return getCopy().remove(key);
+        }
+
+        @Override
+        public void clear() {
+            getCopy().clear();
+        }
+
+        @Override
+        public Set<Entry<Class<?>, CurrentInstance>> entrySet() {
+            // The entries may be modified through the set
+            return getCopy().entrySet();
+        }
+    }
 
     private CurrentInstance(Object instance) {
         this.instance = new WeakReference<>(instance);
@@ -73,13 +194,13 @@ public class CurrentInstance implements Serializable {
      *         if there is no current instance.
      */
     public static <T> T get(Class<T> type) {
-        Map<Class<?>, CurrentInstance> map = instances.get();
-        if (map == null) {
+        Frame first = instances.get();
+        if (first == null) {
             return null;
         }
-        CurrentInstance currentInstance = map.get(type);
-        if (currentInstance != null) {
-            Object value = currentInstance.instance.get();
+        Frame frame = first.find(type);
+        if (frame != null) {
+            Object value = frame.value.instance.get();
             if (value == null) {
                 /*
                  * This is believed to never actually happen since the
@@ -88,17 +209,13 @@ public class CurrentInstance implements Serializable {
                  * should thus never invoke CurrentInstance.get().
                  *
                  * At this point, there might also be other values that have
-                 * been collected, so we'll scan the entire map and remove stale
+                 * been collected, so we'll scan all frames and remove stale
                  * CurrentInstance objects. Using a ReferenceQueue could make
                  * this assumingly rare case slightly more efficient, but would
                  * significantly increase the complexity of the code for
                  * maintaining a separate ReferenceQueue for each Thread.
                  */
-                removeStaleInstances(map);
-
-                if (map.isEmpty()) {
-                    instances.remove();
-                }
+                setFirst(removeStaleInstances(first));
 
                 return null;
             }
@@ -108,21 +225,50 @@ public class CurrentInstance implements Serializable {
         }
     }
 
-    private static void removeStaleInstances(
-            Map<Class<?>, CurrentInstance> map) {
-        for (Iterator<Entry<Class<?>, CurrentInstance>> iterator = map
-                .entrySet().iterator(); iterator.hasNext();) {
-            Entry<Class<?>, CurrentInstance> entry = iterator.next();
-            Object instance = entry.getValue().instance.get();
-            if (instance == null) {
-                iterator.remove();
-                getLogger().log(Level.FINE,
-                        "CurrentInstance for {0} has been garbage collected.",
-                        entry.getKey());
-            }
+    private static void setFirst(Frame first) {
+        if (first == null) {
+            instances.remove();
+        } else {
+            instances.set(first);
+        }
+    }
+
+    /**
+     * Returns a list of frames without the frames with garbage collected or
+     * null values, reusing the frames after the last removed frame.
+     */
+    private static Frame removeStaleInstances(Frame first) {
+        if (first == null) {
+            return null;
+        }
+        Frame next = removeStaleInstances(first.next);
+        Object value = first.value.instance.get();
+        if (value == null) {
+            getLogger().log(Level.FINE,
+                    "CurrentInstance for {0} has been garbage collected.",
+                    first.type);
+            return next;
+        } else if (value == NULL_OBJECT) {
+            return next;
+        } else if (next == first.next) {
+            return first;
+        } else {
+            return new Frame(first.type, first.value, next);
         }
     }
 
+    /**
+     * Returns a list of frames without the frame for the given type, reusing
+     * the frames after the removed frame.
+     */
+    private static Frame remove(Frame first, Frame removed) {
+        if (first == removed) {
+            return removed.next;
+        }
+        return new Frame(first.type, first.value,
+                remove(first.next, removed));
+    }
+
     /**
      * Sets the current instance of the given type.
      *
@@ -135,30 +281,28 @@ public class CurrentInstance implements Serializable {
      *            the actual instance
      */
     public static <T> CurrentInstance set(Class<T> type, T instance) {
-        Map<Class<?>, CurrentInstance> map = instances.get();
-        CurrentInstance previousInstance = null;
-        if (instance == null) {
-            // remove the instance
-            if (map != null) {
-                previousInstance = map.remove(type);
-                if (map.isEmpty()) {
-                    instances.remove();
-                    map = null;
-                }
-            }
-        } else {
-            assert type.isInstance(instance) : "Invald instance type";
-            if (map == null) {
-                map = new HashMap<>();
-                instances.set(map);
-            }
+        assert instance == null
+                || type.isInstance(instance) : "Invald instance type";
+        return setInstance(type,
+                instance == null ? null : new CurrentInstance(instance));
+    }
 
-            previousInstance = map.put(type, new CurrentInstance(instance));
+    private static CurrentInstance setInstance(Class<?> type,
+            CurrentInstance newInstance) {
+        Frame first = instances.get();
+        Frame previous = first == null ? null : first.find(type);
+        if (previous != null) {
+            first = remove(first, previous);
+        }
+        if (newInstance != null) {
+            first = new Frame(type, newInstance, first);
         }
-        if (previousInstance == null) {
-            previousInstance = CURRENT_INSTANCE_NULL;
+        setFirst(first);
+
+        if (previous == null) {
+            return CURRENT_INSTANCE_NULL;
         }
-        return previousInstance;
+        return previous.value;
     }
 
     /**
@@ -178,36 +322,58 @@ public class CurrentInstance implements Serializable {
      *            A Class -> CurrentInstance map to set as current instances
      */
     public static void restoreInstances(Map<Class<?>, CurrentInstance> old) {
-        boolean removeStale = false;
-        for (Class c : old.keySet()) {
-            CurrentInstance ci = old.get(c);
-            Object v = ci.instance.get();
-            if (v == null) {
-                removeStale = true;
-            } else if (v == NULL_OBJECT) {
+        Frame saved = old instanceof FrameMap ? ((FrameMap) old).getFrames()
+                : null;
+        if (saved != null) {
+            if (instances.get() == null) {
                 /*
-                 * NULL_OBJECT is used to identify objects that are null when
-                 * #setCurrent(UI) or #setCurrent(VaadinSession) are called on a
-                 * CurrentInstance. Without this a reference to an already
-                 * collected instance may be left in the CurrentInstance when it
-                 * really should be restored to null.
-                 *
-                 * One example case that this fixes:
-                 * VaadinService.runPendingAccessTasks() clears all current
-                 * instances and then sets everything but the UI. This makes
-                 * UI.accessSynchronously() save these values before calling
-                 * setCurrent(UI), which stores UI=null in the map it returns.
-                 * This map will be restored after UI.accessSync(), which,
-                 * unless it respects null values, will just leave the wrong UI
-                 * instance registered.
+                 * Restoring instances after clearing them, which is done e.g.
+                 * after running pending access tasks. The saved frames can be
+                 * used as they are, apart from the ones representing null
+                 * values.
                  */
-                v = null;
+                setFirst(removeStaleInstances(saved));
+            } else {
+                for (Frame frame = saved; frame != null; frame = frame.next) {
+                    restoreInstance(frame.type, frame.value);
+                }
             }
-            set(c, v);
+            return;
         }
 
-        if (removeStale) {
-            removeStaleInstances(old);
+        for (Map.Entry<Class<?>, CurrentInstance> entry : old.entrySet()) {
+            restoreInstance(entry.getKey(), entry.getValue());
+        }
+    }
+
+    private static void restoreInstance(Class<?> type, CurrentInstance ci) {
+        Object v = ci.instance.get();
+        if (v == null || v == NULL_OBJECT) {
+            /*
+             * NULL_OBJECT is used to identify objects that are null when
+             * #setCurrent(UI) or #setCurrent(VaadinSession) are called on a
+             * CurrentInstance. Without this a reference to an already
+             * collected instance may be left in the CurrentInstance when it
+             * really should be restored to null.
+             *
+             * One example case that this fixes:
+             * VaadinService.runPendingAccessTasks() clears all current
+             * instances and then sets everything but the UI. This makes
+             * UI.accessSynchronously() save these values before calling
+             * setCurrent(UI), which stores UI=null in the map it returns. This
+             * map will be restored after UI.accessSync(), which, unless it
+             * respects null values, will just leave the wrong UI instance
+             * registered.
+             */
+            setInstance(type, null);
+            if (v == null) {
+                getLogger().log(Level.FINE,
+                        "CurrentInstance for {0} has been garbage collected.",
+                        type);
+            }
+        } else {
+            // Reuse the saved instance instead of creating a new one
+            setInstance(type, ci);
         }
     }
 
@@ -220,28 +386,18 @@ public class CurrentInstance implements Serializable {
      * @return a map containing the current instances
      */
     public static Map<Class<?>, CurrentInstance> getInstances() {
-        Map<Class<?>, CurrentInstance> map = instances.get();
-        if (map == null) {
+        Frame first = instances.get();
+        if (first == null) {
             return Collections.emptyMap();
-        } else {
-            Map<Class<?>, CurrentInstance> copy = new HashMap<>();
-            boolean removeStale = false;
-            for (Class<?> c : map.keySet()) {
-                CurrentInstance ci = map.get(c);
-                if (ci.instance.get() == null) {
-                    removeStale = true;
-                } else {
-                    copy.put(c, ci);
-                }
-            }
-            if (removeStale) {
-                removeStaleInstances(map);
-                if (map.isEmpty()) {
-                    instances.remove();
-                }
+        }
+        Frame withoutStale = removeStaleInstances(first);
+        if (withoutStale != first) {
+            setFirst(withoutStale);
+            if (withoutStale == null) {
+                return Collections.emptyMap();
             }
-            return copy;
         }
+        return new FrameMap(withoutStale);
     }
 
     /**
@@ -257,9 +413,8 @@ public class CurrentInstance implements Serializable {
      *         updated.
      */
     public static Map<Class<?>, CurrentInstance> setCurrent(UI ui) {
-        Map<Class<?>, CurrentInstance> old = setCurrent(ui.getSession());
-        old.put(UI.class, set(UI.class, ui));
-        return old;
+        Frame old = setCurrentSession(ui.getSession());
+        return new FrameMap(new Frame(UI.class, set(UI.class, ui), old));
     }
 
     /**
@@ -276,14 +431,18 @@ public class CurrentInstance implements Serializable {
      */
     public static Map<Class<?>, CurrentInstance> setCurrent(
             VaadinSession session) {
-        Map<Class<?>, CurrentInstance> old = new HashMap<>();
-        old.put(VaadinSession.class, set(VaadinSession.class, session));
+        return new FrameMap(setCurrentSession(session));
+    }
+
+    private static Frame setCurrentSession(VaadinSession session) {
+        Frame old = new Frame(VaadinSession.class,
+                set(VaadinSession.class, session), null);
         VaadinService service = null;
         if (session != null) {
             service = session.getService();
         }
-        old.put(VaadinService.class, set(VaadinService.class, service));
-        return old;
+        return new Frame(VaadinService.class,
+                set(VaadinService.class, service), old);
     }
 
     private static Logger getLogger() {
@@ -0,0 +1,101 @@
+package com.vaadin.benchmarks;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+import java.util.List;
+
+import com.vaadin.server.communication.ClientRpcWriter;
+import com.vaadin.shared.communication.ClientRpc;
+import com.vaadin.tests.util.MockUI;
+import com.vaadin.ui.AbstractComponent;
+import com.vaadin.ui.UI;
+
+/*
+ * Measures the time and the number of bytes allocated by the current thread
+ * when writing pending client RPC invocations, which is done for every push
+ * and every UIDL response. Each round queues a few typical invocations with
+ * string, number and boolean parameters and writes them to a writer that
+ * discards its input, so only the allocations done by ClientRpcWriter itself
+ * are counted.
+ *
+ * Allocated bytes are read from com.sun.management.ThreadMXBean, which is
+ * available in HotSpot based JVMs.
+ *
+ * Please run with -server and -verbose:gc
+ */
+public class ClientRpcWriterPerformanceTester {
+
+    private static final int ROUNDS = 200000;
+
+    public interface BenchmarkRpc extends ClientRpc {
+        public void setText(String text, int position, boolean selected);
+
+        public void setItems(List<String> items);
+    }
+
+    public static class RpcComponent extends AbstractComponent {
+        private final BenchmarkRpc rpc = getRpcProxy(BenchmarkRpc.class);
+    }
+
+    private static final Writer NULL_WRITER = new Writer() {
+        @Override
+        public void write(char[] cbuf, int off, int len) {
+        }
+
+        @Override
+        public void write(String str, int off, int len) {
+        }
+
+        @Override
+        public void flush() {
+        }
+
+        @Override
+        public void close() {
+        }
+    };
+
+    public static void main(String[] args) throws Exception {
+        warmup();
+
+        long allocatedBefore = getAllocatedBytes();
+        long start = System.currentTimeMillis();
+        runBenchmark(ROUNDS);
+        long end = System.currentTimeMillis();
+        long allocated = getAllocatedBytes() - allocatedBefore;
+
+        System.out.println("took " + (end - start) + " ms");
+        System.out.println("allocated " + allocated / ROUNDS
+                + " bytes per write (including queueing the invocations)");
+    }
+
+    private static void warmup() throws Exception {
+        runBenchmark(ROUNDS / 10);
+        System.gc();
+        System.out.println("warmup and gc complete. sleeping 5 seconds.");
+        Thread.sleep(5000l);
+        System.out.println("woke up - go.");
+    }
+
+    private static void runBenchmark(int loops) throws IOException {
+        UI ui = new MockUI();
+        RpcComponent component = new RpcComponent();
+        ui.setContent(component);
+        List<String> items = Arrays.asList("first", "second",
+                "third");
+        ClientRpcWriter rpcWriter = new ClientRpcWriter();
+        for (int i = 0; i < loops; i++) {
+            component.rpc.setText("Text", i, true);
+            component.rpc.setItems(items);
+            rpcWriter.write(ui, NULL_WRITER);
+        }
+    }
+
+    private static long getAllocatedBytes() {
+        com.sun.management.ThreadMXBean bean = (com.sun.management.ThreadMXBean) ManagementFactory
+                .getThreadMXBean();
+        return bean.getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+}
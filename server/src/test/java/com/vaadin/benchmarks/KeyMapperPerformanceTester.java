@@ -0,0 +1,154 @@
+package com.vaadin.benchmarks;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.vaadin.data.ValueProvider;
+import com.vaadin.data.provider.DataKeyMapper;
+import com.vaadin.data.provider.IdentifierKeyMapper;
+import com.vaadin.server.KeyMapper;
+
+/*
+ * Compares KeyMapper, which keeps string keys in two hash maps and scans all
+ * mapped objects on refresh, to IdentifierKeyMapper, which indexes the
+ * objects by identifier and keeps int keys in an open addressing table.
+ *
+ * Measures the heap used by the mappings of many rows, the throughput of
+ * mapping and looking up the rows of a scrolled grid, and the throughput of
+ * refreshing single items of a grid with thousands of active rows.
+ *
+ * Please run with -server and -verbose:gc
+ */
+public class KeyMapperPerformanceTester {
+
+    private static final int ROWS = 200000;
+    private static final int ACTIVE_ROWS = 5000;
+    private static final int LOOKUP_ROUNDS = 20;
+    private static final int REFRESHES = 2000;
+
+    private static class Row {
+        private final Integer id;
+
+        private Row(int id) {
+            this.id = id;
+        }
+    }
+
+    private static final ValueProvider<Row, Object> ID_GETTER = row -> row.id;
+
+    private static long sink;
+
+    public static void main(String[] args) throws Exception {
+        List<Row> rows = new ArrayList<>(ROWS);
+        for (int i = 0; i < ROWS; i++) {
+            rows.add(new Row(i));
+        }
+
+        warmup(rows);
+
+        System.out.println("KeyMapper: " + measureMemory(rows, false)
+                + " bytes for " + ROWS + " rows");
+        System.out.println("IdentifierKeyMapper: "
+                + measureMemory(rows, true) + " bytes for " + ROWS + " rows");
+
+        long start = System.currentTimeMillis();
+        runLookups(new KeyMapper<>(), rows, LOOKUP_ROUNDS);
+        long end = System.currentTimeMillis();
+        report("KeyMapper key and get", start, end,
+                LOOKUP_ROUNDS * (long) ROWS);
+
+        start = System.currentTimeMillis();
+        runLookups(new IdentifierKeyMapper<>(ID_GETTER), rows, LOOKUP_ROUNDS);
+        end = System.currentTimeMillis();
+        report("IdentifierKeyMapper key and get", start, end,
+                LOOKUP_ROUNDS * (long) ROWS);
+
+        start = System.currentTimeMillis();
+        runRefreshes(new KeyMapper<>(), rows, REFRESHES);
+        end = System.currentTimeMillis();
+        report("KeyMapper refresh", start, end, REFRESHES);
+
+        start = System.currentTimeMillis();
+        runRefreshes(new IdentifierKeyMapper<>(ID_GETTER), rows,
+                REFRESHES * 1000);
+        end = System.currentTimeMillis();
+        report("IdentifierKeyMapper refresh", start, end, REFRESHES * 1000L);
+
+        System.out.println(sink);
+    }
+
+    private static void report(String name, long start, long end,
+            long operations) {
+        long millis = Math.max(1, end - start);
+        System.out.println(name + " took " + millis + " ms, "
+                + operations * 1000 / millis + " operations/s");
+    }
+
+    private static void warmup(List<Row> rows) throws Exception {
+        runLookups(new KeyMapper<>(), rows, LOOKUP_ROUNDS / 10);
+        runLookups(new IdentifierKeyMapper<>(ID_GETTER), rows,
+                LOOKUP_ROUNDS / 10);
+        runRefreshes(new KeyMapper<>(), rows, REFRESHES / 10);
+        runRefreshes(new IdentifierKeyMapper<>(ID_GETTER), rows, REFRESHES);
+        System.gc();
+        System.out.println("warmup and gc complete. sleeping 5 seconds.");
+        Thread.sleep(5000l);
+        System.out.println("woke up - go.");
+    }
+
+    private static long measureMemory(List<Row> rows, boolean identifier)
+            throws Exception {
+        long before = usedMemory();
+        DataKeyMapper<Row> mapper = identifier
+                ? new IdentifierKeyMapper<>(ID_GETTER) : new KeyMapper<>();
+        for (Row row : rows) {
+            mapper.key(row);
+        }
+        long after = usedMemory();
+        // Keep the mapper reachable until measured
+        sink += mapper.get("1") == null ? 0 : 1;
+        return after - before;
+    }
+
+    private static long usedMemory() throws Exception {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+            Thread.sleep(100);
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    /*
+     * Maps the rows in windows like a scrolled grid, looks each row up by its
+     * key and drops the rows that are scrolled out of view.
+     */
+    private static void runLookups(DataKeyMapper<Row> mapper, List<Row> rows,
+            int rounds) {
+        for (int round = 0; round < rounds; round++) {
+            for (int start = 0; start < rows.size(); start += ACTIVE_ROWS) {
+                List<Row> window = rows.subList(start,
+                        Math.min(rows.size(), start + ACTIVE_ROWS));
+                for (Row row : window) {
+                    String key = mapper.key(row);
+                    sink += mapper.get(key).id;
+                }
+                for (Row row : window) {
+                    mapper.remove(row);
+                }
+            }
+        }
+    }
+
+    private static void runRefreshes(DataKeyMapper<Row> mapper,
+            List<Row> rows, int refreshes) {
+        for (int i = 0; i < ACTIVE_ROWS; i++) {
+            mapper.key(rows.get(i));
+        }
+        for (int i = 0; i < refreshes; i++) {
+            Row updated = new Row(i * 7 % ACTIVE_ROWS);
+            mapper.refresh(updated, ID_GETTER);
+            sink += updated.id;
+        }
+    }
+}
@@ -0,0 +1,190 @@
+package com.vaadin.benchmarks;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+
+import org.mockito.Mockito;
+
+import com.vaadin.server.DefaultDeploymentConfiguration;
+import com.vaadin.server.LegacyCommunicationManager;
+import com.vaadin.server.MockServletConfig;
+import com.vaadin.server.MockVaadinSession;
+import com.vaadin.server.PushFanout;
+import com.vaadin.server.VaadinRequest;
+import com.vaadin.server.VaadinService;
+import com.vaadin.server.VaadinServlet;
+import com.vaadin.server.VaadinServletService;
+import com.vaadin.server.VaadinSession;
+import com.vaadin.server.communication.PushConnection;
+import com.vaadin.server.communication.UidlWriter;
+import com.vaadin.shared.communication.PushMode;
+import com.vaadin.tests.util.MockUI;
+import com.vaadin.ui.Label;
+import com.vaadin.ui.UI;
+
+/*
+ * Pushes the same change to a number of simulated push clients, first by
+ * calling UI.access separately for each UI and then through PushFanout, which
+ * locks each session once for all its UIs.
+ *
+ * Each simulated client writes the whole UIDL message of its UI to a writer
+ * that only counts the characters, so the timings include encoding and
+ * writing the messages but no network I/O.
+ *
+ * Please run with -server and -verbose:gc
+ */
+public class PushFanoutPerformanceTester {
+
+    private static final int CLIENTS = 2000;
+    private static final int CLIENTS_PER_SESSION = 4;
+    private static final int ROUNDS = 200;
+
+    private static class CountingWriter extends Writer {
+        private long count;
+
+        @Override
+        public void write(char[] cbuf, int off, int len) {
+            count += len;
+        }
+
+        @Override
+        public void write(String str) {
+            count += str.length();
+        }
+
+        @Override
+        public void flush() {
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+
+    private static class SimulatedPushConnection implements PushConnection {
+        private final UI ui;
+        private final CountingWriter writer;
+
+        private SimulatedPushConnection(UI ui, CountingWriter writer) {
+            this.ui = ui;
+            this.writer = writer;
+        }
+
+        @Override
+        public void push() {
+            try {
+                new UidlWriter().write(ui, writer, true);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        @Override
+        public boolean isConnected() {
+            return true;
+        }
+
+        @Override
+        public void disconnect() {
+        }
+    }
+
+    private static final CountingWriter writer = new CountingWriter();
+
+    public static void main(String[] args) throws Exception {
+        VaadinServlet servlet = new VaadinServlet();
+        servlet.init(new MockServletConfig());
+        VaadinService service = new VaadinServletService(servlet,
+                new DefaultDeploymentConfiguration(
+                        PushFanoutPerformanceTester.class, new Properties()));
+
+        List<Label> labels = new ArrayList<>();
+        PushFanout fanout = new PushFanout(service);
+        for (int i = 0; i < CLIENTS / CLIENTS_PER_SESSION; i++) {
+            VaadinSession session = new MockVaadinSession(service);
+            session.lock();
+            try {
+                session.setCommunicationManager(
+                        new LegacyCommunicationManager(session));
+                for (int j = 0; j < CLIENTS_PER_SESSION; j++) {
+                    Label label = new Label();
+                    fanout.subscribe(createUI(session, label));
+                    labels.add(label);
+                }
+            } finally {
+                session.unlock();
+            }
+        }
+
+        warmup(labels, fanout);
+
+        long start = System.currentTimeMillis();
+        runAccess(labels, ROUNDS);
+        long end = System.currentTimeMillis();
+        System.out.println("UI.access for " + CLIENTS + " clients took "
+                + (end - start) / (double) ROUNDS + " ms per change");
+
+        start = System.currentTimeMillis();
+        runFanout(fanout, ROUNDS);
+        end = System.currentTimeMillis();
+        System.out.println("PushFanout for " + CLIENTS + " clients took "
+                + (end - start) / (double) ROUNDS + " ms per change");
+        System.out.println(writer.count + " characters written");
+    }
+
+    private static void warmup(List<Label> labels, PushFanout fanout)
+            throws Exception {
+        runAccess(labels, ROUNDS / 10);
+        runFanout(fanout, ROUNDS / 10);
+        System.gc();
+        System.out.println("warmup and gc complete. sleeping 5 seconds.");
+        Thread.sleep(5000l);
+        System.out.println("woke up - go.");
+    }
+
+    private static UI createUI(VaadinSession session, Label label) {
+        UI ui = new MockUI(session);
+        ui.getPushConfiguration().setPushMode(PushMode.AUTOMATIC);
+        ui.setPushConnection(new SimulatedPushConnection(ui, writer));
+        ui.doInit(Mockito.mock(VaadinRequest.class), session.getNextUIid(),
+                null);
+        session.addUI(ui);
+        ui.setContent(label);
+        return ui;
+    }
+
+    private static void runAccess(List<Label> labels, int rounds)
+            throws Exception {
+        for (int i = 0; i < rounds; i++) {
+            String value = createValue(i);
+            for (Label label : labels) {
+                label.getUI().access(() -> label.setValue(value)).get(1,
+                        TimeUnit.SECONDS);
+            }
+        }
+    }
+
+    private static void runFanout(PushFanout fanout, int rounds)
+            throws Exception {
+        for (int i = 0; i < rounds; i++) {
+            String value = createValue(i);
+            fanout.broadcast(ui -> ((Label) ui.getContent()).setValue(value))
+                    .get(1, TimeUnit.SECONDS);
+        }
+    }
+
+    private static String createValue(int round) {
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < 50; i++) {
+            builder.append("<tr><td>\"Ticker ").append(i)
+                    .append("\"</td><td>").append(round + i)
+                    .append("</td></tr>\n");
+        }
+        return builder.toString();
+    }
+}
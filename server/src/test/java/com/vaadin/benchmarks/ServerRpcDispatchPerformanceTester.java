@@ -0,0 +1,136 @@
+package com.vaadin.benchmarks;
+
+import java.lang.reflect.Method;
+import java.lang.reflect.Type;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import com.vaadin.server.JsonCodec;
+import com.vaadin.server.ServerRpcManager;
+import com.vaadin.server.ServerRpcMethodInvocation;
+import com.vaadin.shared.communication.ServerRpc;
+
+import elemental.json.Json;
+import elemental.json.JsonArray;
+
+/*
+ * Compares dispatching server RPC calls through the per-interface methods
+ * that are resolved once, with method handle invocation and parameter
+ * decoders, to the previous lookup by a concatenated signature followed by
+ * reflective decoding and Method.invoke for every call.
+ *
+ * The RPC method has the kind of parameters sent when scrolling a grid or
+ * dragging a slider.
+ *
+ * Please run with -server and -verbose:gc
+ */
+public class ServerRpcDispatchPerformanceTester {
+
+    private static final int INVOCATIONS = 5000000;
+
+    public interface ScrollRpc extends ServerRpc {
+        public void scrolled(String id, int first, int last, double position,
+                boolean done);
+    }
+
+    private static class ScrollRpcImpl implements ScrollRpc {
+        private double sum;
+
+        @Override
+        public void scrolled(String id, int first, int last, double position,
+                boolean done) {
+            sum += first + last + position + id.length() + (done ? 1 : 0);
+        }
+    }
+
+    private static final Map<String, Method> signatureCache = new ConcurrentHashMap<>();
+
+    public static void main(String[] args) throws Exception {
+        ScrollRpcImpl implementation = new ScrollRpcImpl();
+        ServerRpcManager<ScrollRpc> manager = new ServerRpcManager<>(
+                implementation, ScrollRpc.class);
+        JsonArray parameters = createParameters();
+
+        warmup(implementation, manager, parameters);
+
+        long start = System.currentTimeMillis();
+        runDispatcher(manager, parameters, INVOCATIONS);
+        long end = System.currentTimeMillis();
+        report("precompiled dispatch", start, end);
+
+        start = System.currentTimeMillis();
+        runReflective(implementation, parameters, INVOCATIONS);
+        end = System.currentTimeMillis();
+        report("reflective dispatch", start, end);
+
+        System.out.println(implementation.sum);
+    }
+
+    private static void report(String name, long start, long end) {
+        long millis = Math.max(1, end - start);
+        System.out.println(name + " took " + millis + " ms, "
+                + INVOCATIONS * 1000L / millis + " invocations/s");
+    }
+
+    private static void warmup(ScrollRpcImpl implementation,
+            ServerRpcManager<ScrollRpc> manager, JsonArray parameters)
+            throws Exception {
+        runDispatcher(manager, parameters, INVOCATIONS / 10);
+        runReflective(implementation, parameters, INVOCATIONS / 10);
+        System.gc();
+        System.out.println("warmup and gc complete. sleeping 5 seconds.");
+        Thread.sleep(5000l);
+        System.out.println("woke up - go.");
+    }
+
+    private static JsonArray createParameters() {
+        JsonArray parameters = Json.createArray();
+        parameters.set(0, "grid");
+        parameters.set(1, 100);
+        parameters.set(2, 150);
+        parameters.set(3, 1234.5);
+        parameters.set(4, false);
+        return parameters;
+    }
+
+    private static void runDispatcher(ServerRpcManager<ScrollRpc> manager,
+            JsonArray parameters, int loops) throws Exception {
+        for (int i = 0; i < loops; i++) {
+            ServerRpcMethodInvocation invocation = new ServerRpcMethodInvocation(
+                    "1", ScrollRpc.class, "scrolled", parameters.length());
+            invocation.decodeParameters(parameters, null);
+            manager.applyInvocation(invocation);
+        }
+    }
+
+    /*
+     * The dispatch as it was implemented before the RPC methods were
+     * resolved once per interface.
+     */
+    private static void runReflective(ScrollRpc implementation,
+            JsonArray parameters, int loops) throws Exception {
+        for (int i = 0; i < loops; i++) {
+            String signature = ScrollRpc.class.getName() + "." + "scrolled"
+                    + "(" + parameters.length();
+            Method method = signatureCache.get(signature);
+            if (method == null) {
+                for (Method candidate : ScrollRpc.class.getMethods()) {
+                    if (candidate.getName().equals("scrolled")
+                            && candidate.getParameterTypes().length == parameters
+                                    .length()) {
+                        method = candidate;
+                    }
+                }
+                signatureCache.put(signature, method);
+            }
+
+            Object[] decoded = new Object[parameters.length()];
+            Type[] types = method.getGenericParameterTypes();
+            for (int j = 0; j < parameters.length(); j++) {
+                decoded[j] = JsonCodec.decodeInternalOrCustomType(types[j],
+                        parameters.get(j), null);
+            }
+            method.invoke(implementation, decoded);
+        }
+    }
+}
@@ -0,0 +1,131 @@
+package com.vaadin.benchmarks;
+
+import java.util.Collection;
+
+import com.vaadin.server.EncodeResult;
+import com.vaadin.server.JsonCodec;
+import com.vaadin.server.JsonCodec.BeanProperty;
+import com.vaadin.shared.ui.button.ButtonState;
+
+import elemental.json.Json;
+import elemental.json.JsonNull;
+import elemental.json.JsonObject;
+import elemental.json.JsonValue;
+
+/*
+ * Compares encoding shared state through JsonCodec, which resolves the state
+ * properties once per state type, to the previous fully reflective loop that
+ * was run for every encoded state.
+ *
+ * The encoded state is a typical ButtonState where one property changes
+ * between rounds, which is what happens for most dirty connectors.
+ *
+ * Please run with -server and -verbose:gc
+ */
+public class SharedStateEncodingPerformanceTester {
+
+    private static final int ROUNDS = 1000000;
+
+    public static void main(String[] args) throws Exception {
+        warmup();
+
+        long start = System.currentTimeMillis();
+        runCodec(ROUNDS);
+        long end = System.currentTimeMillis();
+        System.out.println("JsonCodec.encode took " + (end - start) + " ms");
+
+        start = System.currentTimeMillis();
+        runReflective(ROUNDS);
+        end = System.currentTimeMillis();
+        System.out.println("reflective encoding took " + (end - start) + " ms");
+    }
+
+    private static void warmup() throws Exception {
+        runCodec(ROUNDS / 10);
+        runReflective(ROUNDS / 10);
+        System.gc();
+        System.out.println("warmup and gc complete. sleeping 5 seconds.");
+        Thread.sleep(5000l);
+        System.out.println("woke up - go.");
+    }
+
+    private static int runCodec(int loops) {
+        ButtonState state = createState();
+        JsonObject reference = (JsonObject) JsonCodec
+                .encode(state, null, ButtonState.class, null)
+                .getEncodedValue();
+        int changes = 0;
+        for (int i = 0; i < loops; i++) {
+            state.caption = "Caption " + (i & 1);
+            EncodeResult result = JsonCodec.encode(state, reference,
+                    ButtonState.class, null);
+            reference = (JsonObject) result.getEncodedValue();
+            changes += ((JsonObject) result.getDiff()).keys().length;
+        }
+        return changes;
+    }
+
+    private static int runReflective(int loops) throws Exception {
+        ButtonState state = createState();
+        JsonObject reference = (JsonObject) JsonCodec
+                .encode(state, null, ButtonState.class, null)
+                .getEncodedValue();
+        int changes = 0;
+        for (int i = 0; i < loops; i++) {
+            state.caption = "Caption " + (i & 1);
+            JsonObject encoded = Json.createObject();
+            JsonObject diff = Json.createObject();
+            encodeReflectively(state, reference, encoded, diff);
+            reference = encoded;
+            changes += diff.keys().length;
+        }
+        return changes;
+    }
+
+    /*
+     * The encoding loop as it was implemented before the property encoders
+     * were cached.
+     */
+    private static void encodeReflectively(Object value,
+            JsonObject referenceValue, JsonObject encoded, JsonObject diff)
+            throws Exception {
+        Collection<BeanProperty> properties = JsonCodec
+                .getProperties(value.getClass());
+        for (BeanProperty property : properties) {
+            String fieldName = property.getName();
+            Object fieldValue = property.getValue(value);
+
+            if (encoded.hasKey(fieldName)) {
+                throw new RuntimeException("Duplicate property " + fieldName);
+            }
+
+            JsonValue fieldReference = referenceValue.get(fieldName);
+            if (fieldReference instanceof JsonNull) {
+                fieldReference = null;
+            }
+
+            EncodeResult encodeResult = JsonCodec.encode(fieldValue,
+                    fieldReference, property.getType(), null);
+            encoded.put(fieldName, encodeResult.getEncodedValue());
+
+            JsonValue encodedValue = encodeResult.getEncodedValue();
+            if (encodedValue instanceof JsonNull) {
+                encodedValue = null;
+            }
+            if (encodedValue != fieldReference && (encodedValue == null
+                    || fieldReference == null
+                    || !JsonCodec.jsonEquals(encodedValue, fieldReference))) {
+                diff.put(fieldName, encodeResult.getDiffOrValue());
+            }
+        }
+    }
+
+    private static ButtonState createState() {
+        ButtonState state = new ButtonState();
+        state.caption = "Caption";
+        state.description = "Description";
+        state.styles = null;
+        state.width = "100px";
+        return state;
+    }
+}
@@ -1,5 +1,7 @@
 package com.vaadin.data.provider;
 
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Comparator;
 import java.util.HashMap;
 import java.util.List;
@@ -7,6 +9,9 @@ import java.util.Map;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
+import org.junit.Assert;
+import org.junit.Test;
+
 import com.vaadin.server.SerializablePredicate;
 import com.vaadin.shared.data.sort.SortDirection;
 
@@ -66,4 +71,120 @@ public class BackendDataProviderTest extends
         getDataProvider().setSortOrders(sortOrder);
     }
 
-}
\ No newline at end of file
+    @Test
+    public void fetchWithSize_defaultContract_pageAndExactSize() {
+        FetchResult<StrBean> result = getDataProvider().fetchWithSize(
+                new Query<>(10, 5, Collections.emptyList(), null, null));
+
+        Assert.assertTrue(result.isSizeExact());
+        Assert.assertEquals(data.size(), result.getSize());
+        Assert.assertEquals(data.subList(10, 15), result.getItems());
+    }
+
+    @Test
+    public void fetchWithSize_pageCallback_singleCallWithSortOrders() {
+        List<Query<StrBean, Void>> queries = new ArrayList<>();
+        CallbackDataProvider<StrBean, Void> dataProvider = new CallbackDataProvider<>(
+                query -> {
+                    queries.add(query);
+                    return FetchResult.withSize(data.subList(
+                            query.getOffset(),
+                            query.getOffset() + query.getLimit()), data.size());
+                });
+        dataProvider.setSortOrder(new QuerySortOrder("value",
+                SortDirection.ASCENDING));
+
+        FetchResult<StrBean> result = dataProvider.fetchWithSize(
+                new Query<>(0, 20, Collections.emptyList(), null, null));
+        Assert.assertEquals(1, queries.size());
+        Assert.assertEquals("value",
+                queries.get(0).getSortOrders().get(0).getSorted());
+        Assert.assertEquals(data.size(), result.getSize());
+        Assert.assertEquals(20, result.getItems().size());
+
+        Assert.assertEquals(data.size(), dataProvider.size(new Query<>()));
+        Assert.assertEquals(0, queries.get(1).getLimit());
+        Assert.assertEquals(data.subList(0, 3),
+                dataProvider.fetch(new Query<>(0, 3, Collections.emptyList(),
+                        null, null)).collect(Collectors.toList()));
+    }
+
+    @Test
+    public void fetchWithSize_defaultContract_sizeQueryOnlyHasFilter() {
+        List<Query<StrBean, Void>> countQueries = new ArrayList<>();
+        CallbackDataProvider<StrBean, Void> dataProvider = new CallbackDataProvider<>(
+                query -> data.stream().skip(query.getOffset())
+                        .limit(query.getLimit()),
+                query -> {
+                    countQueries.add(query);
+                    return data.size();
+                });
+        dataProvider.setSortOrder(new QuerySortOrder("value",
+                SortDirection.ASCENDING));
+
+        dataProvider.fetchWithSize(
+                new Query<>(10, 5, Collections.emptyList(), null, null));
+
+        Assert.assertEquals(1, countQueries.size());
+        Assert.assertEquals(0, countQueries.get(0).getOffset());
+        Assert.assertEquals(Integer.MAX_VALUE,
+                countQueries.get(0).getLimit());
+        Assert.assertTrue(countQueries.get(0).getSortOrders().isEmpty());
+    }
+
+    @Test
+    public void size_pageCallbackWithUnknownSize_throwsWithoutFetchingAll() {
+        List<Query<StrBean, Void>> queries = new ArrayList<>();
+        CallbackDataProvider<StrBean, Void> dataProvider = new CallbackDataProvider<>(
+                query -> {
+                    queries.add(query);
+                    return FetchResult.withUnknownSize(data.stream()
+                            .skip(query.getOffset()).limit(query.getLimit())
+                            .collect(Collectors.toList()));
+                });
+
+        try {
+            dataProvider.size(new Query<>());
+            Assert.fail("Size should not be available");
+        } catch (UnsupportedOperationException e) {
+            // Expected
+        }
+        Assert.assertEquals(1, queries.size());
+        Assert.assertEquals(0, queries.get(0).getLimit());
+    }
+
+    @Test
+    public void size_pageCallbackWithEstimatedSizeZero_zeroReturned() {
+        CallbackDataProvider<StrBean, Void> dataProvider = new CallbackDataProvider<>(
+                query -> FetchResult.withEstimatedSize(Collections.emptyList(),
+                        0));
+
+        Assert.assertEquals(0, dataProvider.size(new Query<>()));
+    }
+
+    @Test
+    public void fetchResult_unknownSizeDistinctFromEstimatedZero() {
+        FetchResult<StrBean> unknown = FetchResult
+                .withUnknownSize(Collections.emptyList());
+        FetchResult<StrBean> estimated = FetchResult
+                .withEstimatedSize(Collections.emptyList(), 0);
+
+        Assert.assertFalse(unknown.isSizeKnown());
+        Assert.assertFalse(unknown.isSizeExact());
+        Assert.assertTrue(estimated.isSizeKnown());
+        Assert.assertFalse(estimated.isSizeExact());
+        Assert.assertTrue(FetchResult.withSize(Collections.emptyList(), 0)
+                .isSizeKnown());
+    }
+
+    @Test
+    public void size_pageCallbackWithEstimatedSize_estimateReturned() {
+        CallbackDataProvider<StrBean, Void> dataProvider = new CallbackDataProvider<>(
+                query -> FetchResult.withEstimatedSize(data.stream()
+                        .skip(query.getOffset()).limit(query.getLimit())
+                        .collect(Collectors.toList()), 5000));
+
+        Assert.assertEquals(5000, dataProvider.size(new Query<>()));
+    }
+
+}
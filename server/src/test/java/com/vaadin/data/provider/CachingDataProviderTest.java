@@ -0,0 +1,355 @@
+/*
+ * Copyright 2000-2016 Vaadin Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.vaadin.data.provider;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.vaadin.data.provider.CachingDataProvider.QueryCache;
+import com.vaadin.shared.Registration;
+import com.vaadin.shared.data.sort.SortDirection;
+
+public class CachingDataProviderTest {
+
+    private static class CountingBackEnd
+            extends CallbackDataProvider<Integer, String> {
+        private final AtomicInteger fetches = new AtomicInteger();
+        private final AtomicInteger counts = new AtomicInteger();
+        private final AtomicInteger listeners = new AtomicInteger();
+
+        private CountingBackEnd(List<Integer> items) {
+            super(query -> items.stream()
+                    .filter(i -> query.getFilter()
+                            .map(f -> String.valueOf(i).startsWith(f))
+                            .orElse(true))
+                    .skip(query.getOffset()).limit(query.getLimit()),
+                    query -> (int) items.stream()
+                            .filter(i -> query.getFilter()
+                                    .map(f -> String.valueOf(i).startsWith(f))
+                                    .orElse(true))
+                            .count());
+        }
+
+        @Override
+        public Stream<Integer> fetchFromBackEnd(
+                Query<Integer, String> query) {
+            fetches.incrementAndGet();
+            return super.fetchFromBackEnd(query);
+        }
+
+        @Override
+        protected int sizeInBackEnd(Query<Integer, String> query) {
+            counts.incrementAndGet();
+            return super.sizeInBackEnd(query);
+        }
+
+        @Override
+        public Registration addDataProviderListener(
+                DataProviderListener<Integer> listener) {
+            Registration registration = super.addDataProviderListener(
+                    listener);
+            listeners.incrementAndGet();
+            return () -> {
+                registration.remove();
+                listeners.decrementAndGet();
+            };
+        }
+    }
+
+    private static class ManualClockCache extends QueryCache {
+        private long time;
+
+        private ManualClockCache(int maxEntries, long timeToLive) {
+            super(maxEntries, timeToLive);
+        }
+
+        @Override
+        protected long currentTimeMillis() {
+            return time;
+        }
+    }
+
+    private final List<Integer> items = IntStream.range(0, 100).boxed()
+            .collect(Collectors.toList());
+    private CountingBackEnd backEnd;
+
+    @Before
+    public void setUp() {
+        backEnd = new CountingBackEnd(items);
+    }
+
+    private static Query<Integer, String> query(int offset, int limit,
+            String filter) {
+        return new Query<>(offset, limit, Collections.emptyList(), null,
+                filter);
+    }
+
+    private static List<Integer> fetch(DataProvider<Integer, String> provider,
+            Query<Integer, String> query) {
+        return provider.fetch(query).collect(Collectors.toList());
+    }
+
+    @Test
+    public void identicalQueries_backEndQueriedOnce() {
+        CachingDataProvider<Integer, String> provider = new CachingDataProvider<>(
+                backEnd, 10, 0);
+
+        Assert.assertEquals(items.subList(0, 10),
+                fetch(provider, query(0, 10, null)));
+        Assert.assertEquals(items.subList(0, 10),
+                fetch(provider, query(0, 10, null)));
+        Assert.assertEquals(1, backEnd.fetches.get());
+
+        fetch(provider, query(10, 10, null));
+        fetch(provider, query(0, 10, "1"));
+        Assert.assertEquals(3, backEnd.fetches.get());
+
+        Assert.assertEquals(11, provider.size(query(0, 10, "1")));
+        Assert.assertEquals(11, provider.size(query(50, 10, "1")));
+        Assert.assertEquals(1, backEnd.counts.get());
+
+        Assert.assertEquals(2, provider.getCache().getHitCount());
+        Assert.assertEquals(4, provider.getCache().getMissCount());
+    }
+
+    @Test
+    public void sortOrdersArePartOfTheKey() {
+        CachingDataProvider<Integer, String> provider = new CachingDataProvider<>(
+                backEnd, 10, 0);
+
+        fetch(provider, query(0, 10, null));
+        fetch(provider,
+                new Query<>(0, 10,
+                        Collections.singletonList(new QuerySortOrder("value",
+                                SortDirection.DESCENDING)),
+                        null, null));
+        Assert.assertEquals(2, backEnd.fetches.get());
+    }
+
+    @Test
+    public void leastRecentlyUsedEvicted() {
+        CachingDataProvider<Integer, String> provider = new CachingDataProvider<>(
+                backEnd, 2, 0);
+
+        fetch(provider, query(0, 10, null));
+        fetch(provider, query(10, 10, null));
+        fetch(provider, query(0, 10, null));
+        fetch(provider, query(20, 10, null));
+        Assert.assertEquals(3, backEnd.fetches.get());
+        Assert.assertEquals(2, provider.getCache().getEntryCount());
+
+        // The first page was used more recently than the second one
+        fetch(provider, query(0, 10, null));
+        Assert.assertEquals(3, backEnd.fetches.get());
+        fetch(provider, query(10, 10, null));
+        Assert.assertEquals(4, backEnd.fetches.get());
+    }
+
+    @Test
+    public void expiredEntriesReloaded() {
+        ManualClockCache cache = new ManualClockCache(10, 1000);
+        CachingDataProvider<Integer, String> provider = new CachingDataProvider<>(
+                backEnd, cache);
+
+        fetch(provider, query(0, 10, null));
+        cache.time = 999;
+        fetch(provider, query(0, 10, null));
+        Assert.assertEquals(1, backEnd.fetches.get());
+
+        cache.time = 1000;
+        fetch(provider, query(0, 10, null));
+        Assert.assertEquals(2, backEnd.fetches.get());
+    }
+
+    @Test
+    public void refreshAllOnWrappedProvider_cacheCleared() {
+        CachingDataProvider<Integer, String> provider = new CachingDataProvider<>(
+                backEnd, 10, 0);
+        provider.addDataProviderListener(event -> {
+        });
+
+        fetch(provider, query(0, 10, null));
+        provider.size(query(0, 10, null));
+        backEnd.refreshAll();
+        Assert.assertEquals(0, provider.getCache().getEntryCount());
+
+        fetch(provider, query(0, 10, null));
+        provider.refreshAll();
+        fetch(provider, query(0, 10, null));
+        Assert.assertEquals(3, backEnd.fetches.get());
+    }
+
+    @Test
+    public void wrappedProviderOnlyListenedWhileWrapperListened() {
+        CachingDataProvider<Integer, String> provider = new CachingDataProvider<>(
+                backEnd, 10, 0);
+        Assert.assertEquals(0, backEnd.listeners.get());
+
+        fetch(provider, query(0, 10, null));
+        Registration first = provider.addDataProviderListener(event -> {
+        });
+        Registration second = provider.addDataProviderListener(event -> {
+        });
+        // One for the cache and one for each listener of the wrapper
+        Assert.assertEquals(3, backEnd.listeners.get());
+        // Changes may have been missed before the first listener was added
+        Assert.assertEquals(0, provider.getCache().getEntryCount());
+
+        first.remove();
+        first.remove();
+        Assert.assertEquals(2, backEnd.listeners.get());
+        second.remove();
+        Assert.assertEquals(0, backEnd.listeners.get());
+    }
+
+    @Test
+    public void refreshItem_onlyPagesWithItemRemoved() {
+        CachingDataProvider<Integer, String> provider = new CachingDataProvider<>(
+                backEnd, 10, 0);
+
+        fetch(provider, query(0, 10, null));
+        fetch(provider, query(10, 10, null));
+        provider.size(query(0, 10, null));
+
+        provider.refreshItem(15);
+        Assert.assertEquals(2, provider.getCache().getEntryCount());
+
+        fetch(provider, query(0, 10, null));
+        fetch(provider, query(10, 10, null));
+        Assert.assertEquals(3, backEnd.fetches.get());
+        Assert.assertEquals(1, backEnd.counts.get());
+    }
+
+    @Test
+    public void sharedCache_resultsSharedBetweenWrappers() {
+        QueryCache cache = new QueryCache(10, 0);
+        CountingBackEnd otherBackEnd = new CountingBackEnd(items);
+        CachingDataProvider<Integer, String> provider = new CachingDataProvider<>(
+                backEnd, cache);
+        CachingDataProvider<Integer, String> otherProvider = new CachingDataProvider<>(
+                otherBackEnd, cache);
+
+        fetch(provider, query(0, 10, null));
+        Assert.assertEquals(items.subList(0, 10),
+                fetch(otherProvider, query(0, 10, null)));
+        Assert.assertEquals(1, backEnd.fetches.get());
+        Assert.assertEquals(0, otherBackEnd.fetches.get());
+    }
+
+    @Test
+    public void concurrentIdenticalQueries_backEndQueriedOnce()
+            throws Exception {
+        CountDownLatch fetchStarted = new CountDownLatch(1);
+        CountDownLatch releaseFetch = new CountDownLatch(1);
+        AtomicInteger fetches = new AtomicInteger();
+        CachingDataProvider<Integer, String> provider = new CachingDataProvider<>(
+                new CallbackDataProvider<>(query -> {
+                    fetches.incrementAndGet();
+                    fetchStarted.countDown();
+                    try {
+                        releaseFetch.await();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                    return items.stream().limit(query.getLimit());
+                }, query -> items.size()), 10, 0);
+
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            Future<List<Integer>> first = executor
+                    .submit(() -> fetch(provider, query(0, 10, null)));
+            Assert.assertTrue(fetchStarted.await(5, TimeUnit.SECONDS));
+            Future<List<Integer>> second = executor
+                    .submit(() -> fetch(provider, query(0, 10, null)));
+            Future<List<Integer>> third = executor
+                    .submit(() -> fetch(provider, query(0, 10, null)));
+
+            // Wait until the other queries are waiting for the first one
+            long deadline = System.currentTimeMillis() + 5000;
+            while (provider.getCache().getHitCount() < 2
+                    && System.currentTimeMillis() < deadline) {
+                Thread.sleep(1);
+            }
+            releaseFetch.countDown();
+
+            Assert.assertEquals(items.subList(0, 10),
+                    first.get(5, TimeUnit.SECONDS));
+            Assert.assertEquals(items.subList(0, 10),
+                    second.get(5, TimeUnit.SECONDS));
+            Assert.assertEquals(items.subList(0, 10),
+                    third.get(5, TimeUnit.SECONDS));
+            Assert.assertEquals(1, fetches.get());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void failedQuery_notCached() {
+        AtomicInteger fetches = new AtomicInteger();
+        CachingDataProvider<Integer, String> provider = new CachingDataProvider<>(
+                new CallbackDataProvider<>(query -> {
+                    if (fetches.incrementAndGet() == 1) {
+                        throw new IllegalStateException("Back end down");
+                    }
+                    return items.stream().limit(query.getLimit());
+                }, query -> items.size()), 10, 0);
+
+        try {
+            fetch(provider, query(0, 10, null));
+            Assert.fail("Expected the failure of the back end");
+        } catch (IllegalStateException expected) {
+        }
+        Assert.assertEquals(0, provider.getCache().getEntryCount());
+        Assert.assertEquals(items.subList(0, 10),
+                fetch(provider, query(0, 10, null)));
+    }
+
+    @Test(timeout = 5000)
+    public void queryFailedWithError_notCachedAndNotWaitedFor() {
+        AtomicInteger fetches = new AtomicInteger();
+        CachingDataProvider<Integer, String> provider = new CachingDataProvider<>(
+                new CallbackDataProvider<>(query -> {
+                    if (fetches.incrementAndGet() == 1) {
+                        throw new AssertionError("Back end broken");
+                    }
+                    return items.stream().limit(query.getLimit());
+                }, query -> items.size()), 10, 0);
+
+        try {
+            fetch(provider, query(0, 10, null));
+            Assert.fail("Expected the failure of the back end");
+        } catch (AssertionError expected) {
+            Assert.assertEquals("Back end broken", expected.getMessage());
+        }
+        Assert.assertEquals(0, provider.getCache().getEntryCount());
+        Assert.assertEquals(items.subList(0, 10),
+                fetch(provider, query(0, 10, null)));
+    }
+}
@@ -15,19 +15,26 @@
  */
 package com.vaadin.data.provider;
 
+import java.util.ArrayList;
 import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Executor;
 import java.util.concurrent.Future;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
 import org.junit.Assert;
 import org.junit.Test;
 import org.mockito.Mockito;
 
+import com.vaadin.server.ClientMethodInvocation;
 import com.vaadin.server.MockVaadinSession;
 import com.vaadin.server.VaadinRequest;
 import com.vaadin.server.VaadinService;
 import com.vaadin.server.VaadinSession;
 import com.vaadin.shared.Registration;
 import com.vaadin.ui.UI;
+import com.vaadin.util.CurrentInstance;
 
 import elemental.json.JsonObject;
 
@@ -191,4 +198,243 @@ public class DataCommunicatorTest {
                 TEST_OBJECT, generator.generated);
     }
 
+    @Test
+    public void unknownSize_scrollRangeGrowsAsPagesArrive() {
+        session.lock();
+
+        UI ui = new TestUI(session);
+
+        TestDataCommunicator communicator = new TestDataCommunicator();
+        communicator.extend(ui);
+
+        List<Object> items = IntStream.range(0, 100).boxed()
+                .collect(Collectors.toList());
+        List<Query<Object, ?>> queries = new ArrayList<>();
+        communicator.setDataProvider(new CallbackDataProvider<>(query -> {
+            queries.add(query);
+            return FetchResult.withUnknownSize(items.subList(
+                    Math.min(query.getOffset(), items.size()),
+                    Math.min(query.getOffset() + query.getLimit(),
+                            items.size())));
+        }), null);
+        communicator.retrievePendingRpcCalls();
+
+        // The first page and the size are fetched with one call
+        communicator.beforeClientResponse(true);
+        Assert.assertEquals(1, queries.size());
+        assertRpcCall(communicator, "reset", 80);
+
+        // A full page keeps the end one push ahead
+        communicator.onRequestRows(40, 40, 0, 40);
+        communicator.beforeClientResponse(false);
+        assertRpcCall(communicator, "insertRows", 80, 40);
+
+        // A short page marks the end of the items
+        communicator.onRequestRows(80, 40, 0, 80);
+        communicator.beforeClientResponse(false);
+        assertRpcCall(communicator, "removeRows", 100, 20);
+
+        // The size is now known, so rows are fetched without sizes
+        communicator.onRequestRows(60, 40, 0, 100);
+        communicator.beforeClientResponse(false);
+        Assert.assertEquals(4, queries.size());
+        Assert.assertFalse(
+                rpcMethods(communicator).contains("insertRows"));
+    }
+
+    @Test
+    public void readAhead_nextWindowFetchedAndServedFromCache() {
+        session.lock();
+
+        UI ui = new TestUI(session);
+
+        TestDataCommunicator communicator = new TestDataCommunicator() {
+            @Override
+            protected Executor getReadAheadExecutor() {
+                return Runnable::run;
+            }
+        };
+        communicator.extend(ui);
+
+        List<Object> items = IntStream.range(0, 1000).boxed()
+                .collect(Collectors.toList());
+        List<Query<Object, ?>> queries = new ArrayList<>();
+        communicator.setDataProvider(new CallbackDataProvider<>(query -> {
+            queries.add(query);
+            return items.stream().skip(query.getOffset())
+                    .limit(query.getLimit());
+        }, query -> items.size()), null);
+        communicator.beforeClientResponse(true);
+        queries.clear();
+
+        // Fetched when requested, and the next 40 rows are read ahead
+        communicator.onRequestRows(40, 40, 0, 40);
+        communicator.beforeClientResponse(false);
+        Assert.assertEquals(2, queries.size());
+        Assert.assertEquals(80, queries.get(1).getOffset());
+        Assert.assertEquals(40, queries.get(1).getLimit());
+
+        // Served from the rows read ahead
+        communicator.onRequestRows(80, 40, 0, 80);
+        communicator.beforeClientResponse(false);
+        Assert.assertEquals(3, queries.size());
+        Assert.assertEquals(120, queries.get(2).getOffset());
+        Assert.assertEquals(1, communicator.getReadAheadHitCount());
+        Assert.assertEquals(1, communicator.getReadAheadMissCount());
+        Assert.assertEquals(0.5, communicator.getReadAheadHitRatio(), 0);
+
+        // A reset discards the rows read ahead
+        communicator.reset();
+        communicator.onRequestRows(120, 40, 0, 120);
+        communicator.beforeClientResponse(false);
+        communicator.onRequestRows(120, 40, 0, 120);
+        communicator.beforeClientResponse(false);
+        Assert.assertEquals(2, communicator.getReadAheadMissCount());
+    }
+
+    @Test
+    public void readAhead_refreshedItemNotServedFromCache() {
+        session.lock();
+
+        UI ui = new TestUI(session);
+
+        TestDataCommunicator communicator = new TestDataCommunicator() {
+            @Override
+            protected Executor getReadAheadExecutor() {
+                return Runnable::run;
+            }
+        };
+        communicator.extend(ui);
+
+        List<Object> items = IntStream.range(0, 1000).boxed()
+                .collect(Collectors.toList());
+        List<Query<Object, ?>> queries = new ArrayList<>();
+        communicator.setDataProvider(new CallbackDataProvider<>(query -> {
+            queries.add(query);
+            return items.stream().skip(query.getOffset())
+                    .limit(query.getLimit());
+        }, query -> items.size()), null);
+        communicator.beforeClientResponse(true);
+        queries.clear();
+
+        // Rows 80-120 are read ahead but not sent to the client
+        communicator.onRequestRows(40, 40, 0, 40);
+        communicator.beforeClientResponse(false);
+        Assert.assertEquals(2, queries.size());
+        Assert.assertFalse(communicator.getActiveDataHandler()
+                .getActiveData().contains(items.get(100)));
+
+        communicator.refresh(items.get(100));
+
+        // The page containing the refreshed item is fetched again
+        communicator.onRequestRows(80, 40, 0, 80);
+        communicator.beforeClientResponse(false);
+        Assert.assertEquals(4, queries.size());
+        Assert.assertEquals(80, queries.get(2).getOffset());
+        Assert.assertEquals(0, communicator.getReadAheadHitCount());
+        Assert.assertEquals(2, communicator.getReadAheadMissCount());
+    }
+
+    @Test
+    public void readAhead_queuedFetchNotWaitedFor() {
+        session.lock();
+
+        UI ui = new TestUI(session);
+
+        List<Runnable> queued = new ArrayList<>();
+        TestDataCommunicator communicator = new TestDataCommunicator() {
+            @Override
+            protected Executor getReadAheadExecutor() {
+                return queued::add;
+            }
+        };
+        communicator.extend(ui);
+
+        List<Object> items = IntStream.range(0, 1000).boxed()
+                .collect(Collectors.toList());
+        List<Query<Object, ?>> queries = new ArrayList<>();
+        communicator.setDataProvider(new CallbackDataProvider<>(query -> {
+            queries.add(query);
+            return items.stream().skip(query.getOffset())
+                    .limit(query.getLimit());
+        }, query -> items.size()), null);
+        communicator.beforeClientResponse(true);
+        queries.clear();
+
+        communicator.onRequestRows(40, 40, 0, 40);
+        communicator.beforeClientResponse(false);
+        Assert.assertEquals(1, queued.size());
+
+        // The read-ahead has not started, so the rows are fetched right away
+        communicator.onRequestRows(80, 40, 0, 80);
+        communicator.beforeClientResponse(false);
+        Assert.assertEquals(2, queries.size());
+        Assert.assertEquals(80, queries.get(1).getOffset());
+        Assert.assertEquals(2, communicator.getReadAheadMissCount());
+
+        // The skipped read-ahead does not query the data provider
+        queued.get(0).run();
+        Assert.assertEquals(2, queries.size());
+    }
+
+    @Test
+    public void readAhead_currentInstancesSetInBackgroundThread() {
+        session.lock();
+
+        UI ui = new TestUI(session);
+        UI.setCurrent(ui);
+
+        TestDataCommunicator communicator = new TestDataCommunicator() {
+            @Override
+            protected Executor getReadAheadExecutor() {
+                return runnable -> {
+                    Thread thread = new Thread(runnable);
+                    thread.start();
+                    try {
+                        thread.join();
+                    } catch (InterruptedException e) {
+                        throw new AssertionError(e);
+                    }
+                };
+            }
+        };
+        communicator.extend(ui);
+
+        Thread testThread = Thread.currentThread();
+        List<UI> backgroundUIs = new ArrayList<>();
+        communicator.setDataProvider(new CallbackDataProvider<>(query -> {
+            if (Thread.currentThread() != testThread) {
+                backgroundUIs.add(UI.getCurrent());
+            }
+            return IntStream.range(0, 100).boxed().map(Object.class::cast)
+                    .skip(query.getOffset()).limit(query.getLimit());
+        }, query -> 100), null);
+        communicator.beforeClientResponse(true);
+
+        try {
+            communicator.onRequestRows(0, 40, 0, 0);
+            communicator.beforeClientResponse(false);
+        } finally {
+            CurrentInstance.clearAll();
+        }
+
+        Assert.assertEquals(Collections.singletonList(ui), backgroundUIs);
+    }
+
+    private static void assertRpcCall(DataCommunicator<?> communicator,
+            String method, Object... parameters) {
+        List<ClientMethodInvocation> calls = communicator
+                .retrievePendingRpcCalls();
+        ClientMethodInvocation call = calls.stream()
+                .filter(c -> c.getMethodName().equals(method)).findFirst()
+                .orElseThrow(() -> new AssertionError(
+                        "No " + method + " call in " + calls));
+        Assert.assertArrayEquals(parameters, call.getParameters());
+    }
+
+    private static List<String> rpcMethods(DataCommunicator<?> communicator) {
+        return communicator.retrievePendingRpcCalls().stream()
+                .map(ClientMethodInvocation::getMethodName)
+                .collect(Collectors.toList());
+    }
 }
@@ -0,0 +1,94 @@
+package com.vaadin.data.provider;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.Test;
+
+public class IdentifierKeyMapperTest {
+
+    private final IdentifierKeyMapper<StrBean> mapper = new IdentifierKeyMapper<>(
+            StrBean::getId);
+
+    @Test
+    public void key_sameIdSameKey() {
+        StrBean bean = new StrBean("a", 1, 0);
+        StrBean copy = new StrBean("b", 1, 0);
+        StrBean other = new StrBean("a", 2, 0);
+
+        String key = mapper.key(bean);
+        assertEquals(key, mapper.key(copy));
+        assertNotEquals(key, mapper.key(other));
+        assertSame(bean, mapper.get(key));
+        assertEquals(2, mapper.size());
+        assertEquals("null", mapper.key(null));
+    }
+
+    @Test
+    public void remove_keyNotReused() {
+        StrBean bean = new StrBean("a", 1, 0);
+        String key = mapper.key(bean);
+
+        mapper.remove(bean);
+        assertNull(mapper.get(key));
+        assertFalse(mapper.containsKey(key));
+        assertEquals(0, mapper.size());
+
+        String newKey = mapper.key(bean);
+        assertNotEquals(key, newKey);
+        assertTrue(mapper.containsKey(newKey));
+    }
+
+    @Test
+    public void refresh_newInstanceMappedToExistingKey() {
+        StrBean bean = new StrBean("a", 1, 0);
+        String key = mapper.key(bean);
+
+        StrBean updated = new StrBean("b", 1, 0);
+        mapper.refresh(updated, StrBean::getId);
+        assertSame(updated, mapper.get(key));
+
+        // Not mapped, so nothing happens
+        mapper.refresh(new StrBean("c", 2, 0), StrBean::getId);
+        assertEquals(1, mapper.size());
+    }
+
+    @Test
+    public void manyKeys_addAndRemoveInterleaved() {
+        List<StrBean> beans = new ArrayList<>();
+        List<String> keys = new ArrayList<>();
+        Set<StrBean> removed = new HashSet<>();
+        for (int i = 0; i < 5000; i++) {
+            StrBean bean = new StrBean("v", i, 0);
+            beans.add(bean);
+            keys.add(mapper.key(bean));
+            if (i % 3 == 0) {
+                mapper.remove(beans.get(i / 2));
+                removed.add(beans.get(i / 2));
+            }
+        }
+
+        for (int i = 0; i < beans.size(); i++) {
+            if (removed.contains(beans.get(i))) {
+                assertNull(mapper.get(keys.get(i)));
+            } else {
+                assertSame(beans.get(i), mapper.get(keys.get(i)));
+            }
+        }
+        assertEquals(beans.size() - removed.size(), mapper.size());
+
+        mapper.removeAll();
+        assertEquals(0, mapper.size());
+        assertNull(mapper.get(keys.get(0)));
+        assertNull(mapper.get("not a key"));
+    }
+}
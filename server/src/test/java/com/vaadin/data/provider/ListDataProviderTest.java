@@ -1,5 +1,6 @@
 package com.vaadin.data.provider;
 
+import java.util.Collections;
 import java.util.Comparator;
 import java.util.List;
 import java.util.Locale;
@@ -9,6 +10,7 @@ import org.junit.Assert;
 import org.junit.Test;
 
 import com.vaadin.server.SerializableComparator;
+import com.vaadin.server.SerializablePredicate;
 import com.vaadin.shared.data.sort.SortDirection;
 
 public class ListDataProviderTest
@@ -217,6 +219,111 @@ public class ListDataProviderTest
         assertSizeWithFilter(0, filteringBy, "oo");
     }
 
+    @Test
+    public void refreshItem_sortedItemMoved() {
+        dataProvider.setItemCaching(true);
+        Comparator<StrBean> byValue = Comparator
+                .comparing(StrBean::getValue);
+        Query<StrBean, SerializablePredicate<StrBean>> query = new Query<>(0,
+                Integer.MAX_VALUE, Collections.emptyList(), byValue, null);
+        dataProvider.fetch(query);
+
+        StrBean item = data.get(50);
+        item.setValue("Aaa");
+        dataProvider.refreshItem(item);
+
+        Assert.assertEquals(
+                data.stream().sorted(byValue).collect(Collectors.toList()),
+                dataProvider.fetch(query).collect(Collectors.toList()));
+        Assert.assertSame(item, dataProvider.fetch(query).findFirst().get());
+    }
+
+    @Test
+    public void refreshItem_noLongerMatchingFilter_removed() {
+        dataProvider.setItemCaching(true);
+        Query<StrBean, SerializablePredicate<StrBean>> query = new Query<>(
+                fooFilter);
+        Assert.assertEquals(36, dataProvider.size(query));
+
+        StrBean foo = data.stream().filter(fooFilter).findFirst().get();
+        foo.setValue("Bar");
+        dataProvider.refreshItem(foo);
+
+        Assert.assertEquals(35, dataProvider.size(query));
+        Assert.assertEquals(
+                data.stream().filter(fooFilter).collect(Collectors.toList()),
+                dataProvider.fetch(query).collect(Collectors.toList()));
+    }
+
+    @Test
+    public void itemCaching_itemAddedWithoutRefresh_included() {
+        dataProvider.setItemCaching(true);
+        Assert.assertEquals(100, sizeWithUnfilteredQuery());
+
+        data.add(new StrBean("Foo", 100, 0));
+
+        Assert.assertEquals(101, sizeWithUnfilteredQuery());
+    }
+
+    @Test
+    public void itemReplacedWithoutRefresh_visible() {
+        Assert.assertFalse(dataProvider.isItemCaching());
+        Assert.assertEquals(data.get(0), fetchFirst());
+
+        StrBean replacement = new StrBean("Replacement", 1000, 0);
+        data.set(0, replacement);
+
+        Assert.assertSame(replacement, fetchFirst());
+    }
+
+    @Test
+    public void itemCaching_itemReplaced_visibleAfterRefreshAll() {
+        dataProvider.setItemCaching(true);
+        StrBean original = fetchFirst();
+
+        StrBean replacement = new StrBean("Replacement", 1000, 0);
+        data.set(0, replacement);
+        Assert.assertSame(original, fetchFirst());
+
+        dataProvider.refreshAll();
+        Assert.assertSame(replacement, fetchFirst());
+    }
+
+    @Test
+    public void unsortedPage_onlyItemsUpToPageFiltered() {
+        int[] tested = new int[1];
+        SerializablePredicate<StrBean> filter = item -> {
+            tested[0]++;
+            return true;
+        };
+
+        List<StrBean> page = dataProvider
+                .fetch(new Query<>(10, 5, Collections.emptyList(), null,
+                        filter))
+                .collect(Collectors.toList());
+
+        Assert.assertEquals(data.subList(10, 15), page);
+        Assert.assertEquals(15, tested[0]);
+    }
+
+    private StrBean fetchFirst() {
+        return dataProvider.fetch(new Query<>()).findFirst().get();
+    }
+
+    @Test
+    public void parallelSorting_sameOrder() {
+        List<StrBean> items = StrBean.generateRandomBeans(20000);
+        ListDataProvider<StrBean> provider = DataProvider
+                .ofCollection(items);
+        provider.setParallelSorting(true);
+        provider.setSortOrder(StrBean::getValue, SortDirection.ASCENDING);
+
+        Assert.assertEquals(
+                items.stream().sorted(Comparator.comparing(StrBean::getValue))
+                        .collect(Collectors.toList()),
+                provider.fetch(new Query<>()).collect(Collectors.toList()));
+    }
+
     @Override
     protected void setSortOrder(List<QuerySortOrder> sortOrder,
             Comparator<StrBean> comp) {
@@ -0,0 +1,169 @@
+/*
+ * Copyright 2000-2016 Vaadin Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.vaadin.server;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+import com.vaadin.server.communication.PushConnection;
+import com.vaadin.shared.communication.PushMode;
+import com.vaadin.tests.util.MockUI;
+import com.vaadin.ui.Label;
+import com.vaadin.ui.UI;
+import com.vaadin.util.CurrentInstance;
+
+public class AccessBatchTest {
+
+    private static class CountingPushConnection implements PushConnection {
+        private int pushes;
+
+        @Override
+        public void push() {
+            pushes++;
+        }
+
+        @Override
+        public boolean isConnected() {
+            return true;
+        }
+
+        @Override
+        public void disconnect() {
+        }
+    }
+
+    private VaadinService service;
+    private final Map<UI, CountingPushConnection> connections = new LinkedHashMap<>();
+
+    @Before
+    public void setup() throws Exception {
+        VaadinServlet servlet = new VaadinServlet();
+        servlet.init(new MockServletConfig());
+        service = new VaadinServletService(servlet,
+                new DefaultDeploymentConfiguration(AccessBatchTest.class,
+                        new Properties()));
+    }
+
+    @After
+    public void tearDown() {
+        CurrentInstance.clearAll();
+    }
+
+    @Test
+    public void accessBatch_allRunInOrderWithOnePush() throws Exception {
+        VaadinSession session = new MockVaadinSession(service);
+        UI ui = createUI(session);
+
+        List<String> log = new ArrayList<>();
+        Future<Void> future = ui.accessBatch(Arrays.<Runnable> asList(
+                () -> log.add("first"), () -> ui.setContent(new Label()),
+                new ErrorHandlingRunnable() {
+                    @Override
+                    public void run() {
+                        throw new IllegalStateException("failed");
+                    }
+
+                    @Override
+                    public void handleError(Exception exception) {
+                        log.add(exception.getMessage());
+                    }
+                }, () -> ui.setContent(new Label()), () -> log.add("last")));
+        future.get(1, TimeUnit.SECONDS);
+
+        Assert.assertEquals(Arrays.asList("first", "failed", "last"), log);
+        Assert.assertEquals(1, connections.get(ui).pushes);
+    }
+
+    @Test
+    public void accessUIs_allRunWithOnePushPerUI() throws Exception {
+        VaadinSession session1 = new MockVaadinSession(service);
+        VaadinSession session2 = new MockVaadinSession(service);
+        List<UI> uis = Arrays.asList(createUI(session1), createUI(session2),
+                createUI(session1), createUI(session2));
+
+        Map<UI, List<Runnable>> runnables = new LinkedHashMap<>();
+        int[] runCount = new int[1];
+        for (UI ui : uis) {
+            Runnable update = () -> {
+                Assert.assertSame(ui, UI.getCurrent());
+                ui.setContent(new Label());
+                runCount[0]++;
+            };
+            runnables.put(ui, Arrays.asList(update, update, update));
+        }
+
+        Future<Void> future = service.accessUIs(runnables);
+        future.get(1, TimeUnit.SECONDS);
+
+        Assert.assertTrue(future.isDone());
+        Assert.assertEquals(12, runCount[0]);
+        for (UI ui : uis) {
+            Assert.assertEquals(1, connections.get(ui).pushes);
+        }
+    }
+
+    @Test
+    public void accessUIs_sessionLocked_runOnUnlock() throws Exception {
+        VaadinSession session = new MockVaadinSession(service);
+        UI ui = createUI(session);
+
+        session.lock();
+        Future<Void> future;
+        try {
+            Map<UI, List<Runnable>> runnables = new LinkedHashMap<>();
+            runnables.put(ui, Arrays.asList(() -> ui.setContent(new Label()),
+                    () -> ui.setContent(new Label())));
+            future = service.accessUIs(runnables);
+
+            Assert.assertFalse(future.isDone());
+        } finally {
+            session.unlock();
+        }
+
+        Assert.assertTrue(future.isDone());
+        Assert.assertEquals(1, connections.get(ui).pushes);
+    }
+
+    private UI createUI(VaadinSession session) {
+        session.lock();
+        try {
+            UI ui = new MockUI(session);
+            ui.getPushConfiguration().setPushMode(PushMode.AUTOMATIC);
+            CountingPushConnection connection = new CountingPushConnection();
+            ui.setPushConnection(connection);
+            ui.doInit(Mockito.mock(VaadinRequest.class), session.getNextUIid(),
+                    null);
+            session.addUI(ui);
+            ui.getConnectorTracker().markAllConnectorsClean();
+            connections.put(ui, connection);
+            return ui;
+        } finally {
+            session.unlock();
+        }
+    }
+}
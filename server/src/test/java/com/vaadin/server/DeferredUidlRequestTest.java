@@ -0,0 +1,282 @@
+/*
+ * Copyright 2000-2016 Vaadin Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.vaadin.server;
+
+import java.lang.reflect.Field;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+
+import javax.servlet.AsyncContext;
+import javax.servlet.AsyncEvent;
+import javax.servlet.AsyncListener;
+import javax.servlet.DispatcherType;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpSession;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mockito;
+
+public class DeferredUidlRequestTest {
+
+    private VaadinServlet servlet;
+    private VaadinServletService service;
+    private ReentrantLock lock;
+    private HttpSession httpSession;
+    private HttpServletRequest httpRequest;
+    private AsyncContext asyncContext;
+
+    @Before
+    public void setup() throws ServletException {
+        Properties initParameters = new Properties();
+        initParameters.setProperty(
+                Constants.SERVLET_PARAMETER_ASYNC_UIDL_REQUESTS, "true");
+        servlet = new VaadinServlet();
+        servlet.init(new MockServletConfig(initParameters));
+        service = servlet.getService();
+
+        lock = new ReentrantLock();
+        httpSession = Mockito.mock(HttpSession.class);
+        Mockito.when(httpSession.getAttribute(Mockito.anyString()))
+                .thenReturn(lock);
+
+        asyncContext = Mockito.mock(AsyncContext.class);
+        httpRequest = Mockito.mock(HttpServletRequest.class);
+        Mockito.when(httpRequest.isAsyncSupported()).thenReturn(true);
+        Mockito.when(httpRequest.getDispatcherType())
+                .thenReturn(DispatcherType.REQUEST);
+        Mockito.when(httpRequest.getPathInfo()).thenReturn("/UIDL/");
+        Mockito.when(httpRequest.getSession(false)).thenReturn(httpSession);
+        Mockito.when(httpRequest.startAsync()).thenReturn(asyncContext);
+    }
+
+    @Test
+    public void sessionNotLocked_notDeferred() {
+        Assert.assertFalse(defer());
+        Mockito.verify(httpRequest, Mockito.never()).startAsync();
+    }
+
+    @Test
+    public void sessionLocked_deferredUntilUnlocked() {
+        service.lockSession(new WrappedHttpSession(httpSession));
+
+        Assert.assertTrue(defer());
+        Mockito.verify(asyncContext, Mockito.never()).dispatch();
+
+        service.unlockSession(new WrappedHttpSession(httpSession));
+        Mockito.verify(asyncContext).dispatch();
+    }
+
+    @Test
+    public void severalRequestsDeferred_oneDispatchedPerUnlock() {
+        WrappedSession wrappedSession = new WrappedHttpSession(httpSession);
+        AtomicInteger dispatches = new AtomicInteger();
+        Mockito.doAnswer(invocation -> {
+            // The dispatched request locks the session until the next unlock
+            dispatches.incrementAndGet();
+            service.lockSession(wrappedSession);
+            return null;
+        }).when(asyncContext).dispatch();
+
+        service.lockSession(wrappedSession);
+        Assert.assertTrue(defer());
+        Assert.assertTrue(defer());
+
+        service.unlockSession(wrappedSession);
+        Assert.assertEquals(1, dispatches.get());
+
+        service.unlockSession(wrappedSession);
+        Assert.assertEquals(2, dispatches.get());
+
+        service.unlockSession(wrappedSession);
+        Assert.assertEquals(2, dispatches.get());
+        Assert.assertFalse(lock.isLocked());
+    }
+
+    @Test
+    public void timedOutRequest_dispatchedOnlyOnce() throws Exception {
+        service.lockSession(new WrappedHttpSession(httpSession));
+        Assert.assertTrue(defer());
+
+        ArgumentCaptor<AsyncListener> listener = ArgumentCaptor
+                .forClass(AsyncListener.class);
+        Mockito.verify(asyncContext).addListener(listener.capture());
+        listener.getValue().onTimeout(Mockito.mock(AsyncEvent.class));
+        Mockito.verify(asyncContext).dispatch();
+
+        service.unlockSession(new WrappedHttpSession(httpSession));
+        Mockito.verify(asyncContext).dispatch();
+    }
+
+    @Test
+    public void timedOutOrCompletedRequest_removedFromQueue() throws Exception {
+        service.lockSession(new WrappedHttpSession(httpSession));
+        Assert.assertTrue(defer());
+        Assert.assertTrue(defer());
+        Assert.assertEquals(1, getUnlockTasks().size());
+
+        ArgumentCaptor<AsyncListener> listener = ArgumentCaptor
+                .forClass(AsyncListener.class);
+        Mockito.verify(asyncContext, Mockito.times(2))
+                .addListener(listener.capture());
+        listener.getAllValues().get(0)
+                .onTimeout(Mockito.mock(AsyncEvent.class));
+        listener.getAllValues().get(1)
+                .onComplete(Mockito.mock(AsyncEvent.class));
+
+        Assert.assertTrue(getUnlockTasks().isEmpty());
+        service.unlockSession(new WrappedHttpSession(httpSession));
+        Mockito.verify(asyncContext).dispatch();
+    }
+
+    @Test
+    public void dispatchedRequestNotLocking_nextDispatchedWhenHandled()
+            throws Exception {
+        service.lockSession(new WrappedHttpSession(httpSession));
+        Assert.assertTrue(defer());
+        Assert.assertTrue(defer());
+
+        // The first request is dispatched but fails before locking
+        service.unlockSession(new WrappedHttpSession(httpSession));
+        Mockito.verify(asyncContext).dispatch();
+
+        ArgumentCaptor<AsyncListener> listener = ArgumentCaptor
+                .forClass(AsyncListener.class);
+        Mockito.verify(asyncContext, Mockito.times(2))
+                .addListener(listener.capture());
+        listener.getAllValues().get(0)
+                .onComplete(Mockito.mock(AsyncEvent.class));
+
+        Mockito.verify(asyncContext, Mockito.times(2)).dispatch();
+        Assert.assertTrue(getUnlockTasks().isEmpty());
+    }
+
+    @Test
+    public void dispatchedRequestLocking_nextDispatchedOnlyOnUnlock()
+            throws Exception {
+        WrappedSession wrappedSession = new WrappedHttpSession(httpSession);
+        service.lockSession(wrappedSession);
+        Assert.assertTrue(defer());
+        Assert.assertTrue(defer());
+        Assert.assertTrue(defer());
+
+        service.unlockSession(wrappedSession);
+        Mockito.verify(asyncContext).dispatch();
+
+        // The dispatched request locks and unlocks the session, which
+        // dispatches the next request
+        service.lockSession(wrappedSession);
+        service.unlockSession(wrappedSession);
+        Mockito.verify(asyncContext, Mockito.times(2)).dispatch();
+
+        ArgumentCaptor<AsyncListener> listener = ArgumentCaptor
+                .forClass(AsyncListener.class);
+        Mockito.verify(asyncContext, Mockito.times(3))
+                .addListener(listener.capture());
+        listener.getAllValues().get(0)
+                .onComplete(Mockito.mock(AsyncEvent.class));
+
+        // The second request has not locked the session yet
+        Mockito.verify(asyncContext, Mockito.times(2)).dispatch();
+    }
+
+    @Test
+    public void sessionDestroyed_queuedTasksRunRightAway() {
+        MockVaadinSession session = new MockVaadinSession(service);
+        AtomicInteger runs = new AtomicInteger();
+        session.lock();
+        service.runWhenUnlocked(session.getLockInstance(), () -> {
+            runs.incrementAndGet();
+            return false;
+        });
+        Assert.assertEquals(1, getUnlockTasks().size());
+
+        service.fireSessionDestroy(session);
+        Assert.assertTrue(getUnlockTasks().isEmpty());
+        Assert.assertEquals(1, runs.get());
+
+        session.unlock();
+        Assert.assertEquals(1, runs.get());
+    }
+
+    @Test
+    public void heartbeatRequest_notDeferred() {
+        Mockito.when(httpRequest.getPathInfo()).thenReturn("/HEARTBEAT/");
+        lock.lock();
+        try {
+            Assert.assertFalse(defer());
+        } finally {
+            lock.unlock();
+        }
+        Mockito.verify(httpRequest, Mockito.never()).startAsync();
+    }
+
+    @Test
+    public void asyncDispatch_notDeferredAgain() {
+        Mockito.when(httpRequest.getDispatcherType())
+                .thenReturn(DispatcherType.ASYNC);
+        lock.lock();
+        try {
+            Assert.assertFalse(defer());
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Test
+    public void otherRequest_notDeferred() {
+        Mockito.when(httpRequest.getPathInfo()).thenReturn("/APP/foo");
+        lock.lock();
+        try {
+            Assert.assertFalse(defer());
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Test
+    public void notEnabled_notDeferred() throws ServletException {
+        servlet = new VaadinServlet();
+        servlet.init(new MockServletConfig());
+        service = servlet.getService();
+        lock.lock();
+        try {
+            Assert.assertFalse(defer());
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private Map<?, ?> getUnlockTasks() {
+        try {
+            Field field = VaadinService.class.getDeclaredField("unlockTasks");
+            field.setAccessible(true);
+            return (Map<?, ?>) field.get(service);
+        } catch (ReflectiveOperationException e) {
+            throw new AssertionError(e);
+        }
+    }
+
+    private boolean defer() {
+        return service.deferWhileSessionLocked(
+                new VaadinServletRequest(httpRequest, service));
+    }
+}
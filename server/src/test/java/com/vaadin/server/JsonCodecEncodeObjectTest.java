@@ -0,0 +1,131 @@
+/*
+ * Copyright 2000-2016 Vaadin Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.vaadin.server;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import elemental.json.JsonObject;
+import elemental.json.JsonType;
+
+public class JsonCodecEncodeObjectTest {
+
+    public static class TestBean {
+        public boolean enabled = true;
+        public int count = 1;
+        public long total = 2;
+        public String caption;
+        public List<String> styles = Arrays.asList("a", "b");
+
+        private double width = 3.5;
+
+        public double getWidth() {
+            return width;
+        }
+
+        public void setWidth(double width) {
+            this.width = width;
+        }
+    }
+
+    public static class DuplicateBean {
+        public int value;
+
+        public int getValue() {
+            return value;
+        }
+
+        public void setValue(int value) {
+            this.value = value;
+        }
+    }
+
+    @Test
+    public void encodeWithoutReference_allPropertiesInDiff() {
+        EncodeResult result = encode(new TestBean(), null);
+
+        JsonObject encoded = (JsonObject) result.getEncodedValue();
+        JsonObject diff = (JsonObject) result.getDiff();
+
+        Assert.assertTrue(encoded.getBoolean("enabled"));
+        Assert.assertEquals(1, encoded.getNumber("count"), 0);
+        Assert.assertEquals(2, encoded.getNumber("total"), 0);
+        Assert.assertEquals(3.5, encoded.getNumber("width"), 0);
+        Assert.assertEquals(JsonType.NULL, encoded.get("caption").getType());
+        Assert.assertEquals(2, encoded.getArray("styles").length());
+
+        // caption is null both in the bean and in the (missing) reference
+        Assert.assertEquals(5, diff.keys().length);
+        Assert.assertFalse(diff.hasKey("caption"));
+    }
+
+    @Test
+    public void encodeWithReference_onlyChangedPropertiesInDiff() {
+        TestBean bean = new TestBean();
+        JsonObject reference = (JsonObject) encode(bean, null)
+                .getEncodedValue();
+
+        bean.count = 5;
+        bean.caption = "caption";
+        bean.setWidth(10);
+        JsonObject diff = (JsonObject) encode(bean, reference).getDiff();
+
+        Assert.assertEquals(3, diff.keys().length);
+        Assert.assertEquals(5, diff.getNumber("count"), 0);
+        Assert.assertEquals("caption", diff.getString("caption"));
+        Assert.assertEquals(10, diff.getNumber("width"), 0);
+    }
+
+    @Test
+    public void encodeWithReference_unchangedBean_emptyDiff() {
+        TestBean bean = new TestBean();
+        bean.caption = "caption";
+        JsonObject reference = (JsonObject) encode(bean, null)
+                .getEncodedValue();
+
+        JsonObject diff = (JsonObject) encode(bean, reference).getDiff();
+
+        Assert.assertEquals(0, diff.keys().length);
+    }
+
+    @Test
+    public void encodeWithReference_propertySetToNull_nullInDiff() {
+        TestBean bean = new TestBean();
+        bean.caption = "caption";
+        JsonObject reference = (JsonObject) encode(bean, null)
+                .getEncodedValue();
+
+        bean.caption = null;
+        bean.styles = null;
+        JsonObject diff = (JsonObject) encode(bean, reference).getDiff();
+
+        Assert.assertEquals(2, diff.keys().length);
+        Assert.assertEquals(JsonType.NULL, diff.get("caption").getType());
+        Assert.assertEquals(JsonType.NULL, diff.get("styles").getType());
+    }
+
+    @Test(expected = RuntimeException.class)
+    public void encodeDuplicateProperties_throws() {
+        encode(new DuplicateBean(), null);
+    }
+
+    private static EncodeResult encode(Object bean, JsonObject reference) {
+        return JsonCodec.encode(bean, reference, bean.getClass(), null);
+    }
+}
@@ -0,0 +1,183 @@
+/*
+ * Copyright 2000-2016 Vaadin Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.vaadin.server;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.locks.Lock;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+import com.vaadin.server.communication.HeartbeatHandler;
+import com.vaadin.shared.ApplicationConstants;
+import com.vaadin.shared.ui.ui.UIConstants;
+import com.vaadin.ui.Button;
+import com.vaadin.ui.UI;
+import com.vaadin.util.CurrentInstance;
+
+public class LockFreeRequestTest {
+
+    private MockVaadinSession session;
+    private UI ui;
+    private VaadinRequest request;
+    private VaadinResponse response;
+
+    private final CountDownLatch locked = new CountDownLatch(1);
+    private final CountDownLatch release = new CountDownLatch(1);
+
+    @Before
+    public void setup() {
+        VaadinService service = Mockito.mock(VaadinService.class);
+        session = new MockVaadinSession(service);
+        request = Mockito.mock(VaadinRequest.class);
+        response = Mockito.mock(VaadinResponse.class);
+
+        ui = new UI() {
+            @Override
+            protected void init(VaadinRequest request) {
+            }
+        };
+        ui.doInit(request, 0, "");
+        session.getLockInstance().lock();
+        try {
+            session.setCommunicationManager(
+                    new LegacyCommunicationManager(session));
+            ui.setSession(session);
+            session.addUI(ui);
+        } finally {
+            session.getLockInstance().unlock();
+        }
+    }
+
+    @After
+    public void tearDown() {
+        release.countDown();
+        CurrentInstance.clearAll();
+    }
+
+    @Test(timeout = 5000)
+    public void heartbeat_sessionLockedByOtherThread_handledWithoutWaiting()
+            throws Exception {
+        ui.setLastHeartbeatTimestamp(0);
+        Mockito.when(request.getPathInfo()).thenReturn("/HEARTBEAT/");
+        Mockito.when(request.getParameter(UIConstants.UI_ID_PARAMETER))
+                .thenReturn("0");
+
+        lockInOtherThread();
+
+        Assert.assertTrue(new HeartbeatHandler().handleRequest(session,
+                request, response));
+        Assert.assertNotEquals(0, ui.getLastHeartbeatTimestamp());
+        Mockito.verify(response).setHeader("Cache-Control", "no-cache");
+    }
+
+    @Test(timeout = 5000)
+    public void heartbeat_unknownUI_notFound() throws Exception {
+        Mockito.when(request.getPathInfo()).thenReturn("/HEARTBEAT/");
+        Mockito.when(request.getParameter(UIConstants.UI_ID_PARAMETER))
+                .thenReturn("42");
+
+        lockInOtherThread();
+
+        Assert.assertTrue(new HeartbeatHandler().handleRequest(session,
+                request, response));
+        Mockito.verify(response).sendError(Mockito.eq(404),
+                Mockito.anyString());
+    }
+
+    @Test(timeout = 5000)
+    public void connectorResource_sessionLockedByOtherThread_handledWithoutWaiting()
+            throws Exception {
+        Button button = new Button() {
+            @Override
+            public boolean handleConnectorRequest(VaadinRequest request,
+                    VaadinResponse response, String path) {
+                return "file.txt".equals(path);
+            }
+        };
+        session.getLockInstance().lock();
+        try {
+            ui.setContent(button);
+        } finally {
+            session.getLockInstance().unlock();
+        }
+        Mockito.when(request.getPathInfo()).thenReturn(
+                "/APP/connector/0/" + button.getConnectorId() + "/file.txt");
+
+        lockInOtherThread();
+
+        Assert.assertTrue(new ConnectorResourceHandler().handleRequest(session,
+                request, response));
+        Mockito.verify(response, Mockito.never()).sendError(Mockito.anyInt(),
+                Mockito.anyString());
+    }
+
+    @Test
+    public void getConnector_withoutLock_dragAndDropServiceNotCreated() {
+        String connectorId = ApplicationConstants.DRAG_AND_DROP_CONNECTOR_ID;
+
+        Assert.assertNull(ui.getConnectorTracker().getConnector(connectorId));
+
+        session.getLockInstance().lock();
+        try {
+            Assert.assertSame(session.getDragAndDropService(),
+                    ui.getConnectorTracker().getConnector(connectorId));
+        } finally {
+            session.getLockInstance().unlock();
+        }
+    }
+
+    @Test
+    public void isLockFreeRequest() throws Exception {
+        VaadinServlet servlet = new VaadinServlet();
+        servlet.init(new MockServletConfig());
+        VaadinService service = servlet.getService();
+        Assert.assertTrue(service.isLockFreeRequest(path("/HEARTBEAT/")));
+        Assert.assertTrue(service
+                .isLockFreeRequest(path("/APP/connector/0/1/file.txt")));
+        Assert.assertTrue(
+                service.isLockFreeRequest(path("/APP/PUBLISHED/file.js")));
+        Assert.assertFalse(service.isLockFreeRequest(path("/UIDL/")));
+        Assert.assertFalse(service.isLockFreeRequest(path("/")));
+    }
+
+    private static VaadinRequest path(String pathInfo) {
+        VaadinRequest request = Mockito.mock(VaadinRequest.class);
+        Mockito.when(request.getPathInfo()).thenReturn(pathInfo);
+        return request;
+    }
+
+    private void lockInOtherThread() throws InterruptedException {
+        Lock lock = session.getLockInstance();
+        Thread thread = new Thread(() -> {
+            lock.lock();
+            try {
+                locked.countDown();
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                lock.unlock();
+            }
+        });
+        thread.setDaemon(true);
+        thread.start();
+        locked.await();
+    }
+}
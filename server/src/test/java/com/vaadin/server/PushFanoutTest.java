@@ -0,0 +1,169 @@
+/*
+ * Copyright 2000-2016 Vaadin Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.vaadin.server;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+import com.vaadin.server.communication.PushConnection;
+import com.vaadin.shared.communication.PushMode;
+import com.vaadin.tests.util.MockUI;
+import com.vaadin.ui.Label;
+import com.vaadin.ui.UI;
+import com.vaadin.util.CurrentInstance;
+
+public class PushFanoutTest {
+
+    private static class CountingPushConnection implements PushConnection {
+        private int pushes;
+
+        @Override
+        public void push() {
+            pushes++;
+        }
+
+        @Override
+        public boolean isConnected() {
+            return true;
+        }
+
+        @Override
+        public void disconnect() {
+        }
+    }
+
+    private VaadinService service;
+    private PushFanout fanout;
+    private final Map<UI, CountingPushConnection> connections = new LinkedHashMap<>();
+
+    @Before
+    public void setup() throws Exception {
+        VaadinServlet servlet = new VaadinServlet();
+        servlet.init(new MockServletConfig());
+        service = new VaadinServletService(servlet,
+                new DefaultDeploymentConfiguration(PushFanoutTest.class,
+                        new Properties()));
+        fanout = new PushFanout(service);
+    }
+
+    @After
+    public void tearDown() {
+        CurrentInstance.clearAll();
+    }
+
+    @Test
+    public void broadcast_appliedToAllUIsWithOnePushEach() throws Exception {
+        VaadinSession session1 = new MockVaadinSession(service);
+        VaadinSession session2 = new MockVaadinSession(service);
+        List<UI> uis = Arrays.asList(createUI(session1, PushMode.AUTOMATIC),
+                createUI(session2, PushMode.AUTOMATIC),
+                createUI(session1, PushMode.MANUAL));
+        uis.forEach(fanout::subscribe);
+
+        List<UI> changed = new ArrayList<>();
+        Future<Void> future = fanout.broadcast(ui -> {
+            Assert.assertSame(ui, UI.getCurrent());
+            ui.setContent(new Label("Value"));
+            changed.add(ui);
+        });
+        future.get(1, TimeUnit.SECONDS);
+
+        Assert.assertEquals(uis.size(), changed.size());
+        Assert.assertTrue(changed.containsAll(uis));
+        for (UI ui : uis) {
+            Assert.assertEquals(1, connections.get(ui).pushes);
+        }
+        Assert.assertEquals(1, fanout.getBroadcasts());
+        Assert.assertEquals(3, fanout.getDeliveries());
+    }
+
+    @Test
+    public void broadcast_sessionLocked_appliedOnUnlock() throws Exception {
+        VaadinSession session = new MockVaadinSession(service);
+        UI ui = createUI(session, PushMode.AUTOMATIC);
+        fanout.subscribe(ui);
+
+        session.lock();
+        Future<Void> future;
+        try {
+            future = fanout.broadcast(u -> u.setContent(new Label()));
+            Assert.assertFalse(future.isDone());
+        } finally {
+            session.unlock();
+        }
+
+        Assert.assertTrue(future.isDone());
+        Assert.assertEquals(1, connections.get(ui).pushes);
+    }
+
+    @Test
+    public void removedUI_unsubscribed() throws Exception {
+        VaadinSession session = new MockVaadinSession(service);
+        UI removed = createUI(session, PushMode.AUTOMATIC);
+        UI remaining = createUI(session, PushMode.AUTOMATIC);
+        fanout.subscribe(removed);
+        fanout.subscribe(remaining);
+        removed.accessSynchronously(() -> session.removeUI(removed));
+
+        fanout.broadcast(ui -> ui.setContent(new Label())).get(1,
+                TimeUnit.SECONDS);
+
+        Assert.assertEquals(1, fanout.getSubscriberCount());
+        Assert.assertEquals(1, fanout.getDeliveries());
+    }
+
+    @Test
+    public void unsubscribe_notApplied() throws Exception {
+        UI ui = createUI(new MockVaadinSession(service), PushMode.AUTOMATIC);
+        fanout.subscribe(ui);
+        fanout.unsubscribe(ui);
+
+        fanout.broadcast(u -> Assert.fail()).get(1, TimeUnit.SECONDS);
+
+        Assert.assertEquals(0, fanout.getSubscriberCount());
+        Assert.assertEquals(0, connections.get(ui).pushes);
+    }
+
+    private UI createUI(VaadinSession session, PushMode pushMode) {
+        session.lock();
+        try {
+            UI ui = new MockUI(session);
+            ui.getPushConfiguration().setPushMode(pushMode);
+            CountingPushConnection connection = new CountingPushConnection();
+            ui.setPushConnection(connection);
+            ui.doInit(Mockito.mock(VaadinRequest.class), session.getNextUIid(),
+                    null);
+            session.addUI(ui);
+            ui.getConnectorTracker().markAllConnectorsClean();
+            connections.put(ui, connection);
+            return ui;
+        } finally {
+            session.unlock();
+        }
+    }
+}
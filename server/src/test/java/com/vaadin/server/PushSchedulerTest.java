@@ -0,0 +1,174 @@
+/*
+ * Copyright 2000-2016 Vaadin Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.vaadin.server;
+
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+import com.vaadin.shared.communication.PushMode;
+import com.vaadin.tests.util.AlwaysLockedVaadinSession;
+import com.vaadin.tests.util.MockUI;
+import com.vaadin.ui.Label;
+import com.vaadin.ui.PushConfiguration;
+import com.vaadin.ui.UI;
+
+public class PushSchedulerTest {
+
+    private final BlockingQueue<Runnable> accessTasks = new LinkedBlockingQueue<>();
+
+    private PushScheduler scheduler;
+    private UI ui;
+
+    @Before
+    public void setup() {
+        VaadinSession session = new AlwaysLockedVaadinSession(null) {
+            @Override
+            public Future<Void> access(Runnable runnable) {
+                accessTasks.add(runnable);
+                return null;
+            }
+        };
+        ui = new MockUI(session);
+        scheduler = new PushScheduler(50);
+    }
+
+    @After
+    public void tearDown() {
+        scheduler.shutdown();
+        UI.setCurrent(null);
+    }
+
+    @Test
+    public void firstRequest_pushedRightAway() {
+        ui.setContent(new Label());
+
+        Assert.assertTrue(scheduler.requestPush(ui));
+        Assert.assertEquals(1, scheduler.getSentPushes());
+        Assert.assertEquals(0, scheduler.getCoalescedPushes());
+    }
+
+    @Test
+    public void noChanges_notCountedAsPush() {
+        ui.getConnectorTracker().markAllConnectorsClean();
+
+        Assert.assertTrue(scheduler.requestPush(ui));
+        Assert.assertEquals(0, scheduler.getSentPushes());
+    }
+
+    @Test
+    public void requestsDuringWindow_coalescedIntoOnePush()
+            throws InterruptedException {
+        ui.setContent(new Label());
+
+        Assert.assertTrue(scheduler.requestPush(ui));
+        Assert.assertFalse(scheduler.requestPush(ui));
+        Assert.assertFalse(scheduler.requestPush(ui));
+        Assert.assertFalse(scheduler.requestPush(ui));
+        Assert.assertEquals(2, scheduler.getCoalescedPushes());
+
+        Runnable deferredPush = accessTasks.poll(5, TimeUnit.SECONDS);
+        Assert.assertNotNull("Deferred push was not scheduled", deferredPush);
+        Assert.assertTrue(accessTasks.isEmpty());
+
+        // A new window started with the deferred push
+        Assert.assertFalse(scheduler.requestPush(ui));
+    }
+
+    @Test
+    public void windowEndsWithoutRequests_nextRequestPushedRightAway()
+            throws InterruptedException {
+        ui.setContent(new Label());
+
+        Assert.assertTrue(scheduler.requestPush(ui));
+        Thread.sleep(200);
+
+        Assert.assertTrue(accessTasks.isEmpty());
+        Assert.assertTrue(scheduler.requestPush(ui));
+        Assert.assertEquals(2, scheduler.getSentPushes());
+    }
+
+    @Test
+    public void deferredPushBlocked_otherUIStillPushed()
+            throws InterruptedException {
+        CountDownLatch blockedPushStarted = new CountDownLatch(1);
+        CountDownLatch releaseBlockedPush = new CountDownLatch(1);
+        CountDownLatch otherPushed = new CountDownLatch(1);
+        UI blocked = createAutomaticPushUI(() -> {
+            blockedPushStarted.countDown();
+            try {
+                // Like a push waiting for a slow client to receive messages
+                releaseBlockedPush.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        UI other = createAutomaticPushUI(otherPushed::countDown);
+
+        try {
+            Assert.assertTrue(scheduler.requestPush(blocked));
+            Assert.assertTrue(scheduler.requestPush(other));
+            Assert.assertFalse(scheduler.requestPush(blocked));
+            Assert.assertFalse(scheduler.requestPush(other));
+
+            Assert.assertTrue("Deferred push was not started",
+                    blockedPushStarted.await(5, TimeUnit.SECONDS));
+            Assert.assertTrue("Other UI was not pushed while a push is blocked",
+                    otherPushed.await(500, TimeUnit.MILLISECONDS));
+        } finally {
+            releaseBlockedPush.countDown();
+        }
+    }
+
+    /*
+     * Creates a UI with automatic push in a session that is never locked by
+     * anyone else, so deferred pushes run on the thread calling access().
+     */
+    private static UI createAutomaticPushUI(Runnable onPush) {
+        VaadinSession session = new AlwaysLockedVaadinSession(null) {
+            @Override
+            public Future<Void> access(Runnable runnable) {
+                runnable.run();
+                return null;
+            }
+        };
+        PushConfiguration pushConfiguration = Mockito
+                .mock(PushConfiguration.class);
+        Mockito.when(pushConfiguration.getPushMode())
+                .thenReturn(PushMode.AUTOMATIC);
+        UI ui = new MockUI(session) {
+            @Override
+            public PushConfiguration getPushConfiguration() {
+                return pushConfiguration;
+            }
+
+            @Override
+            public void push() {
+                onPush.run();
+            }
+        };
+        ui.setContent(new Label());
+        return ui;
+    }
+}
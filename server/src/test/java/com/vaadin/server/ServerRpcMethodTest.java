@@ -0,0 +1,133 @@
+/*
+ * Copyright 2000-2016 Vaadin Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.vaadin.server;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.vaadin.server.ServerRpcManager.RpcInvocationException;
+import com.vaadin.shared.communication.ServerRpc;
+import com.vaadin.shared.ui.ContentMode;
+
+import elemental.json.Json;
+import elemental.json.JsonArray;
+
+public class ServerRpcMethodTest {
+
+    public interface TestRpc extends ServerRpc {
+        public void call(String text, int number, Integer boxed,
+                ContentMode mode, List<String> list);
+
+        public void call(boolean value);
+
+        public void fail();
+    }
+
+    interface NonPublicRpc extends ServerRpc {
+        public void call(String text);
+    }
+
+    private final List<Object> calls = new ArrayList<>();
+
+    private final TestRpc rpc = new TestRpc() {
+        @Override
+        public void call(String text, int number, Integer boxed,
+                ContentMode mode, List<String> list) {
+            calls.addAll(Arrays.asList(text, number, boxed, mode, list));
+        }
+
+        @Override
+        public void call(boolean value) {
+            calls.add(value);
+        }
+
+        @Override
+        public void fail() {
+            throw new IllegalStateException("failed");
+        }
+    };
+
+    @Test
+    public void invocation_parametersDecodedAndInvoked() throws Exception {
+        JsonArray list = Json.createArray();
+        list.set(0, "a");
+        list.set(1, "b");
+        JsonArray parameters = Json.createArray();
+        parameters.set(0, "text");
+        parameters.set(1, 42);
+        parameters.set(2, Json.createNull());
+        parameters.set(3, "HTML");
+        parameters.set(4, list);
+
+        apply(TestRpc.class, rpc, "call", parameters);
+
+        Assert.assertEquals(Arrays.asList("text", 42, null, ContentMode.HTML,
+                Arrays.asList("a", "b")), calls);
+    }
+
+    @Test
+    public void overloadedMethod_foundByParameterCount() throws Exception {
+        JsonArray parameters = Json.createArray();
+        parameters.set(0, true);
+
+        apply(TestRpc.class, rpc, "call", parameters);
+
+        Assert.assertEquals(Arrays.asList(true), calls);
+    }
+
+    @Test
+    public void exceptionFromMethod_relevantThrowableFound() {
+        try {
+            apply(TestRpc.class, rpc, "fail", Json.createArray());
+            Assert.fail();
+        } catch (RpcInvocationException e) {
+            Throwable relevant = DefaultErrorHandler.findRelevantThrowable(e);
+            Assert.assertEquals(IllegalStateException.class,
+                    relevant.getClass());
+            Assert.assertEquals("failed", relevant.getMessage());
+        }
+    }
+
+    @Test
+    public void nonPublicInterface_invoked() throws Exception {
+        JsonArray parameters = Json.createArray();
+        parameters.set(0, "text");
+
+        apply(NonPublicRpc.class, text -> calls.add(text), "call",
+                parameters);
+
+        Assert.assertEquals(Arrays.asList("text"), calls);
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void unknownMethod_throws() {
+        new ServerRpcMethodInvocation("1", TestRpc.class, "call", 3);
+    }
+
+    private static <T extends ServerRpc> void apply(Class<T> rpcInterface,
+            T implementation, String methodName, JsonArray parameters)
+            throws RpcInvocationException {
+        ServerRpcMethodInvocation invocation = new ServerRpcMethodInvocation(
+                "1", rpcInterface, methodName, parameters.length());
+        invocation.decodeParameters(parameters, null);
+        new ServerRpcManager<>(implementation, rpcInterface)
+                .applyInvocation(invocation);
+    }
+}
@@ -0,0 +1,165 @@
+/*
+ * Copyright 2000-2016 Vaadin Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.vaadin.server;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Properties;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+import com.vaadin.server.communication.UidlWriter;
+import com.vaadin.tests.util.MockUI;
+import com.vaadin.ui.AbstractComponent;
+import com.vaadin.ui.ComponentTest;
+import com.vaadin.ui.ConnectorTracker;
+import com.vaadin.ui.UI;
+
+import elemental.json.Json;
+import elemental.json.JsonObject;
+
+public class StateFieldDirtyTest {
+
+    public static class FieldTrackingComponent extends AbstractComponent {
+        public void setCaptionField(String caption) {
+            getState(false).caption = caption;
+            markStateFieldDirty("caption");
+        }
+
+        public void setDescriptionWithoutMarking(String description) {
+            getState(false).description = description;
+        }
+
+        public void markUnknownField() {
+            markStateFieldDirty("unknown");
+        }
+    }
+
+    private FieldTrackingComponent component;
+    private ConnectorTracker tracker;
+
+    @Before
+    public void setup() {
+        UI ui = new MockUI();
+        component = new FieldTrackingComponent();
+        ui.setContent(component);
+        tracker = ui.getConnectorTracker();
+        ComponentTest.syncToClient(component);
+    }
+
+    @Test
+    public void markStateFieldDirty_onlyMarkedFieldEncoded() {
+        component.setDescriptionWithoutMarking("description");
+        component.setCaptionField("caption");
+
+        Assert.assertTrue(tracker.isDirty(component));
+        Assert.assertEquals(Collections.singleton("caption"),
+                tracker.getDirtyStateFields(component));
+        ComponentTest.assertEncodedStateProperties(component,
+                "Only the marked field should be encoded", "caption");
+    }
+
+    @Test
+    public void markStateFieldDirty_unchangedValue_emptyState() {
+        component.setCaptionField("caption");
+        component.encodeState();
+        tracker.markClean(component);
+
+        component.setCaptionField("caption");
+
+        ComponentTest.assertEncodedStateProperties(component,
+                "Unchanged field should not be sent");
+    }
+
+    @Test
+    public void getState_afterMarkStateFieldDirty_wholeStateEncoded() {
+        component.setCaptionField("caption");
+        component.setDescriptionWithoutMarking("description");
+        component.setId("id");
+
+        Assert.assertNull(tracker.getDirtyStateFields(component));
+        ComponentTest.assertEncodedStateProperties(component,
+                "All changed fields should be encoded", "caption",
+                "description", "id");
+    }
+
+    @Test
+    public void markDirty_thenMarkStateFieldDirty_wholeStateEncoded() {
+        component.markAsDirty();
+        component.setCaptionField("caption");
+
+        Assert.assertNull(tracker.getDirtyStateFields(component));
+    }
+
+    @Test
+    public void markClean_dirtyStateFieldsCleared() {
+        component.setCaptionField("caption");
+        tracker.markClean(component);
+
+        Assert.assertFalse(tracker.isDirty(component));
+        Assert.assertNull(tracker.getDirtyStateFields(component));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void markUnknownField_encodeThrows() {
+        component.markUnknownField();
+        component.encodeState();
+    }
+
+    @Test
+    public void uidlWriter_onlyMarkedFieldWritten() throws Exception {
+        VaadinServlet servlet = new VaadinServlet();
+        servlet.init(new MockServletConfig());
+        VaadinService service = new VaadinServletService(servlet,
+                new DefaultDeploymentConfiguration(getClass(),
+                        new Properties()));
+        VaadinSession session = new MockVaadinSession(service);
+        session.lock();
+        try {
+            session.setCommunicationManager(
+                    new LegacyCommunicationManager(session));
+            UI ui = new MockUI(session);
+            ui.doInit(Mockito.mock(VaadinRequest.class),
+                    session.getNextUIid(), null);
+            session.addUI(ui);
+            FieldTrackingComponent component = new FieldTrackingComponent();
+            component.setWidth("100px");
+            ui.setContent(component);
+            writeResponse(ui);
+
+            component.setDescriptionWithoutMarking("description");
+            component.setCaptionField("caption");
+            JsonObject state = writeResponse(ui).getObject("state")
+                    .getObject(component.getConnectorId());
+
+            Assert.assertEquals(Arrays.asList("caption"),
+                    Arrays.asList(state.keys()));
+        } finally {
+            session.unlock();
+        }
+    }
+
+    private static JsonObject writeResponse(UI ui) throws IOException {
+        StringWriter writer = new StringWriter();
+        new UidlWriter().write(ui, writer, false);
+        return Json.parse("{" + writer + "}");
+    }
+}
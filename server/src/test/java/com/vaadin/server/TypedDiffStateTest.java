@@ -0,0 +1,135 @@
+/*
+ * Copyright 2000-2016 Vaadin Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.vaadin.server;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.Arrays;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.vaadin.server.JsonCodecEncodeObjectTest.TestBean;
+
+import elemental.json.JsonObject;
+import elemental.json.JsonType;
+
+public class TypedDiffStateTest {
+
+    @Test
+    public void encodeDiff_newState_sameAsJsonEncoding() {
+        TestBean bean = new TestBean();
+        TypedDiffState diffState = JsonCodec
+                .createTypedDiffState(TestBean.class);
+
+        JsonObject diff = JsonCodec.encodeDiff(bean, diffState, null);
+        JsonObject expected = (JsonObject) JsonCodec
+                .encode(bean, null, TestBean.class, null).getDiff();
+
+        Assert.assertEquals(expected.toJson(), diff.toJson());
+    }
+
+    @Test
+    public void encodeDiff_changedFields_onlyChangesInDiff() {
+        TestBean bean = new TestBean();
+        TypedDiffState diffState = JsonCodec
+                .createTypedDiffState(TestBean.class);
+        JsonCodec.encodeDiff(bean, diffState, null);
+
+        Assert.assertEquals(0,
+                JsonCodec.encodeDiff(bean, diffState, null).keys().length);
+
+        bean.enabled = false;
+        bean.caption = "caption";
+        bean.styles = Arrays.asList("c");
+        JsonObject diff = JsonCodec.encodeDiff(bean, diffState, null);
+
+        Assert.assertEquals(3, diff.keys().length);
+        Assert.assertFalse(diff.getBoolean("enabled"));
+        Assert.assertEquals("caption", diff.getString("caption"));
+        Assert.assertEquals(1, diff.getArray("styles").length());
+
+        bean.caption = null;
+        diff = JsonCodec.encodeDiff(bean, diffState, null);
+        Assert.assertEquals(1, diff.keys().length);
+        Assert.assertEquals(JsonType.NULL, diff.get("caption").getType());
+    }
+
+    @Test
+    public void toJson_update_roundTrip() {
+        TestBean bean = new TestBean();
+        bean.caption = "caption";
+        TypedDiffState diffState = JsonCodec
+                .createTypedDiffState(TestBean.class);
+        JsonCodec.encodeDiff(bean, diffState, null);
+
+        JsonObject json = diffState.toJson();
+        Assert.assertEquals("caption", json.getString("caption"));
+        Assert.assertEquals(1, json.getNumber("count"), 0);
+
+        // Simulate a component updating its diff state directly
+        json.put("count", 7);
+        TypedDiffState updated = JsonCodec
+                .createTypedDiffState(TestBean.class);
+        updated.update(json);
+
+        JsonObject diff = JsonCodec.encodeDiff(bean, updated, null);
+        Assert.assertEquals(1, diff.keys().length);
+        Assert.assertEquals(1, diff.getNumber("count"), 0);
+    }
+
+    @Test
+    public void copy_independentOfOriginal() {
+        TestBean bean = new TestBean();
+        TypedDiffState diffState = JsonCodec
+                .createTypedDiffState(TestBean.class);
+        TypedDiffState copy = diffState.copy();
+        JsonCodec.encodeDiff(bean, diffState, null);
+
+        // All properties except the null caption are sent for the copy
+        Assert.assertEquals(5,
+                JsonCodec.encodeDiff(bean, copy, null).keys().length);
+    }
+
+    @Test
+    public void serialize_valuesPreserved()
+            throws IOException, ClassNotFoundException {
+        TestBean bean = new TestBean();
+        bean.caption = "caption";
+        TypedDiffState diffState = JsonCodec
+                .createTypedDiffState(TestBean.class);
+        JsonCodec.encodeDiff(bean, diffState, null);
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeObject(diffState);
+        }
+        TypedDiffState deserialized;
+        try (ObjectInputStream in = new ObjectInputStream(
+                new ByteArrayInputStream(bytes.toByteArray()))) {
+            deserialized = (TypedDiffState) in.readObject();
+        }
+
+        Assert.assertEquals(TestBean.class, deserialized.getType());
+        Assert.assertEquals(diffState.toJson().toJson(),
+                deserialized.toJson().toJson());
+        Assert.assertEquals(0,
+                JsonCodec.encodeDiff(bean, deserialized, null).keys().length);
+    }
+}
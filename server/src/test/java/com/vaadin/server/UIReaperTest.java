@@ -0,0 +1,185 @@
+/*
+ * Copyright 2000-2016 Vaadin Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.vaadin.server;
+
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+import com.vaadin.tests.util.AlwaysLockedVaadinSession;
+import com.vaadin.tests.util.MockUI;
+import com.vaadin.ui.Label;
+import com.vaadin.ui.UI;
+import com.vaadin.ui.VerticalLayout;
+import com.vaadin.util.CurrentInstance;
+
+public class UIReaperTest {
+
+    private static final long TIMEOUT = 1000;
+
+    private final BlockingQueue<Runnable> accessTasks = new LinkedBlockingQueue<>();
+
+    private UIReaper reaper;
+    private VaadinSession session;
+    private UI ui;
+
+    @Before
+    public void setup() {
+        session = new AlwaysLockedVaadinSession(null) {
+            @Override
+            public Future<Void> access(Runnable runnable) {
+                // The session is always locked by the test thread
+                accessTasks.add(runnable);
+                return null;
+            }
+        };
+        ui = new MockUI(session);
+        ui.doInit(Mockito.mock(VaadinRequest.class), session.getNextUIid(),
+                null);
+        ui.setContent(new VerticalLayout(new Label(), new Label()));
+        session.addUI(ui);
+    }
+
+    @After
+    public void tearDown() {
+        if (reaper != null) {
+            reaper.shutdown();
+        }
+        CurrentInstance.clearAll();
+    }
+
+    @Test
+    public void expiredUI_closedAndRemoved() {
+        reaper = new UIReaper(TIMEOUT, 3600000);
+        ui.setLastHeartbeatTimestamp(System.currentTimeMillis() - TIMEOUT);
+        reaper.track(ui);
+
+        reaper.reapExpiredUIs();
+        runAccessTasks();
+
+        Assert.assertTrue(ui.isClosing());
+        Assert.assertNull(ui.getSession());
+        Assert.assertTrue(session.getUIs().isEmpty());
+        Assert.assertEquals(1, reaper.getReapedUIs());
+        // UI, layout and two labels
+        Assert.assertEquals(4, reaper.getReapedConnectors());
+        Assert.assertEquals(0, reaper.getTrackedUIs());
+    }
+
+    @Test
+    public void activeUI_notReaped() {
+        reaper = new UIReaper(TIMEOUT, 3600000);
+        reaper.track(ui);
+
+        reaper.reapExpiredUIs();
+        runAccessTasks();
+
+        Assert.assertFalse(ui.isClosing());
+        Assert.assertSame(session, ui.getSession());
+        Assert.assertEquals(0, reaper.getReapedUIs());
+        Assert.assertEquals(1, reaper.getTrackedUIs());
+    }
+
+    @Test
+    public void heartbeatAfterTracking_uiTrackedAgain() {
+        reaper = new UIReaper(TIMEOUT, 3600000);
+        ui.setLastHeartbeatTimestamp(System.currentTimeMillis() - TIMEOUT);
+        reaper.track(ui);
+        ui.setLastHeartbeatTimestamp(System.currentTimeMillis());
+
+        reaper.reapExpiredUIs();
+        runAccessTasks();
+
+        Assert.assertFalse(ui.isClosing());
+        Assert.assertEquals(0, reaper.getReapedUIs());
+        Assert.assertEquals(1, reaper.getTrackedUIs());
+    }
+
+    @Test
+    public void removedUI_discarded() {
+        reaper = new UIReaper(TIMEOUT, 3600000);
+        ui.setLastHeartbeatTimestamp(System.currentTimeMillis() - TIMEOUT);
+        reaper.track(ui);
+        session.removeUI(ui);
+
+        reaper.reapExpiredUIs();
+        runAccessTasks();
+
+        Assert.assertEquals(0, reaper.getReapedUIs());
+        Assert.assertEquals(0, reaper.getTrackedUIs());
+    }
+
+    @Test
+    public void expiredUI_reapedInBackground() throws InterruptedException {
+        reaper = new UIReaper(50, 10);
+        reaper.track(ui);
+
+        // Run in the test thread since it holds the session lock
+        Runnable task = accessTasks.poll(5, TimeUnit.SECONDS);
+        Assert.assertNotNull("UI was not reaped", task);
+        task.run();
+        Assert.assertTrue(ui.isClosing());
+        Assert.assertEquals(1, reaper.getReapedUIs());
+    }
+
+    @Test
+    public void addUI_trackedByReaperOfService() {
+        reaper = new UIReaper(TIMEOUT, 3600000);
+        VaadinService service = Mockito.mock(VaadinService.class);
+        Mockito.when(service.getUIReaper()).thenReturn(reaper);
+        VaadinSession sessionWithService = new AlwaysLockedVaadinSession(
+                service);
+        UI otherUI = new MockUI(sessionWithService);
+        otherUI.doInit(Mockito.mock(VaadinRequest.class),
+                sessionWithService.getNextUIid(), null);
+
+        sessionWithService.addUI(otherUI);
+
+        Assert.assertEquals(1, reaper.getTrackedUIs());
+    }
+
+    @Test
+    public void deserializedSession_uisTrackedWhenLoaded() {
+        reaper = new UIReaper(TIMEOUT, 3600000);
+        WrappedSession wrappedSession = Mockito.mock(WrappedSession.class);
+        VaadinService service = Mockito.mock(VaadinService.class);
+        Mockito.when(service.getUIReaper()).thenReturn(reaper);
+        Mockito.when(service.getSessionLock(wrappedSession))
+                .thenReturn(session.getLockInstance());
+
+        // The session has no service, like a deserialized session
+        session.refreshTransients(wrappedSession, service);
+        Assert.assertEquals(1, reaper.getTrackedUIs());
+
+        // Later requests do not track the UIs again
+        session.refreshTransients(wrappedSession, service);
+        Assert.assertEquals(1, reaper.getTrackedUIs());
+    }
+
+    private void runAccessTasks() {
+        Runnable task;
+        while ((task = accessTasks.poll()) != null) {
+            task.run();
+        }
+    }
+}
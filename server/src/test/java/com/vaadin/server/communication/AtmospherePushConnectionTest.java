@@ -19,13 +19,29 @@ import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.ObjectInputStream;
 import java.io.ObjectOutputStream;
+import java.util.Arrays;
+import java.util.Properties;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Future;
 
 import org.atmosphere.cpr.AtmosphereResource;
+import org.atmosphere.cpr.Broadcaster;
 import org.easymock.EasyMock;
 import org.junit.Assert;
 import org.junit.Test;
+import org.mockito.Mockito;
 
+import com.vaadin.server.Constants;
+import com.vaadin.server.DefaultDeploymentConfiguration;
+import com.vaadin.server.LegacyCommunicationManager;
+import com.vaadin.server.MockServletConfig;
+import com.vaadin.server.MockVaadinSession;
+import com.vaadin.server.VaadinServlet;
+import com.vaadin.server.VaadinServletService;
+import com.vaadin.server.VaadinSession;
 import com.vaadin.server.communication.AtmospherePushConnection.State;
+import com.vaadin.tests.util.MockUI;
+import com.vaadin.ui.Label;
 import com.vaadin.ui.UI;
 
 public class AtmospherePushConnectionTest {
@@ -50,4 +66,82 @@ public class AtmospherePushConnectionTest {
 
         Assert.assertEquals(State.DISCONNECTED, connection.getState());
     }
+
+    @Test
+    public void clientNotReceiving_resync_unsentMessagesCancelledAndConnectionClosed()
+            throws Exception {
+        UI ui = createUI("resync");
+        AtmospherePushConnection connection = new AtmospherePushConnection(ui);
+        CompletableFuture<Object> first = new CompletableFuture<>();
+        AtmosphereResource resource = createResource(first,
+                new CompletableFuture<>(), new CompletableFuture<>());
+        connection.connect(resource);
+
+        pushChange(ui, connection);
+        pushChange(ui, connection);
+        Assert.assertEquals(2, connection.getUnsentMessageCount());
+
+        pushChange(ui, connection);
+
+        // The full state is pushed when the client reconnects instead of
+        // after the messages queued in the broadcaster
+        Assert.assertTrue(first.isCancelled());
+        Mockito.verify(resource).close();
+        Mockito.verify(resource.getBroadcaster(), Mockito.times(2))
+                .broadcast(Mockito.any(),
+                        Mockito.any(AtmosphereResource.class));
+        Assert.assertEquals(State.PUSH_PENDING, connection.getState());
+    }
+
+    @Test
+    public void messagesSent_noBackpressure() throws Exception {
+        UI ui = createUI("resync");
+        AtmospherePushConnection connection = new AtmospherePushConnection(ui);
+        CompletableFuture<Object> first = new CompletableFuture<>();
+        connection.connect(createResource(first, new CompletableFuture<>(),
+                new CompletableFuture<>()));
+
+        pushChange(ui, connection);
+        pushChange(ui, connection);
+        first.complete(null);
+        pushChange(ui, connection);
+
+        Assert.assertEquals(2, connection.getUnsentMessageCount());
+    }
+
+    private static void pushChange(UI ui, AtmospherePushConnection connection) {
+        ui.setContent(new Label());
+        connection.push();
+    }
+
+    private static UI createUI(String policy) throws Exception {
+        VaadinServlet servlet = new VaadinServlet();
+        servlet.init(new MockServletConfig());
+        Properties properties = new Properties();
+        properties.setProperty(
+                Constants.SERVLET_PARAMETER_PUSH_OUTGOING_QUEUE_SIZE, "2");
+        properties.setProperty(
+                Constants.SERVLET_PARAMETER_PUSH_BACKPRESSURE_POLICY, policy);
+        VaadinSession session = new MockVaadinSession(new VaadinServletService(
+                servlet, new DefaultDeploymentConfiguration(
+                        AtmospherePushConnectionTest.class, properties)));
+        session.lock();
+        session.setCommunicationManager(
+                new LegacyCommunicationManager(session));
+        return new MockUI(session);
+    }
+
+    @SafeVarargs
+    private static AtmosphereResource createResource(
+            Future<Object>... messages) {
+        AtmosphereResource resource = Mockito.mock(AtmosphereResource.class);
+        Broadcaster broadcaster = Mockito.mock(Broadcaster.class);
+        Mockito.when(resource.getBroadcaster()).thenReturn(broadcaster);
+        Mockito.when(broadcaster.broadcast(Mockito.any(),
+                Mockito.any(AtmosphereResource.class)))
+                .thenReturn(messages[0],
+                        Arrays.copyOfRange(messages, 1,
+                                messages.length));
+        return resource;
+    }
 }
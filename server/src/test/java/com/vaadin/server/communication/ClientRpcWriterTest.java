@@ -0,0 +1,101 @@
+/*
+ * Copyright 2000-2016 Vaadin Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.vaadin.server.communication;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.vaadin.shared.communication.ClientRpc;
+import com.vaadin.tests.util.MockUI;
+import com.vaadin.ui.AbstractComponent;
+import com.vaadin.ui.UI;
+
+import elemental.json.Json;
+import elemental.json.JsonArray;
+
+public class ClientRpcWriterTest {
+
+    public interface TestRpc extends ClientRpc {
+        public void call(String string, int integer, long number,
+                boolean bool, double decimal, List<String> list);
+
+        public void callWithNull(String string);
+    }
+
+    public static class RpcComponent extends AbstractComponent {
+        public TestRpc getRpc() {
+            return getRpcProxy(TestRpc.class);
+        }
+    }
+
+    private UI ui;
+    private RpcComponent component;
+
+    @Before
+    public void setup() {
+        ui = new MockUI();
+        component = new RpcComponent();
+        ui.setContent(component);
+    }
+
+    @Test
+    public void noPendingCalls_emptyArray() throws IOException {
+        ui.getConnectorTracker().markAllConnectorsClean();
+
+        Assert.assertEquals("[]", write());
+    }
+
+    @Test
+    public void pendingCalls_writtenAsJson() throws IOException {
+        component.getRpc().call("a\"bä", 42, 1L << 40, true, 0.5,
+                Arrays.asList("x", "y"));
+        component.getRpc().callWithNull(null);
+
+        String json = write();
+        JsonArray calls = Json.instance().parse(json);
+
+        Assert.assertEquals(2, calls.length());
+
+        JsonArray call = calls.getArray(0);
+        Assert.assertEquals(component.getConnectorId(), call.getString(0));
+        Assert.assertEquals(TestRpc.class.getName().replace('$', '.'),
+                call.getString(1));
+        Assert.assertEquals("call", call.getString(2));
+        JsonArray parameters = call.getArray(3);
+        Assert.assertEquals(6, parameters.length());
+        Assert.assertEquals("a\"bä", parameters.getString(0));
+        Assert.assertEquals(42, parameters.getNumber(1), 0);
+        Assert.assertEquals(1L << 40, parameters.getNumber(2), 0);
+        Assert.assertTrue(parameters.getBoolean(3));
+        Assert.assertEquals(0.5, parameters.getNumber(4), 0);
+        Assert.assertEquals(2, parameters.getArray(5).length());
+        Assert.assertEquals("y", parameters.getArray(5).getString(1));
+
+        Assert.assertTrue(json.endsWith(",\"callWithNull\",[null]]]"));
+    }
+
+    private String write() throws IOException {
+        StringWriter writer = new StringWriter();
+        new ClientRpcWriter().write(ui, writer);
+        return writer.toString();
+    }
+}
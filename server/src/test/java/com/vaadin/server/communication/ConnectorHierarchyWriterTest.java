@@ -0,0 +1,131 @@
+/*
+ * Copyright 2000-2016 Vaadin Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.vaadin.server.communication;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.Collections;
+import java.util.Set;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.vaadin.tests.util.MockUI;
+import com.vaadin.ui.ConnectorTracker;
+import com.vaadin.ui.CssLayout;
+import com.vaadin.ui.Label;
+import com.vaadin.ui.UI;
+
+import elemental.json.Json;
+import elemental.json.JsonObject;
+
+public class ConnectorHierarchyWriterTest {
+
+    private UI ui;
+    private ConnectorTracker tracker;
+    private CssLayout layout;
+    private Label label1;
+    private Label label2;
+
+    @Before
+    public void setup() throws IOException {
+        ui = new MockUI();
+        tracker = ui.getConnectorTracker();
+        label1 = new Label();
+        label2 = new Label();
+        layout = new CssLayout(label1, label2);
+        ui.setContent(layout);
+    }
+
+    @Test
+    public void initialWrite_fullHierarchy() throws IOException {
+        JsonObject hierarchy = write(Collections.emptySet());
+
+        Assert.assertEquals("[\"" + layout.getConnectorId() + "\"]",
+                hierarchy.getArray(ui.getConnectorId()).toJson());
+        Assert.assertEquals(
+                "[\"" + label1.getConnectorId() + "\",\""
+                        + label2.getConnectorId() + "\"]",
+                hierarchy.getArray(layout.getConnectorId()).toJson());
+    }
+
+    @Test
+    public void unchangedHierarchy_notWritten() throws IOException {
+        write(Collections.emptySet());
+
+        layout.markAsDirty();
+        label1.markAsDirty();
+        StringWriter writer = new StringWriter();
+        Set<String> unchanged = new ConnectorHierarchyWriter().write(ui,
+                writer, Collections.emptySet());
+        tracker.markAllConnectorsClean();
+
+        Assert.assertEquals("{}", writer.toString());
+        Assert.assertTrue(unchanged.isEmpty());
+    }
+
+    @Test
+    public void unchangedHierarchyWithStateChange_returned()
+            throws IOException {
+        write(Collections.emptySet());
+
+        layout.markAsDirty();
+        label1.markAsDirty();
+        StringWriter writer = new StringWriter();
+        Set<String> unchanged = new ConnectorHierarchyWriter().write(ui,
+                writer, Collections.singleton(layout.getConnectorId()));
+        tracker.markAllConnectorsClean();
+
+        Assert.assertEquals("{}", writer.toString());
+        Assert.assertEquals(Collections.singleton(layout.getConnectorId()),
+                unchanged);
+    }
+
+    @Test
+    public void changedHierarchy_written() throws IOException {
+        write(Collections.emptySet());
+
+        label2.setVisible(false);
+        JsonObject hierarchy = write(Collections.emptySet());
+
+        Assert.assertEquals("[\"" + label1.getConnectorId() + "\"]",
+                hierarchy.getArray(layout.getConnectorId()).toJson());
+        Assert.assertFalse(hierarchy.hasKey(ui.getConnectorId()));
+    }
+
+    @Test
+    public void clientSidesUninitialized_hierarchyWrittenAgain()
+            throws IOException {
+        write(Collections.emptySet());
+
+        tracker.markAllClientSidesUninitialized();
+        tracker.markAllConnectorsDirty();
+        JsonObject hierarchy = write(Collections.emptySet());
+
+        Assert.assertTrue(hierarchy.hasKey(ui.getConnectorId()));
+        Assert.assertTrue(hierarchy.hasKey(layout.getConnectorId()));
+    }
+
+    private JsonObject write(Set<String> stateUpdateConnectors)
+            throws IOException {
+        StringWriter writer = new StringWriter();
+        new ConnectorHierarchyWriter().write(ui, writer,
+                stateUpdateConnectors);
+        tracker.markAllConnectorsClean();
+        return Json.parse(writer.toString());
+    }
+}
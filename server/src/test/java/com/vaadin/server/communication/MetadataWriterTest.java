@@ -106,4 +106,20 @@ public class MetadataWriterTest {
                 "{\"async\":true,\"timedRedirect\":{\"interval\":15,\"url\":\"\"}}",
                 writer.getBuffer().toString());
     }
+
+    @Test
+    public void writeRedirectWithUrl_slashesEscaped() throws IOException {
+        WrappedSession wrappedSession = mock(WrappedSession.class);
+        when(session.getSession()).thenReturn(wrappedSession);
+        when(wrappedSession.getMaxInactiveInterval()).thenReturn(1800);
+
+        disableSessionExpirationMessages(messages);
+        when(messages.getSessionExpiredURL())
+                .thenReturn("http://example.com/app/expired");
+
+        new MetadataWriter().write(ui, writer, false, false, messages);
+        Assert.assertEquals(
+                "{\"timedRedirect\":{\"interval\":1815,\"url\":\"http:\\/\\/example.com\\/app\\/expired\"}}",
+                writer.getBuffer().toString());
+    }
 }
@@ -1,12 +1,25 @@
 package com.vaadin.server.communication;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Assert;
 import org.junit.Test;
 import org.mockito.Mockito;
 
+import com.vaadin.server.ClientConnector;
+import com.vaadin.server.JsonCodec;
 import com.vaadin.server.VaadinRequest;
 import com.vaadin.server.VaadinService;
+import com.vaadin.shared.MouseEventDetails;
+import com.vaadin.shared.ui.button.ButtonServerRpc;
+import com.vaadin.shared.ui.textfield.AbstractTextFieldServerRpc;
 import com.vaadin.tests.util.AlwaysLockedVaadinSession;
+import com.vaadin.ui.Button;
+import com.vaadin.ui.TextField;
 import com.vaadin.ui.UI;
+import com.vaadin.ui.VerticalLayout;
 
 import elemental.json.Json;
 import elemental.json.JsonArray;
@@ -46,4 +59,104 @@ public class ServerRpcHandlerTest {
         // This only tests that an invocation for a non-existant connector does
         // not cause any exceptions
     }
+
+    @Test
+    public void lastOnlyInvocations_onlyLastInvoked() {
+        ServerRpcHandler rpcHandler = new ServerRpcHandler();
+        TestUI ui = createUI();
+        TextField first = new TextField();
+        TextField second = new TextField();
+        ui.setContent(new VerticalLayout(first, second));
+        List<String> values = new ArrayList<>();
+        first.addValueChangeListener(event -> values.add(event.getValue()));
+        second.addValueChangeListener(event -> values.add(event.getValue()));
+
+        JsonArray invocationData = Json.createArray();
+        addSetText(invocationData, first, "a");
+        addSetText(invocationData, second, "x");
+        addSetText(invocationData, first, "ab");
+        addSetText(invocationData, first, "abc");
+        rpcHandler.handleInvocations(ui, 1, invocationData);
+
+        Assert.assertEquals(Arrays.asList("x", "abc"), values);
+        Assert.assertEquals(2, rpcHandler.getCoalescedInvocationCount());
+    }
+
+    @Test
+    public void otherInvocations_allInvoked() {
+        ServerRpcHandler rpcHandler = new ServerRpcHandler();
+        TestUI ui = createUI();
+        Button button = new Button();
+        ui.setContent(button);
+        int[] clicks = new int[1];
+        button.addClickListener(event -> clicks[0]++);
+
+        JsonArray invocationData = Json.createArray();
+        for (int i = 0; i < 3; i++) {
+            addClick(invocationData, button);
+        }
+        rpcHandler.handleInvocations(ui, 1, invocationData);
+
+        Assert.assertEquals(3, clicks[0]);
+        Assert.assertEquals(0, rpcHandler.getCoalescedInvocationCount());
+    }
+
+    @Test
+    public void lastOnlyInvocationsWithOtherInvocationBetween_allInvoked() {
+        ServerRpcHandler rpcHandler = new ServerRpcHandler();
+        TestUI ui = createUI();
+        TextField textField = new TextField();
+        Button button = new Button();
+        ui.setContent(new VerticalLayout(textField, button));
+        List<String> events = new ArrayList<>();
+        textField.addValueChangeListener(event -> events.add(event.getValue()));
+        button.addClickListener(
+                event -> events.add("click " + textField.getValue()));
+
+        JsonArray invocationData = Json.createArray();
+        addSetText(invocationData, textField, "a");
+        addClick(invocationData, button);
+        addSetText(invocationData, textField, "ab");
+        addSetText(invocationData, textField, "abc");
+        rpcHandler.handleInvocations(ui, 1, invocationData);
+
+        Assert.assertEquals(Arrays.asList("a", "click a", "abc"), events);
+        Assert.assertEquals(1, rpcHandler.getCoalescedInvocationCount());
+    }
+
+    private static TestUI createUI() {
+        AlwaysLockedVaadinSession s = new AlwaysLockedVaadinSession(
+                Mockito.mock(VaadinService.class));
+        TestUI ui = new TestUI();
+        ui.doInit(Mockito.mock(VaadinRequest.class), 1, null);
+        ui.setSession(s);
+        s.addUI(ui);
+        return ui;
+    }
+
+    private static void addSetText(JsonArray invocationData,
+            TextField textField, String text) {
+        JsonArray params = Json.createArray();
+        params.set(0, text);
+        params.set(1, text.length());
+        add(invocationData, textField, AbstractTextFieldServerRpc.class,
+                "setText", params);
+    }
+
+    private static void addClick(JsonArray invocationData, Button button) {
+        JsonArray params = Json.createArray();
+        params.set(0, JsonCodec.encode(new MouseEventDetails(), null,
+                MouseEventDetails.class, null).getEncodedValue());
+        add(invocationData, button, ButtonServerRpc.class, "click", params);
+    }
+
+    private static void add(JsonArray invocationData, ClientConnector target,
+            Class<?> rpcInterface, String methodName, JsonArray params) {
+        JsonArray invocation = Json.createArray();
+        invocation.set(0, target.getConnectorId());
+        invocation.set(1, rpcInterface.getName());
+        invocation.set(2, methodName);
+        invocation.set(3, params);
+        invocationData.set(invocationData.length(), invocation);
+    }
 }
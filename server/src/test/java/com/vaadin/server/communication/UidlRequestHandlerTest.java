@@ -0,0 +1,111 @@
+/*
+ * Copyright 2000-2016 Vaadin Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.vaadin.server.communication;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.Writer;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+import com.vaadin.server.AbortedResponseException;
+import com.vaadin.server.VaadinRequest;
+import com.vaadin.server.VaadinResponse;
+import com.vaadin.server.VaadinService;
+import com.vaadin.server.VaadinSession;
+import com.vaadin.ui.UI;
+
+public class UidlRequestHandlerTest {
+
+    private VaadinSession session;
+    private VaadinRequest request;
+    private VaadinResponse response;
+    private ByteArrayOutputStream out;
+
+    @Before
+    public void setup() throws IOException {
+        VaadinService service = Mockito.mock(VaadinService.class);
+        session = Mockito.mock(VaadinSession.class);
+        request = Mockito.mock(VaadinRequest.class);
+        response = Mockito.mock(VaadinResponse.class);
+        out = new ByteArrayOutputStream();
+
+        Mockito.when(session.getService()).thenReturn(service);
+        Mockito.when(service.findUI(request))
+                .thenReturn(Mockito.mock(UI.class));
+        Mockito.when(response.getOutputStream()).thenReturn(out);
+    }
+
+    @Test
+    public void errorAfterCommit_responseAborted() throws IOException {
+        IllegalStateException error = new IllegalStateException();
+        UidlRequestHandler handler = new FailingUidlRequestHandler(
+                UidlResponseWriter.DEFAULT_BUFFER_SIZE + 1, error);
+
+        try {
+            handler.synchronizedHandleRequest(session, request, response);
+            Assert.fail("The response should have been aborted");
+        } catch (AbortedResponseException e) {
+            Assert.assertSame(error, e.getCause());
+        }
+
+        // The rest of the message is not sent
+        Assert.assertTrue(
+                out.size() <= UidlResponseWriter.DEFAULT_BUFFER_SIZE);
+        Mockito.verify(response, Mockito.never())
+                .setContentLength(Mockito.anyInt());
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void errorBeforeCommit_exceptionPropagated() throws IOException {
+        UidlRequestHandler handler = new FailingUidlRequestHandler(10,
+                new IllegalStateException());
+
+        try {
+            handler.synchronizedHandleRequest(session, request, response);
+        } finally {
+            Assert.assertEquals(0, out.size());
+        }
+    }
+
+    private static class FailingUidlRequestHandler extends UidlRequestHandler {
+        private final int length;
+        private final RuntimeException error;
+
+        private FailingUidlRequestHandler(int length, RuntimeException error) {
+            this.length = length;
+            this.error = error;
+        }
+
+        @Override
+        protected ServerRpcHandler createRpcHandler() {
+            return Mockito.mock(ServerRpcHandler.class);
+        }
+
+        @Override
+        protected void openJsonMessage(Writer outWriter,
+                VaadinResponse response) throws IOException {
+            super.openJsonMessage(outWriter, response);
+            for (int i = 0; i < length; i++) {
+                outWriter.write(' ');
+            }
+            throw error;
+        }
+    }
+}
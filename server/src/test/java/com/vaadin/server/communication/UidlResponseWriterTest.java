@@ -0,0 +1,276 @@
+/*
+ * Copyright 2000-2016 Vaadin Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.vaadin.server.communication;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.reflect.Field;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPInputStream;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+import com.vaadin.server.VaadinRequest;
+import com.vaadin.server.VaadinResponse;
+import com.vaadin.shared.JsonConstants;
+
+public class UidlResponseWriterTest {
+
+    private VaadinResponse response;
+    private ByteArrayOutputStream out;
+
+    @Before
+    public void setup() throws IOException {
+        response = Mockito.mock(VaadinResponse.class);
+        out = new ByteArrayOutputStream();
+        Mockito.when(response.getOutputStream()).thenReturn(out);
+    }
+
+    @Test
+    public void smallResponse_writtenOnClose_withContentLength()
+            throws IOException {
+        UidlResponseWriter writer = new UidlResponseWriter(response, 16);
+        writer.write("{\"a\":\"ä\"}");
+        writer.flush();
+
+        Assert.assertFalse(writer.isCommitted());
+        Assert.assertEquals(0, out.size());
+
+        writer.close();
+
+        byte[] expected = "{\"a\":\"ä\"}"
+                .getBytes(StandardCharsets.UTF_8);
+        Assert.assertArrayEquals(expected, out.toByteArray());
+        Mockito.verify(response)
+                .setContentType(JsonConstants.JSON_CONTENT_TYPE);
+        Mockito.verify(response).setContentLength(expected.length);
+        Mockito.verify(response, Mockito.never())
+                .setHeader(Mockito.eq("Vary"), Mockito.anyString());
+    }
+
+    @Test
+    public void largeResponse_streamedThroughBuffer() throws IOException {
+        UidlResponseWriter writer = new UidlResponseWriter(response, 4);
+        writer.write("[1,2,3,4,5,6,7,8,9]");
+
+        Assert.assertTrue(writer.isCommitted());
+
+        writer.close();
+
+        Assert.assertEquals("[1,2,3,4,5,6,7,8,9]",
+                new String(out.toByteArray(), StandardCharsets.UTF_8));
+        Mockito.verify(response)
+                .setContentType(JsonConstants.JSON_CONTENT_TYPE);
+        Mockito.verify(response, Mockito.never())
+                .setContentLength(Mockito.anyInt());
+    }
+
+    @Test
+    public void discard_uncommittedResponse_nothingWritten()
+            throws IOException {
+        UidlResponseWriter writer = new UidlResponseWriter(response, 16);
+        writer.write("{\"a\":");
+        writer.discard();
+
+        Assert.assertEquals(0, out.size());
+        Mockito.verify(response, Mockito.never()).getOutputStream();
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void discard_committedResponse_throws() throws IOException {
+        UidlResponseWriter writer = new UidlResponseWriter(response, 2);
+        writer.write("{\"a\":1}");
+        writer.discard();
+    }
+
+    @Test
+    public void abort_committedResponse_restNotWritten() throws IOException {
+        UidlResponseWriter writer = new UidlResponseWriter(response, 4);
+        writer.write("[1,2,3,4,5,6,7,8,9]");
+        writer.flush();
+        int sent = out.size();
+
+        writer.abort();
+        writer.close();
+
+        Assert.assertEquals(sent, out.size());
+        Mockito.verify(response, Mockito.never())
+                .setContentLength(Mockito.anyInt());
+    }
+
+    @Test
+    public void responseBelowThreshold_notCompressed() throws IOException {
+        UidlResponseWriter writer = new UidlResponseWriter(response, 64, 32);
+        writer.write("{\"a\":1}");
+        writer.close();
+
+        Assert.assertFalse(writer.isCompressed());
+        Assert.assertEquals("{\"a\":1}",
+                new String(out.toByteArray(), StandardCharsets.UTF_8));
+        Mockito.verify(response, Mockito.never())
+                .setHeader(Mockito.eq("Content-Encoding"), Mockito.anyString());
+        Mockito.verify(response).setHeader("Vary", "Accept-Encoding");
+    }
+
+    @Test
+    public void responseAboveThreshold_compressed() throws IOException {
+        String json = createJson(100);
+        UidlResponseWriter writer = new UidlResponseWriter(response, 1024,
+                32);
+        writer.write(json);
+        writer.close();
+
+        Assert.assertTrue(writer.isCompressed());
+        Assert.assertEquals(json, decompress(out.toByteArray()));
+        Mockito.verify(response).setHeader("Content-Encoding", "gzip");
+        Mockito.verify(response).setHeader("Vary", "Accept-Encoding");
+        Mockito.verify(response, Mockito.never())
+                .setContentLength(Mockito.anyInt());
+    }
+
+    @Test
+    public void streamedResponse_compressed() throws IOException {
+        String json = createJson(1000);
+        UidlResponseWriter writer = new UidlResponseWriter(response, 16,
+                1024);
+        writer.write(json);
+
+        Assert.assertTrue(writer.isCommitted());
+        writer.close();
+
+        Assert.assertTrue(writer.isCompressed());
+        Assert.assertEquals(json, decompress(out.toByteArray()));
+    }
+
+    @Test
+    public void gzipStreamAborted_deflaterReturnedToPool()
+            throws IOException {
+        List<Deflater> released = new ArrayList<>();
+        DeflaterPool pool = new DeflaterPool(1) {
+            @Override
+            public void release(Deflater deflater) {
+                released.add(deflater);
+                super.release(deflater);
+            }
+        };
+        PooledGzipOutputStream gzipStream = new PooledGzipOutputStream(out,
+                pool);
+        gzipStream.write(createJson(100).getBytes(StandardCharsets.UTF_8));
+
+        gzipStream.abort();
+        Assert.assertEquals(1, released.size());
+
+        // Finishing or aborting again does nothing
+        gzipStream.abort();
+        gzipStream.finish();
+        Assert.assertEquals(1, released.size());
+        Assert.assertSame(released.get(0), pool.acquire());
+    }
+
+    @Test
+    public void compressedResponse_clientDisconnected_deflaterReleased()
+            throws IOException {
+        // Fails after the gzip header has been written
+        OutputStream failing = new OutputStream() {
+            private int written = 0;
+
+            @Override
+            public void write(int b) throws IOException {
+                if (++written > 10) {
+                    throw new IOException("Client disconnected");
+                }
+            }
+        };
+        Mockito.when(response.getOutputStream()).thenReturn(failing);
+
+        UidlResponseWriter writer = new UidlResponseWriter(response, 16, 0);
+        try {
+            writer.write(createJson(100000));
+            writer.close();
+            Assert.fail("Writing should have failed");
+        } catch (IOException e) {
+            // Expected
+        }
+        writer.abort();
+
+        Assert.assertTrue(writer.isCompressed());
+        Assert.assertNull(getDeflater(writer));
+    }
+
+    @Test
+    public void acceptsGzip() {
+        Assert.assertTrue(acceptsGzip("gzip"));
+        Assert.assertTrue(acceptsGzip("deflate, GZIP;q=0.5, br"));
+        Assert.assertFalse(acceptsGzip(null));
+        Assert.assertFalse(acceptsGzip("deflate, br"));
+        Assert.assertFalse(acceptsGzip("gzip;q=0"));
+    }
+
+    private static boolean acceptsGzip(String acceptEncoding) {
+        VaadinRequest request = Mockito.mock(VaadinRequest.class);
+        Mockito.when(request.getHeader("Accept-Encoding"))
+                .thenReturn(acceptEncoding);
+        return UidlRequestHandler.acceptsGzip(request);
+    }
+
+    private static Deflater getDeflater(UidlResponseWriter writer) {
+        try {
+            Field gzipStreamField = UidlResponseWriter.class
+                    .getDeclaredField("gzipStream");
+            gzipStreamField.setAccessible(true);
+            Object gzipStream = gzipStreamField.get(writer);
+            Field deflaterField = PooledGzipOutputStream.class
+                    .getDeclaredField("deflater");
+            deflaterField.setAccessible(true);
+            return (Deflater) deflaterField.get(gzipStream);
+        } catch (ReflectiveOperationException e) {
+            throw new AssertionError(e);
+        }
+    }
+
+    private static String createJson(int entries) {
+        StringBuilder json = new StringBuilder("{");
+        for (int i = 0; i < entries; i++) {
+            if (i > 0) {
+                json.append(',');
+            }
+            json.append("\"key\u00e4").append(i).append("\":").append(i);
+        }
+        return json.append('}').toString();
+    }
+
+    private static String decompress(byte[] bytes) throws IOException {
+        ByteArrayOutputStream decompressed = new ByteArrayOutputStream();
+        try (InputStream in = new GZIPInputStream(
+                new ByteArrayInputStream(bytes))) {
+            byte[] buffer = new byte[1024];
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                decompressed.write(buffer, 0, read);
+            }
+        }
+        return new String(decompressed.toByteArray(), StandardCharsets.UTF_8);
+    }
+}
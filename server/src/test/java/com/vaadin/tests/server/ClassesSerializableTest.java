@@ -68,6 +68,7 @@ public class ClassesSerializableTest {
             "com\\.vaadin\\.server\\.communication\\.PushHandler.*", // PushHandler
             "com\\.vaadin\\.server\\.communication\\.DateSerializer", //
             "com\\.vaadin\\.server\\.communication\\.JSONSerializer", //
+            "com\\.vaadin\\.server\\.communication\\.UidlResponseWriter", //
             // and its inner classes do not need to be serializable
             "com\\.vaadin\\.util\\.SerializerHelper", // fully static
             // class level filtering, also affecting nested classes and
@@ -91,7 +92,24 @@ public class ClassesSerializableTest {
             "com\\.vaadin\\.server\\.AbstractClientConnector\\$1", //
             "com\\.vaadin\\.server\\.AbstractClientConnector\\$1\\$1", //
             "com\\.vaadin\\.server\\.JsonCodec\\$1", //
+            "com\\.vaadin\\.server\\.JsonCodec\\$ObjectEncoder", //
+            "com\\.vaadin\\.server\\.JsonCodec\\$PropertyEncoder.*", //
             "com\\.vaadin\\.server\\.communication\\.PushConnection", //
+            "com\\.vaadin\\.server\\.communication\\.UidlWriter\\$1", //
+            "com\\.vaadin\\.server\\.communication\\.DeflaterPool", //
+            "com\\.vaadin\\.server\\.PushScheduler.*", //
+            "com\\.vaadin\\.server\\.UIReaper.*", //
+            "com\\.vaadin\\.server\\.PushFanout", //
+            "com\\.vaadin\\.server\\.ServerRpcMethod", //
+            "com\\.vaadin\\.server\\.JsonCodec\\$Decoder", //
+            "com\\.vaadin\\.data\\.provider\\.ListDataProvider\\$View", //
+            "com\\.vaadin\\.data\\.provider\\.ReadAheadCache.*", //
+            "com\\.vaadin\\.data\\.provider\\.CachingDataProvider\\$QueryCache.*", //
+            "com\\.vaadin\\.server\\.VaadinService\\$AggregateFuture", //
+            "com\\.vaadin\\.util\\.CurrentInstance\\$FrameMap\\$.*", //
+            "com\\.vaadin\\.server\\.communication\\.PooledGzipOutputStream", //
+            "com\\.vaadin\\.server\\.VaadinServletService\\$DeferredRequest", //
+            "com\\.vaadin\\.ui\\.Dependency\\$1", //
             "com\\.vaadin\\.server\\.communication\\.AtmospherePushConnection.*", //
             "com\\.vaadin\\.util\\.ConnectorHelper", //
             "com\\.vaadin\\.server\\.VaadinSession\\$FutureAccess", //
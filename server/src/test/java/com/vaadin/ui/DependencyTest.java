@@ -0,0 +1,73 @@
+/*
+ * Copyright 2000-2016 Vaadin Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.vaadin.ui;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.vaadin.annotations.HtmlImport;
+import com.vaadin.annotations.JavaScript;
+import com.vaadin.annotations.StyleSheet;
+import com.vaadin.server.ClientConnector;
+import com.vaadin.server.LegacyCommunicationManager;
+import com.vaadin.ui.Dependency.Type;
+
+public class DependencyTest {
+
+    @StyleSheet("style.css")
+    @HtmlImport("import.html")
+    @JavaScript({ "http://example.com/first.js", "second.js" })
+    public static class AnnotatedComponent extends AbstractComponent {
+    }
+
+    @SuppressWarnings("deprecation")
+    @Test
+    public void findDependencies_orderedByTypeAndRegistered() {
+        LegacyCommunicationManager manager = new LegacyCommunicationManager(
+                null);
+        List<Class<? extends ClientConnector>> types = Collections
+                .singletonList(AnnotatedComponent.class);
+
+        for (int i = 0; i < 2; i++) {
+            List<Dependency> dependencies = Dependency.findDependencies(types,
+                    manager);
+
+            Assert.assertEquals(4, dependencies.size());
+            Assert.assertEquals(
+                    Arrays.asList(Type.JAVASCRIPT, Type.JAVASCRIPT,
+                            Type.HTMLIMPORT, Type.STYLESHEET),
+                    Arrays.asList(dependencies.get(0).getType(),
+                            dependencies.get(1).getType(),
+                            dependencies.get(2).getType(),
+                            dependencies.get(3).getType()));
+            Assert.assertEquals("http://example.com/first.js",
+                    dependencies.get(0).getUrl());
+            Assert.assertEquals("published:///second.js",
+                    dependencies.get(1).getUrl());
+        }
+
+        // Published files are registered to each manager
+        LegacyCommunicationManager otherManager = new LegacyCommunicationManager(
+                null);
+        Dependency.findDependencies(types, otherManager);
+        Assert.assertEquals(AnnotatedComponent.class,
+                otherManager.getDependencies().get("second.js"));
+    }
+}
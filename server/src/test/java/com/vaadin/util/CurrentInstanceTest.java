@@ -19,6 +19,7 @@ import static org.junit.Assert.assertNull;
 
 import java.lang.ref.WeakReference;
 import java.lang.reflect.Field;
+import java.util.HashMap;
 import java.util.Map;
 import java.util.concurrent.Callable;
 import java.util.concurrent.ExecutionException;
@@ -159,6 +160,119 @@ public class CurrentInstanceTest {
         Assert.assertNull(VaadinSession.getCurrent());
     }
 
+    @Test
+    public void getInstances_returnsModifiableCopy() {
+        CurrentInstance.set(CurrentInstanceTest.class, this);
+
+        Map<Class<?>, CurrentInstance> instances = CurrentInstance
+                .getInstances();
+        Assert.assertEquals(1, instances.size());
+        Assert.assertNotNull(instances.remove(CurrentInstanceTest.class));
+        Assert.assertTrue(instances.isEmpty());
+
+        // Modifying the map does not change the current instances
+        Assert.assertSame(this,
+                CurrentInstance.get(CurrentInstanceTest.class));
+        Assert.assertEquals(1, CurrentInstance.getInstances().size());
+    }
+
+    @Test
+    public void setCurrent_returnsModifiableMap() {
+        Map<Class<?>, CurrentInstance> old = CurrentInstance
+                .setCurrent(new UIStoredInCurrentInstance());
+        Assert.assertEquals(3, old.size());
+
+        old.put(CurrentInstanceTest.class,
+                CurrentInstance.set(CurrentInstanceTest.class, this));
+        Assert.assertEquals(4, old.size());
+
+        CurrentInstance.restoreInstances(old);
+        Assert.assertNull(CurrentInstance.get(CurrentInstanceTest.class));
+        Assert.assertNull(CurrentInstance.get(UI.class));
+    }
+
+    @Test
+    public void nestedSetCurrent_restoredInOrder() {
+        UI outerUI = new UIStoredInCurrentInstance();
+        UI innerUI = new UIStoredInCurrentInstance();
+        CurrentInstance.set(CurrentInstanceTest.class, this);
+
+        Map<Class<?>, CurrentInstance> outer = CurrentInstance
+                .setCurrent(outerUI);
+        Map<Class<?>, CurrentInstance> inner = CurrentInstance
+                .setCurrent(innerUI);
+        Assert.assertSame(innerUI, UI.getCurrent());
+
+        CurrentInstance.restoreInstances(inner);
+        Assert.assertSame(outerUI, UI.getCurrent());
+
+        CurrentInstance.restoreInstances(outer);
+        Assert.assertNull(UI.getCurrent());
+        Assert.assertSame(this,
+                CurrentInstance.get(CurrentInstanceTest.class));
+    }
+
+    @Test
+    public void restoreInstances_afterClearAll_snapshotRestored()
+            throws Exception {
+        UI ui = new UIStoredInCurrentInstance();
+        CurrentInstance.set(CurrentInstanceTest.class, this);
+        CurrentInstance.set(UI.class, ui);
+        Map<Class<?>, CurrentInstance> saved = CurrentInstance.getInstances();
+
+        CurrentInstance.clearAll();
+        assertCleared();
+        CurrentInstance.set(String.class, "other");
+        CurrentInstance.clearAll();
+
+        CurrentInstance.restoreInstances(saved);
+        Assert.assertSame(ui, UI.getCurrent());
+        Assert.assertSame(this,
+                CurrentInstance.get(CurrentInstanceTest.class));
+        Assert.assertNull(CurrentInstance.get(String.class));
+    }
+
+    @Test
+    public void restoreInstances_hashMap_restored() {
+        UI ui = new UIStoredInCurrentInstance();
+        CurrentInstance.set(UI.class, ui);
+
+        // A map created as before getInstances() returned its own map type
+        Map<Class<?>, CurrentInstance> saved = new HashMap<>(
+                CurrentInstance.getInstances());
+        Map<Class<?>, CurrentInstance> old = new HashMap<>();
+        old.put(CurrentInstanceTest.class,
+                CurrentInstance.set(CurrentInstanceTest.class, this));
+        CurrentInstance.set(UI.class, new UIStoredInCurrentInstance());
+
+        CurrentInstance.restoreInstances(saved);
+        Assert.assertSame(ui, UI.getCurrent());
+
+        CurrentInstance.restoreInstances(old);
+        Assert.assertNull(CurrentInstance.get(CurrentInstanceTest.class));
+        Assert.assertSame(ui, UI.getCurrent());
+    }
+
+    @Test
+    public void getInstances_garbageCollectedValueRemoved() throws Exception {
+        Object value = new Object();
+        WeakReference<Object> ref = new WeakReference<>(value);
+        CurrentInstance.set(Object.class, value);
+        CurrentInstance.set(CurrentInstanceTest.class, this);
+
+        value = null;
+        waitUntilGarbageCollected(ref);
+
+        Map<Class<?>, CurrentInstance> instances = CurrentInstance
+                .getInstances();
+        Assert.assertEquals(1, instances.size());
+        Assert.assertTrue(instances.containsKey(CurrentInstanceTest.class));
+        Assert.assertNull(CurrentInstance.get(Object.class));
+
+        CurrentInstance.set(CurrentInstanceTest.class, null);
+        assertCleared();
+    }
+
     private static void waitUntilGarbageCollected(WeakReference<?> ref)
             throws InterruptedException {
         for (int i = 0; i < 50; i++) {
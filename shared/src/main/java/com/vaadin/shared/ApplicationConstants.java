@@ -172,4 +172,13 @@ public class ApplicationConstants implements Serializable {
      */
     public static final String WIDGETSET_VERSION_ID = "wsver";
 
+    /**
+     * The name of the response attribute listing connectors that have state
+     * changes but whose hierarchy is not included in the response because it
+     * has not changed.
+     *
+     * @since 8.0
+     */
+    public static final String UNCHANGED_HIERARCHY = "unchangedHierarchy";
+
 }
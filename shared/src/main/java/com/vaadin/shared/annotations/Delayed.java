@@ -18,6 +18,8 @@ package com.vaadin.shared.annotations;
 
 import java.lang.annotation.Documented;
 import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
 import java.lang.annotation.Target;
 
 import com.vaadin.shared.communication.ServerRpc;
@@ -34,6 +36,7 @@ import com.vaadin.shared.communication.ServerRpc;
  * @since 7.0.0
  */
 @Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
 @Documented
 public @interface Delayed {
     /**
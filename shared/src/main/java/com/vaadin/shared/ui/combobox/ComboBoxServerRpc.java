@@ -15,6 +15,7 @@
  */
 package com.vaadin.shared.ui.combobox;
 
+import com.vaadin.shared.annotations.Coalesced;
 import com.vaadin.shared.communication.ServerRpc;
 
 /**
@@ -39,5 +40,6 @@ public interface ComboBoxServerRpc extends ServerRpc {
      *            filter string interpreted according to the current filtering
      *            mode
      */
+    @Coalesced
     public void setFilter(String filter);
 }
@@ -15,6 +15,7 @@
  */
 package com.vaadin.shared.ui.textfield;
 
+import com.vaadin.shared.annotations.Coalesced;
 import com.vaadin.shared.communication.ServerRpc;
 
 /**
@@ -24,5 +25,6 @@ import com.vaadin.shared.communication.ServerRpc;
  */
 public interface AbstractTextFieldServerRpc extends ServerRpc {
 
+    @Coalesced
     void setText(String text, int cursorPosition);
 }